@@ -0,0 +1,59 @@
+package main;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin dashboard hot paths: user listing, the paged Orders tab, order streaming and book edits.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdminServiceBenchmark {
+    private static final int ADMIN = BenchmarkDatabase.ADMIN_USER_ID;
+    private static final AdminService.OrderFilter PAID = new AdminService.OrderFilter("Paid", null, null, null);
+
+    private final AdminService adminService = new AdminService();
+
+    @Benchmark
+    public List<AdminService.UserInfo> getAllUsers(BenchmarkDatabase db) {
+        return adminService.getAllUsers(ADMIN);
+    }
+
+    @Benchmark
+    public int countPaidOrders(BenchmarkDatabase db) throws SQLException {
+        return adminService.countOrders(ADMIN, PAID);
+    }
+
+    @Benchmark
+    public List<AdminService.OrderInfo> newestOrdersPage(BenchmarkDatabase db) throws SQLException {
+        return adminService.getOrderPage(ADMIN, AdminService.OrderFilter.ALL, "order_date", false, 0, 100);
+    }
+
+    @Benchmark
+    public List<AdminService.OrderInfo> deepOrdersPage(BenchmarkDatabase db) throws SQLException {
+        return adminService.getOrderPage(ADMIN, AdminService.OrderFilter.ALL, "order_id", true, db.orders / 2, 100);
+    }
+
+    @Benchmark
+    public int streamAllOrders(BenchmarkDatabase db, Blackhole bh) throws SQLException {
+        return adminService.streamAllOrders(ADMIN, AdminService.DEFAULT_FETCH_SIZE, order -> {
+            bh.consume(order);
+            return true;
+        });
+    }
+
+    @Benchmark
+    public boolean updateBook(BenchmarkDatabase db) {
+        int bookId = 1 + ThreadLocalRandom.current().nextInt(db.books);
+        return adminService.updateBook(ADMIN, bookId, "Benchmark Title " + bookId, "Fantasy", 499.99, 1_000_000);
+    }
+}
@@ -0,0 +1,191 @@
+package main;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Embedded H2 database (MySQL mode) seeded with generated data, shared by all benchmarks
+ * in a fork. Data volume is set with JMH parameters, e.g. -p books=100000 -p orders=500000.
+ * The application reaches it through DBConnection, pointed here with -Dbookmart.db.url.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+    public static final String URL = "jdbc:h2:mem:bookmart;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    public static final int ADMIN_USER_ID = 1;
+    public static final int STAFF_USER_ID = 2;
+    // Customers take the remaining user IDs
+    public static final int FIRST_CUSTOMER_ID = 3;
+
+    private static final String[] WORDS = {
+        "the", "dragon", "war", "shadow", "garden", "lost", "city", "river", "harry", "night",
+        "silent", "empire", "winter", "crown", "stone", "secret", "ocean", "fire", "glass", "iron",
+        "journey", "kingdom", "light", "memory", "north", "queen", "storm", "time", "wild", "star"
+    };
+    private static final String[] GENRES = {
+        "Fantasy", "Mystery", "Romance", "Science Fiction", "History", "Biography", "Horror", "Poetry"
+    };
+
+    @Param({"10000"})
+    public int books;
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"20000"})
+    public int orders;
+
+    @Param({"42"})
+    public long seed;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException, IOException {
+        System.setProperty("bookmart.db.url", URL);
+        System.setProperty("bookmart.db.user", "sa");
+        System.setProperty("bookmart.db.password", "");
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP ALL OBJECTS");
+            }
+            runScript(conn, "/h2-schema.sql");
+            conn.setAutoCommit(false);
+            new DataGenerator(new Random(seed)).generate(conn, books, users, orders);
+            conn.commit();
+        }
+        CatalogCache.getInstance().invalidateAll();
+    }
+
+    private static void runScript(Connection conn, String resource) throws SQLException, IOException {
+        String script;
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream(resource)) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : script.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!sql.isBlank()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deterministic data generator: the same seed and sizes always produce the same rows.
+     */
+    public static class DataGenerator {
+        private static final int BATCH = 1000;
+        private final Random random;
+
+        public DataGenerator(Random random) {
+            this.random = random;
+        }
+
+        public void generate(Connection conn, int books, int users, int orders) throws SQLException {
+            insertCurrencies(conn);
+            insertUsers(conn, users);
+            insertBooks(conn, books);
+            insertOrders(conn, orders, books, users);
+        }
+
+        private void insertCurrencies(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO currencies (currency_code, symbol, exchange_rate_to_php) VALUES " +
+                    "('PHP', '₱', 1.0000), ('USD', '$', 56.0000), ('KRW', '₩', 0.0420)");
+            }
+        }
+
+        private void insertUsers(Connection conn, int users) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO users (name, email, password, role) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= Math.max(users, FIRST_CUSTOMER_ID); i++) {
+                    String role = i == ADMIN_USER_ID ? "Admin" : i == STAFF_USER_ID ? "Staff" : "Customer";
+                    stmt.setString(1, role + " " + i);
+                    stmt.setString(2, "user" + i + "@bookmart.test");
+                    stmt.setString(3, "password" + i);
+                    stmt.setString(4, role);
+                    stmt.addBatch();
+                    if (i % BATCH == 0) stmt.executeBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+
+        private void insertBooks(Connection conn, int books) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO books (title, genre, price, stock_quantity) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= books; i++) {
+                    stmt.setString(1, title());
+                    stmt.setString(2, GENRES[random.nextInt(GENRES.length)]);
+                    stmt.setBigDecimal(3, BigDecimal.valueOf(100 + random.nextInt(1900)).add(new BigDecimal("0.99")));
+                    // Deep enough that checkout benchmarks never run a title out of stock
+                    stmt.setInt(4, 1_000_000);
+                    stmt.addBatch();
+                    if (i % BATCH == 0) stmt.executeBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+
+        private void insertOrders(Connection conn, int orders, int books, int users) throws SQLException {
+            String[] statuses = {"Pending", "Paid"};
+            LocalDateTime start = LocalDateTime.now().minusYears(2);
+            long spanMinutes = 2L * 365 * 24 * 60;
+            int customers = Math.max(1, users - FIRST_CUSTOMER_ID + 1);
+            try (PreparedStatement order = conn.prepareStatement(
+                     "INSERT INTO orders (order_id, user_id, order_date, total_amount, currency_id, status) VALUES (?, ?, ?, ?, 1, ?)");
+                 PreparedStatement item = conn.prepareStatement(
+                     "INSERT INTO order_items (order_id, book_id, quantity, price_each) VALUES (?, ?, ?, ?)")) {
+                for (int orderId = 1; orderId <= orders; orderId++) {
+                    int lines = 1 + random.nextInt(4);
+                    BigDecimal total = BigDecimal.ZERO;
+                    for (int l = 0; l < lines; l++) {
+                        int quantity = 1 + random.nextInt(3);
+                        BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(1900));
+                        item.setInt(1, orderId);
+                        item.setInt(2, 1 + random.nextInt(books));
+                        item.setInt(3, quantity);
+                        item.setBigDecimal(4, price);
+                        item.addBatch();
+                        total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+                    }
+                    order.setInt(1, orderId);
+                    order.setInt(2, FIRST_CUSTOMER_ID + random.nextInt(customers));
+                    order.setTimestamp(3, Timestamp.valueOf(start.plusMinutes((long) (random.nextDouble() * spanMinutes))));
+                    order.setBigDecimal(4, total);
+                    order.setString(5, statuses[random.nextInt(statuses.length)]);
+                    order.addBatch();
+                    if (orderId % BATCH == 0) {
+                        order.executeBatch();
+                        item.executeBatch();
+                    }
+                }
+                order.executeBatch();
+                item.executeBatch();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE orders ALTER COLUMN order_id RESTART WITH " + (orders + 1));
+            }
+        }
+
+        private String title() {
+            int words = 1 + random.nextInt(4);
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (w > 0) title.append(' ');
+                title.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+            }
+            return title.toString();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package main;
+
+import org.h2.tools.SimpleResultSet;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Java versions of the stored procedures in database/schema.sql that the benchmarked
+ * services call, registered as H2 aliases by h2-schema.sql. They follow the MySQL
+ * procedures statement for statement so the benchmarks issue the same row access.
+ * H2 runs each CALL as one statement, so a failure rolls back everything it changed.
+ */
+public class BenchmarkProcedures {
+    private static final Pattern RESERVED_LINE = Pattern.compile("\"(\\d+)\"\\s*:\\s*(\\d+)");
+
+    // ChangeCaptureBenchmark turns this off to measure checkout with the per-row log triggers instead
+    static volatile boolean captureChanges = true;
+
+    public static void addBooks(Connection conn, String title, String genre, BigDecimal price, int stock) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO books (title, genre, price, stock_quantity) VALUES (?, ?, ?, ?)")) {
+            stmt.setString(1, title);
+            stmt.setString(2, genre);
+            stmt.setBigDecimal(3, price);
+            stmt.setInt(4, stock);
+            stmt.executeUpdate();
+        }
+    }
+
+    public static void removeBooks(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM books WHERE book_id = ?")) {
+            stmt.setInt(1, bookId);
+            stmt.executeUpdate();
+        }
+    }
+
+    public static ResultSet getBookDetails(Connection conn, int bookId) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+            "SELECT book_id, title, genre, price, stock_quantity FROM books WHERE book_id = ?");
+        stmt.setInt(1, bookId);
+        return stmt.executeQuery();
+    }
+
+    public static void updateBookDetails(Connection conn, int adminUserId, int bookId, String title, String genre,
+                                         BigDecimal price, int stock) throws SQLException {
+        requireAdmin(conn, adminUserId, "Unauthorized: Only admins can update book details.");
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE books SET title = ?, genre = ?, price = ?, stock_quantity = ? WHERE book_id = ?")) {
+            stmt.setString(1, title);
+            stmt.setString(2, genre);
+            stmt.setBigDecimal(3, price);
+            stmt.setInt(4, stock);
+            stmt.setInt(5, bookId);
+            stmt.executeUpdate();
+        }
+    }
+
+    public static void removeFromCart(Connection conn, int userId, int bookId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO cart_deletion_log (user_id, book_id, quantity) " +
+                "SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = ? AND book_id = ?")) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, bookId);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM cart_items WHERE user_id = ? AND book_id = ?")) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, bookId);
+            stmt.executeUpdate();
+        }
+    }
+
+    public static void clearCart(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO cart_deletion_log (user_id, book_id, quantity) " +
+                "SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = ?")) {
+            stmt.setInt(1, userId);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM cart_items WHERE user_id = ?")) {
+            stmt.setInt(1, userId);
+            stmt.executeUpdate();
+        }
+    }
+
+    public static ResultSet placeOrder(Connection conn, int userId, String currencyCode) throws SQLException {
+        return placeReservedOrder(conn, userId, currencyCode, null);
+    }
+
+    public static ResultSet placeReservedOrder(Connection conn, int userId, String currencyCode, String reserved) throws SQLException {
+        SimpleResultSet result = new SimpleResultSet();
+        result.addColumn("order_id", Types.INTEGER, 10, 0);
+        result.addColumn("book_id", Types.INTEGER, 10, 0);
+        result.addColumn("quantity", Types.INTEGER, 10, 0);
+        // H2 calls result-set functions once at prepare time to learn the columns
+        if (conn.getMetaData().getURL().equals("jdbc:columnlist:connection")) {
+            return result;
+        }
+
+        // The MySQL procedure runs in its own transaction; without the savepoint a failure part
+        // way through would keep the stock already taken for earlier lines
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            placeReservedOrder(conn, userId, currencyCode, reserved, result);
+        } catch (SQLException e) {
+            conn.rollback(savepoint);
+            throw e;
+        }
+        return result;
+    }
+
+    private static void placeReservedOrder(Connection conn, int userId, String currencyCode, String reserved,
+                                           SimpleResultSet result) throws SQLException {
+        int currencyId;
+        BigDecimal rate;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT currency_id, exchange_rate_to_php FROM currencies WHERE currency_code = ?")) {
+            stmt.setString(1, currencyCode);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) throw signal("Unknown currency.");
+                currencyId = rs.getInt(1);
+                rate = rs.getBigDecimal(2);
+            }
+        }
+
+        Map<Integer, Integer> reservedLines = parseReserved(reserved);
+        Map<Integer, Integer> lines = new TreeMap<>();
+        List<Integer> cartItemIds = new ArrayList<>();
+        ChangeCapture changes = new ChangeCapture();
+        // MySQL's next-key locks keep other sessions from adding to the cart until commit. H2 locks
+        // only the rows read, so everything after this works on exactly those rows and a
+        // concurrent add stays in the cart.
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT cart_item_id, book_id, quantity FROM cart_items WHERE user_id = ? FOR UPDATE")) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    cartItemIds.add(rs.getInt(1));
+                    lines.merge(rs.getInt(2), rs.getInt(3), Integer::sum);
+                    changes.cartItemDeleted(userId, rs.getInt(2), rs.getInt(3));
+                }
+            }
+        }
+        Array lockedItems = conn.createArrayOf("INTEGER", cartItemIds.toArray());
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE books SET stock_quantity = stock_quantity - ? WHERE book_id = ? AND stock_quantity >= ?")) {
+            for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+                Integer reservedQty = reservedLines.get(line.getKey());
+                if (reservedQty == null) {
+                    stmt.setInt(1, line.getValue());
+                    stmt.setInt(2, line.getKey());
+                    stmt.setInt(3, line.getValue());
+                    if (stmt.executeUpdate() == 0) throw signal("Insufficient stock.");
+                } else if (!reservedQty.equals(line.getValue())) {
+                    throw signal("Reservation does not match cart.");
+                }
+            }
+        }
+        if (lines.isEmpty()) throw signal("Cart is empty.");
+
+        // One read of the new stock for every decremented line, as the MySQL procedure's INSERT ... SELECT
+        List<Integer> decremented = new ArrayList<>();
+        for (int bookId : lines.keySet()) {
+            if (!reservedLines.containsKey(bookId)) decremented.add(bookId);
+        }
+        if (captureChanges && !decremented.isEmpty()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT book_id, stock_quantity FROM books WHERE book_id = ANY(?)")) {
+                stmt.setArray(1, conn.createArrayOf("INTEGER", decremented.toArray()));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int newStock = rs.getInt(2);
+                        changes.stockChanged(rs.getInt(1), newStock + lines.get(rs.getInt(1)), newStock);
+                    }
+                }
+            }
+        }
+
+        BigDecimal total;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT SUM(c.quantity * b.price) FROM cart_items c JOIN books b ON b.book_id = c.book_id " +
+                "WHERE c.cart_item_id = ANY(?)")) {
+            stmt.setArray(1, lockedItems);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                total = rs.getBigDecimal(1).divide(rate, 2, RoundingMode.HALF_UP);
+            }
+        }
+
+        int orderId;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO orders (user_id, total_amount, currency_id, status) VALUES (?, ?, ?, 'Pending')",
+                Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, userId);
+            stmt.setBigDecimal(2, total);
+            stmt.setInt(3, currencyId);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                orderId = keys.getInt(1);
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO order_items (order_id, book_id, quantity, price_each) " +
+                "SELECT ?, c.book_id, SUM(c.quantity), ROUND(b.price / CAST(? AS DECIMAL(10,4)), 2) " +
+                "FROM cart_items c JOIN books b ON b.book_id = c.book_id " +
+                "WHERE c.cart_item_id = ANY(?) GROUP BY c.book_id, b.price")) {
+            stmt.setInt(1, orderId);
+            stmt.setBigDecimal(2, rate);
+            stmt.setArray(3, lockedItems);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM cart_items WHERE cart_item_id = ANY(?)")) {
+            stmt.setArray(1, lockedItems);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO sales_rollup_queue (order_id) VALUES (?)")) {
+            stmt.setInt(1, orderId);
+            stmt.executeUpdate();
+        }
+        if (captureChanges) {
+            changes.flush(conn);
+        }
+
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            result.addRow(orderId, line.getKey(), line.getValue());
+        }
+    }
+
+    private static void requireAdmin(Connection conn, int adminUserId, String message) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT role FROM users WHERE user_id = ?")) {
+            stmt.setInt(1, adminUserId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || !"Admin".equals(rs.getString(1))) throw signal(message);
+            }
+        }
+    }
+
+    private static Map<Integer, Integer> parseReserved(String reserved) {
+        Map<Integer, Integer> lines = new TreeMap<>();
+        if (reserved == null) return lines;
+        Matcher m = RESERVED_LINE.matcher(reserved);
+        while (m.find()) {
+            lines.put(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+        }
+        return lines;
+    }
+
+    private static SQLException signal(String message) {
+        return new SQLException(message, "45000");
+    }
+}
@@ -0,0 +1,49 @@
+package main;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer catalog hot paths: keyword search over the in-memory index and
+ * keyset-paged grid pages read from the database.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+    // Same page size as BookGrid
+    private static final int GRID_PAGE_SIZE = 60;
+
+    @Param({"dragon", "the", "silent empire"})
+    public String keyword;
+
+    private BookPageSource database;
+    private AdminService.BookInfo midpoint;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase db) {
+        List<AdminService.BookInfo> all = CatalogCache.getInstance().getAllBooks();
+        database = BookPageSource.database();
+        midpoint = database.fetchPage(null, all.size() / 2).stream().reduce((a, b) -> b).orElse(null);
+    }
+
+    @Benchmark
+    public List<AdminService.BookInfo> search(BenchmarkDatabase db) {
+        return CatalogCache.getInstance().search(keyword);
+    }
+
+    @Benchmark
+    public List<AdminService.BookInfo> firstGridPage(BenchmarkDatabase db) {
+        return database.fetchPage(null, GRID_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<AdminService.BookInfo> deepGridPage(BenchmarkDatabase db) {
+        return database.fetchPage(midpoint, GRID_PAGE_SIZE);
+    }
+}
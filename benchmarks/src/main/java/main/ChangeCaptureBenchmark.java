@@ -0,0 +1,146 @@
+package main;
+
+import org.h2.api.Trigger;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A 20-line checkout with its stock and cart deletion logging done two ways: by per-row
+ * triggers that look up the book's stock and insert one log row per order item and per
+ * deleted cart line (the after_order_item_insert and log_deleted_cart_items triggers from
+ * database/schema.sql), or by ChangeCapture's one multi-row insert per log table at commit.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeCaptureBenchmark {
+    private static final int CART_LINES = 20;
+
+    @Param({"trigger", "pipeline"})
+    public String logging;
+
+    @State(Scope.Thread)
+    public static class Customer {
+        private static int nextCustomer = BenchmarkDatabase.FIRST_CUSTOMER_ID;
+        int userId;
+        SessionContext session;
+
+        @Setup(Level.Trial)
+        public void pickCustomer(BenchmarkDatabase db) {
+            synchronized (Customer.class) {
+                // One customer per benchmark thread so carts never collide
+                userId = nextCustomer++;
+            }
+            session = new SessionContext(userId, "Customer");
+        }
+
+        @Setup(Level.Invocation)
+        public void fillCart(BenchmarkDatabase db) throws SQLException {
+            // Consecutive books from a random start, so every line is a different book
+            int first = 1 + ThreadLocalRandom.current().nextInt(db.books - CART_LINES);
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO cart_items (user_id, book_id, quantity) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)")) {
+                for (int i = 0; i < CART_LINES; i++) {
+                    stmt.setInt(1, userId);
+                    stmt.setInt(2, first + i);
+                    stmt.setInt(3, 1 + ThreadLocalRandom.current().nextInt(3));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private final OrderService orderService = new OrderService();
+
+    @Setup(Level.Trial)
+    public void configureLogging(BenchmarkDatabase db) throws SQLException {
+        boolean triggers = "trigger".equals(logging);
+        try (Connection conn = DBConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TRIGGER IF EXISTS after_order_item_insert");
+            stmt.execute("DROP TRIGGER IF EXISTS log_deleted_cart_items");
+            if (triggers) {
+                stmt.execute("CREATE TRIGGER after_order_item_insert AFTER INSERT ON order_items FOR EACH ROW "
+                    + "CALL '" + StockLogTrigger.class.getName() + "'");
+                stmt.execute("CREATE TRIGGER log_deleted_cart_items AFTER DELETE ON cart_items FOR EACH ROW "
+                    + "CALL '" + CartDeletionTrigger.class.getName() + "'");
+            }
+        }
+        BenchmarkProcedures.captureChanges = !triggers;
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreLogging() {
+        BenchmarkProcedures.captureChanges = true;
+    }
+
+    @Benchmark
+    public int placeOrder(Customer customer) throws SQLException {
+        return orderService.placeOrder(customer.session, "PHP");
+    }
+
+    /**
+     * after_order_item_insert: looks up the book's stock and logs it for every order item.
+     */
+    public static class StockLogTrigger implements Trigger {
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            // order_items columns: order_item_id, order_id, book_id, quantity, price_each
+            int bookId = (Integer) newRow[2];
+            int quantity = (Integer) newRow[3];
+            int currentStock;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT stock_quantity FROM books WHERE book_id = ?")) {
+                stmt.setInt(1, bookId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    currentStock = rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO stock_log (book_id, old_stock, new_stock) VALUES (?, ?, ?)")) {
+                stmt.setInt(1, bookId);
+                stmt.setInt(2, currentStock + quantity);
+                stmt.setInt(3, currentStock);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * log_deleted_cart_items: logs every deleted cart line.
+     */
+    public static class CartDeletionTrigger implements Trigger {
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            // cart_items columns: cart_item_id, user_id, book_id, quantity
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO cart_deletion_log (user_id, book_id, quantity) VALUES (?, ?, ?)")) {
+                stmt.setObject(1, oldRow[1]);
+                stmt.setObject(2, oldRow[2]);
+                stmt.setObject(3, oldRow[3]);
+                stmt.executeUpdate();
+            }
+        }
+    }
+}
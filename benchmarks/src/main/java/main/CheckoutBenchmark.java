@@ -0,0 +1,62 @@
+package main;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout through OrderService.placeOrder. Each invocation gets a fresh three-line cart,
+ * filled outside the measured section.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+    private static final int CART_LINES = 3;
+
+    @State(Scope.Thread)
+    public static class Customer {
+        private static int nextCustomer = BenchmarkDatabase.FIRST_CUSTOMER_ID;
+        int userId;
+        SessionContext session;
+
+        @Setup(Level.Trial)
+        public void pickCustomer(BenchmarkDatabase db) {
+            synchronized (Customer.class) {
+                // One customer per benchmark thread so carts never collide
+                userId = nextCustomer++;
+            }
+            session = new SessionContext(userId, "Customer");
+        }
+
+        @Setup(Level.Invocation)
+        public void fillCart(BenchmarkDatabase db) throws SQLException {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO cart_items (user_id, book_id, quantity) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)")) {
+                for (int i = 0; i < CART_LINES; i++) {
+                    stmt.setInt(1, userId);
+                    stmt.setInt(2, 1 + ThreadLocalRandom.current().nextInt(db.books));
+                    stmt.setInt(3, 1 + ThreadLocalRandom.current().nextInt(3));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private final OrderService orderService = new OrderService();
+
+    @Benchmark
+    public int placeOrder(Customer customer) throws SQLException {
+        return orderService.placeOrder(customer.session, "PHP");
+    }
+}
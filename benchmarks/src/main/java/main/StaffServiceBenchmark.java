@@ -0,0 +1,29 @@
+package main;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Staff inventory hot paths: book lookups and adding/removing catalog entries.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StaffServiceBenchmark {
+    private final StaffService staffService = new StaffService();
+
+    @Benchmark
+    public StaffService.BookDetails getBookDetails(BenchmarkDatabase db) {
+        return staffService.getBookDetails(1 + ThreadLocalRandom.current().nextInt(db.books));
+    }
+
+    @Benchmark
+    public boolean addBook(BenchmarkDatabase db) {
+        return staffService.addBook("Benchmark Book", "Poetry", 250.00, 10);
+    }
+}
@@ -0,0 +1,176 @@
+-- BookMart schema for the embedded H2 database used by the benchmarks (MODE=MySQL).
+-- Mirrors the tables and indexes of database/schema.sql. Stored procedures the services
+-- call are Java aliases in BenchmarkProcedures; audit triggers are not modeled.
+
+CREATE TABLE users (
+    user_id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(100) NOT NULL UNIQUE,
+    password VARCHAR(100) NOT NULL,
+    role ENUM('Admin', 'Staff', 'Customer') NOT NULL DEFAULT 'Customer'
+);
+
+CREATE TABLE books (
+    book_id INT AUTO_INCREMENT PRIMARY KEY,
+    title VARCHAR(200) NOT NULL,
+    genre VARCHAR(100),
+    price DECIMAL(10,2) NOT NULL,
+    stock_quantity INT DEFAULT 0
+);
+CREATE INDEX idx_books_title_id ON books (title, book_id);
+
+CREATE TABLE currencies (
+    currency_id INT AUTO_INCREMENT PRIMARY KEY,
+    currency_code VARCHAR(10) NOT NULL UNIQUE,
+    symbol VARCHAR(5),
+    exchange_rate_to_php DECIMAL(10,4)
+);
+
+CREATE TABLE cart_items (
+    cart_item_id INT AUTO_INCREMENT UNIQUE,
+    user_id INT NOT NULL,
+    book_id INT NOT NULL,
+    quantity INT,
+    PRIMARY KEY (user_id, book_id),
+    FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    FOREIGN KEY (book_id) REFERENCES books(book_id)
+);
+
+CREATE TABLE orders (
+    order_id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id INT,
+    order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    total_amount DECIMAL(10,2),
+    currency_id INT,
+    status VARCHAR(50) DEFAULT 'Pending',
+    FOREIGN KEY (user_id) REFERENCES users(user_id),
+    FOREIGN KEY (currency_id) REFERENCES currencies(currency_id)
+);
+CREATE INDEX idx_orders_status_date ON orders (status, order_date);
+CREATE INDEX idx_orders_date ON orders (order_date);
+CREATE INDEX idx_orders_user_date ON orders (user_id, order_date);
+
+CREATE TABLE order_items (
+    order_item_id INT AUTO_INCREMENT PRIMARY KEY,
+    order_id INT,
+    book_id INT,
+    quantity INT,
+    price_each DECIMAL(10,2),
+    FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE,
+    FOREIGN KEY (book_id) REFERENCES books(book_id)
+);
+CREATE INDEX idx_order_items_order_cover ON order_items (order_id, book_id, quantity, price_each);
+
+CREATE TABLE transaction_logs (
+    transaction_id INT AUTO_INCREMENT PRIMARY KEY,
+    order_id INT,
+    payment_method VARCHAR(50),
+    payment_status VARCHAR(50),
+    amount DECIMAL(10,2),
+    timestambooksusersp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (order_id) REFERENCES orders(order_id)
+);
+
+CREATE TABLE sales_daily (
+    sales_date DATE NOT NULL,
+    currency_code VARCHAR(10) NOT NULL,
+    order_count INT NOT NULL DEFAULT 0,
+    units INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, currency_code)
+);
+
+CREATE TABLE sales_daily_genre (
+    sales_date DATE NOT NULL,
+    genre VARCHAR(100) NOT NULL,
+    units INT NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, genre)
+);
+
+CREATE TABLE sales_daily_book (
+    sales_date DATE NOT NULL,
+    book_id INT NOT NULL,
+    units INT NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, book_id)
+);
+
+-- Orders not yet in the rollups: checkout adds its order in its own transaction and
+-- SalesAnalytics deletes it in the transaction that adds the order's items
+CREATE TABLE sales_rollup_queue (
+    order_id INT PRIMARY KEY
+);
+
+-- Single row locked by every rollup run, so runs from several processes take turns
+CREATE TABLE sales_rollup_state (
+    id INT PRIMARY KEY,
+    updated_at TIMESTAMP NULL
+);
+INSERT INTO sales_rollup_state (id) VALUES (1);
+
+-- Versions from database/migrations already contained in this script; SchemaMigrator
+-- applies only the later ones
+CREATE TABLE schema_migrations (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    checksum VARCHAR(16),
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    execution_millis BIGINT NOT NULL DEFAULT 0
+);
+INSERT INTO schema_migrations (version, description) VALUES
+(1, 'cart_items_user_book_key'),
+(2, 'order_lookup_indexes'),
+(3, 'baseline');
+
+-- Change logs, written in one multi-row insert per transaction by ChangeCapture
+CREATE TABLE price_audit (
+    audit_id INT AUTO_INCREMENT PRIMARY KEY,
+    book_id INT,
+    old_price DECIMAL(10,2),
+    new_price DECIMAL(10,2),
+    changed_by_user INT,
+    changed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE stock_log (
+    log_id INT AUTO_INCREMENT PRIMARY KEY,
+    book_id INT,
+    old_stock INT,
+    new_stock INT,
+    changed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE cart_deletion_log (
+    log_id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id INT,
+    book_id INT,
+    quantity INT,
+    deleted_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE book_deletion_log (
+    log_id INT AUTO_INCREMENT PRIMARY KEY,
+    book_id INT,
+    title VARCHAR(200),
+    deleted_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE admin_action_log (
+    log_id INT AUTO_INCREMENT PRIMARY KEY,
+    admin_user_id INT,
+    action VARCHAR(100),
+    details TEXT,
+    `timestamp` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (admin_user_id) REFERENCES users(user_id)
+);
+
+CREATE ALIAS addBooks FOR 'main.BenchmarkProcedures.addBooks';
+CREATE ALIAS removeBooks FOR 'main.BenchmarkProcedures.removeBooks';
+CREATE ALIAS getBookDetails FOR 'main.BenchmarkProcedures.getBookDetails';
+CREATE ALIAS updateBookDetails FOR 'main.BenchmarkProcedures.updateBookDetails';
+CREATE ALIAS placeReservedOrder FOR 'main.BenchmarkProcedures.placeReservedOrder';
+CREATE ALIAS placeOrder FOR 'main.BenchmarkProcedures.placeOrder';
+CREATE ALIAS removeFromCart FOR 'main.BenchmarkProcedures.removeFromCart';
+CREATE ALIAS clearCart FOR 'main.BenchmarkProcedures.clearCart';
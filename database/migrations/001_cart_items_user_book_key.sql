@@ -0,0 +1,32 @@
+-- One cart line per (user, book).
+-- Older schemas had only cart_item_id as the key, so ON DUPLICATE KEY UPDATE in CartService
+-- never fired and repeated adds piled up as separate rows. Duplicates are merged into the
+-- oldest line, then (user_id, book_id) becomes the clustered primary key: every cart
+-- operation is a range or point lookup on it, and reads of a user's cart are covered by it.
+-- cart_item_id stays as a unique auto-increment key.
+
+UPDATE cart_items c
+JOIN (
+    SELECT MIN(cart_item_id) AS keep_id, SUM(quantity) AS qty
+    FROM cart_items
+    GROUP BY user_id, book_id
+    HAVING COUNT(*) > 1
+) d ON c.cart_item_id = d.keep_id
+SET c.quantity = d.qty;
+
+DELETE c FROM cart_items c
+JOIN (
+    SELECT user_id, book_id, MIN(cart_item_id) AS keep_id
+    FROM cart_items
+    GROUP BY user_id, book_id
+    HAVING COUNT(*) > 1
+) d ON c.user_id = d.user_id AND c.book_id = d.book_id AND c.cart_item_id <> d.keep_id;
+
+DELETE FROM cart_items WHERE user_id IS NULL OR book_id IS NULL;
+
+ALTER TABLE cart_items
+    MODIFY user_id INT NOT NULL,
+    MODIFY book_id INT NOT NULL,
+    DROP PRIMARY KEY,
+    ADD UNIQUE KEY uq_cart_item_id (cart_item_id),
+    ADD PRIMARY KEY (user_id, book_id);
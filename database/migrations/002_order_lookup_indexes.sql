@@ -0,0 +1,9 @@
+-- Indexes for the per-customer order reads.
+-- The foreign keys only give orders an index on user_id alone, so a customer's history
+-- was read through it and then sorted; (user_id, order_date) returns it already in date
+-- order. order_items gets an index that covers the item columns read per order, so
+-- fetching an order's lines never touches the table rows.
+
+CREATE INDEX idx_orders_user_date ON orders (user_id, order_date);
+
+CREATE INDEX idx_order_items_order_cover ON order_items (order_id, book_id, quantity, price_each);
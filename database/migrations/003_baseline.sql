@@ -0,0 +1,356 @@
+-- Brings a database created from the original schema (before versioned migrations) up to
+-- database/schema.sql, after 001 and 002: the remaining indexes, the sales rollup tables,
+-- the rewritten procedures, and the removal of the logging triggers whose rows the
+-- procedures and the application now write themselves. Procedures are dropped and created
+-- again, so the script also repairs a database where some of them were updated by hand.
+-- SchemaMigrator refuses to start the application until this version is recorded.
+
+-- Keyset pagination for the catalog grid: ORDER BY title, book_id
+CREATE INDEX idx_books_title_id ON books (title, book_id);
+
+-- Admin Orders tab: filter by status and/or date range, sort by date
+CREATE INDEX idx_orders_status_date ON orders (status, order_date);
+CREATE INDEX idx_orders_date ON orders (order_date);
+
+-- SALES ROLLUPS: maintained incrementally from queued orders by SalesAnalytics.
+-- Revenue is in the order's currency; revenue_php converts it at the rate current when rolled up.
+CREATE TABLE sales_daily (
+    sales_date DATE NOT NULL,
+    currency_code VARCHAR(10) NOT NULL,
+    order_count INT NOT NULL DEFAULT 0,
+    units INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, currency_code)
+);
+
+CREATE TABLE sales_daily_genre (
+    sales_date DATE NOT NULL,
+    genre VARCHAR(100) NOT NULL,
+    units INT NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, genre)
+);
+
+CREATE TABLE sales_daily_book (
+    sales_date DATE NOT NULL,
+    book_id INT NOT NULL,
+    units INT NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, book_id)
+);
+
+-- Orders not yet in the rollups: checkout adds its order in its own transaction and
+-- SalesAnalytics deletes it in the transaction that adds the order's items
+CREATE TABLE sales_rollup_queue (
+    order_id INT PRIMARY KEY
+);
+
+-- Single row locked by every rollup run, so runs from several processes take turns
+CREATE TABLE sales_rollup_state (
+    id INT PRIMARY KEY,
+    updated_at TIMESTAMP NULL
+);
+INSERT INTO sales_rollup_state (id) VALUES (1);
+
+-- Orders placed before the rollups existed are rolled up on the tailer's first run
+INSERT INTO sales_rollup_queue (order_id) SELECT order_id FROM orders;
+
+-- Log rows are written by the procedures below and by ChangeCapture, one insert per
+-- transaction instead of a trigger row per change
+DROP TRIGGER IF EXISTS price_change;
+DROP TRIGGER IF EXISTS after_order_item_insert;
+DROP TRIGGER IF EXISTS log_deleted_cart_items;
+DROP TRIGGER IF EXISTS log_book_deletion;
+
+-- Admin check shared by the procedures below. A successful check is remembered in the
+-- session (@authorized_admin_id/@authorized_admin_until) for a minute, so repeated admin
+-- calls on one connection skip the role query. updateUserRole and removeUsers clear it for
+-- the affected user, and the application's connection pool clears it on every pooled
+-- connection after a role change.
+DELIMITER $$
+DROP FUNCTION IF EXISTS isSessionAdmin $$
+CREATE FUNCTION isSessionAdmin(adminUserId INT) RETURNS BOOLEAN
+READS SQL DATA
+BEGIN
+    DECLARE adminRole VARCHAR(20);
+    IF @authorized_admin_id = adminUserId AND @authorized_admin_until > NOW() THEN
+        RETURN TRUE;
+    END IF;
+    SELECT role INTO adminRole FROM users WHERE user_id = adminUserId;
+    IF adminRole = 'Admin' THEN
+        SET @authorized_admin_id = adminUserId;
+        SET @authorized_admin_until = NOW() + INTERVAL 60 SECOND;
+        RETURN TRUE;
+    END IF;
+    RETURN FALSE;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS getCart $$
+CREATE PROCEDURE getCart(IN userId INT)
+BEGIN
+    SELECT c.cart_item_id, b.title, c.quantity, b.price, (b.price * c.quantity) AS total
+    FROM cart_items c
+    JOIN books b ON c.book_id = b.book_id
+    WHERE c.user_id = userId;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS addToCart $$
+CREATE PROCEDURE addToCart(IN userId INT, IN bookId INT, IN qty INT)
+BEGIN
+    INSERT INTO cart_items (user_id, book_id, quantity)
+    VALUES (userId, bookId, qty)
+    ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity);
+END $$
+DELIMITER ;
+
+-- Checkout in one call: prices the cart from the current catalog, decrements stock,
+-- writes the order and its items and clears the cart in a single transaction.
+-- Stock rows are locked one at a time in book_id order, so two checkouts sharing
+-- books always acquire their locks in the same order and cannot deadlock each other.
+-- reserved is a JSON object {"book_id": quantity} of lines already reserved by the
+-- application's hot-item counters (see StockReservations); their rows are not touched.
+-- Returns one row per ordered book: (order_id, book_id, quantity).
+DELIMITER $$
+DROP PROCEDURE IF EXISTS placeReservedOrder $$
+CREATE PROCEDURE placeReservedOrder(IN userId INT, IN currencyCode VARCHAR(10), IN reserved JSON)
+BEGIN
+    DECLARE currencyId INT;
+    DECLARE rate DECIMAL(10,4);
+    DECLARE lineCount INT DEFAULT 0;
+    DECLARE orderTotal DECIMAL(10,2);
+    DECLARE newOrderId INT;
+    DECLARE lineBookId INT;
+    DECLARE lineQty INT;
+    DECLARE reservedQty INT;
+    DECLARE lockedRows INT;
+    DECLARE done BOOLEAN DEFAULT FALSE;
+    DECLARE cartLines CURSOR FOR
+        SELECT book_id, SUM(quantity)
+        FROM cart_items WHERE user_id = userId
+        GROUP BY book_id
+        ORDER BY book_id;
+    DECLARE CONTINUE HANDLER FOR NOT FOUND SET done = TRUE;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    SELECT currency_id, exchange_rate_to_php INTO currencyId, rate
+    FROM currencies WHERE currency_code = currencyCode;
+    IF currencyId IS NULL THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unknown currency.';
+    END IF;
+    SET done = FALSE;
+
+    START TRANSACTION;
+
+    -- Lock the cart first. The next-key locks make an add from another session of the same
+    -- user wait for this checkout, instead of being ordered without a stock decrement.
+    SELECT COUNT(*) INTO lockedRows FROM cart_items WHERE user_id = userId FOR UPDATE;
+
+    OPEN cartLines;
+    stock_loop: LOOP
+        FETCH cartLines INTO lineBookId, lineQty;
+        IF done THEN
+            LEAVE stock_loop;
+        END IF;
+        SET lineCount = lineCount + 1;
+        SET reservedQty = JSON_EXTRACT(reserved, CONCAT('$."', lineBookId, '"'));
+        IF reservedQty IS NULL THEN
+            UPDATE books SET stock_quantity = stock_quantity - lineQty
+            WHERE book_id = lineBookId AND stock_quantity >= lineQty;
+            IF ROW_COUNT() = 0 THEN
+                SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Insufficient stock.';
+            END IF;
+        ELSEIF reservedQty <> lineQty THEN
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Reservation does not match cart.';
+        END IF;
+    END LOOP;
+    CLOSE cartLines;
+
+    IF lineCount = 0 THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Cart is empty.';
+    END IF;
+
+    -- One insert logs every decremented line; reserved lines are logged when
+    -- StockReservations writes their decrements back
+    INSERT INTO stock_log (book_id, old_stock, new_stock)
+    SELECT b.book_id, b.stock_quantity + l.qty, b.stock_quantity
+    FROM (SELECT book_id, SUM(quantity) AS qty FROM cart_items WHERE user_id = userId GROUP BY book_id) l
+    JOIN books b ON b.book_id = l.book_id
+    WHERE JSON_EXTRACT(reserved, CONCAT('$."', l.book_id, '"')) IS NULL;
+
+    SELECT ROUND(SUM(c.quantity * b.price) / rate, 2) INTO orderTotal
+    FROM cart_items c JOIN books b ON b.book_id = c.book_id
+    WHERE c.user_id = userId;
+
+    INSERT INTO orders (user_id, total_amount, currency_id, status)
+    VALUES (userId, orderTotal, currencyId, 'Pending');
+    SET newOrderId = LAST_INSERT_ID();
+
+    INSERT INTO order_items (order_id, book_id, quantity, price_each)
+    SELECT newOrderId, c.book_id, SUM(c.quantity), ROUND(b.price / rate, 2)
+    FROM cart_items c JOIN books b ON b.book_id = c.book_id
+    WHERE c.user_id = userId
+    GROUP BY c.book_id, b.price;
+
+    INSERT INTO cart_deletion_log (user_id, book_id, quantity)
+    SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = userId;
+    DELETE FROM cart_items WHERE user_id = userId;
+
+    INSERT INTO sales_rollup_queue (order_id) VALUES (newOrderId);
+
+    COMMIT;
+
+    SELECT order_id, book_id, quantity FROM order_items WHERE order_id = newOrderId;
+END $$
+DELIMITER ;
+
+-- Checkout without application-side reservations.
+DELIMITER $$
+DROP PROCEDURE IF EXISTS placeOrder $$
+CREATE PROCEDURE placeOrder(IN userId INT, IN currencyCode VARCHAR(10))
+BEGIN
+    CALL placeReservedOrder(userId, currencyCode, NULL);
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS updateBookPrice $$
+CREATE PROCEDURE updateBookPrice(IN bookId INT, IN newPrice DECIMAL(10,2))
+BEGIN
+    INSERT INTO price_audit (book_id, old_price, new_price, changed_by_user)
+    SELECT book_id, price, newPrice, NULL FROM books WHERE book_id = bookId AND price != newPrice;
+    UPDATE books
+    SET price = newPrice
+    WHERE book_id = bookId;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS updateStockQuantity $$
+CREATE PROCEDURE updateStockQuantity(IN bookId INT, IN newStock INT)
+BEGIN
+    INSERT INTO stock_log (book_id, old_stock, new_stock)
+    SELECT book_id, stock_quantity, newStock FROM books WHERE book_id = bookId AND stock_quantity != newStock;
+    UPDATE books
+    SET stock_quantity = newStock
+    WHERE book_id = bookId;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS removeFromCart $$
+CREATE PROCEDURE removeFromCart(IN userId INT, IN bookId INT)
+BEGIN
+    INSERT INTO cart_deletion_log (user_id, book_id, quantity)
+    SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = userId AND book_id = bookId;
+    DELETE FROM cart_items
+    WHERE user_id = userId AND book_id = bookId;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS clearCart $$
+CREATE PROCEDURE clearCart(IN userId INT)
+BEGIN
+    INSERT INTO cart_deletion_log (user_id, book_id, quantity)
+    SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = userId;
+    DELETE FROM cart_items
+    WHERE user_id = userId;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS removeUsers $$
+CREATE PROCEDURE removeUsers(IN userId INT)
+BEGIN
+    DELETE FROM users
+    WHERE user_id = userId;
+    IF @authorized_admin_id = userId THEN
+        SET @authorized_admin_id = NULL;
+    END IF;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS getAllOrders $$
+CREATE PROCEDURE getAllOrders(IN admin_user_id INT)
+BEGIN
+    IF isSessionAdmin(admin_user_id) THEN
+        SELECT o.*, c.currency_code,
+               GROUP_CONCAT(DISTINCT CONCAT(b.title, ' (', oi.quantity, ')') ORDER BY b.title SEPARATOR ', ') AS book_list
+        FROM orders o
+        JOIN currencies c ON o.currency_id = c.currency_id
+        LEFT JOIN order_items oi ON o.order_id = oi.order_id
+        LEFT JOIN books b ON oi.book_id = b.book_id
+        GROUP BY o.order_id, o.user_id, o.order_date, o.total_amount, o.currency_id, o.status, c.currency_code;
+    ELSE
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can view all orders.';
+    END IF;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS getAllTransactionLogs $$
+CREATE PROCEDURE getAllTransactionLogs(IN admin_user_id INT)
+BEGIN
+    IF isSessionAdmin(admin_user_id) THEN
+        SELECT * FROM transaction_logs;
+    ELSE
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can view transaction logs.';
+    END IF;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS updateUserRole $$
+CREATE PROCEDURE updateUserRole(IN admin_user_id INT, IN userId INT, IN newRole VARCHAR(20))
+BEGIN
+    IF isSessionAdmin(admin_user_id) THEN
+        UPDATE users SET role = newRole WHERE user_id = userId;
+        IF @authorized_admin_id = userId THEN
+            SET @authorized_admin_id = NULL;
+        END IF;
+    ELSE
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can update user roles.';
+    END IF;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS updateBookDetails $$
+CREATE PROCEDURE updateBookDetails(
+    IN admin_user_id INT,
+    IN bookId INT,
+    IN title VARCHAR(200),
+    IN genre VARCHAR(100),
+    IN price DECIMAL(10,2),
+    IN stock INT
+)
+BEGIN
+    IF isSessionAdmin(admin_user_id) THEN
+        UPDATE books SET title=title, genre=genre, price=price, stock_quantity=stock WHERE book_id=bookId;
+    ELSE
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can update book details.';
+    END IF;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+DROP PROCEDURE IF EXISTS updateExchangeRate $$
+CREATE PROCEDURE updateExchangeRate(IN admin_user_id INT, IN currencyCode VARCHAR(10), IN newRate DECIMAL(10,4))
+BEGIN
+    IF isSessionAdmin(admin_user_id) THEN
+        UPDATE currencies SET exchange_rate_to_php = newRate WHERE currency_code = currencyCode;
+    ELSE
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can update exchange rates.';
+    END IF;
+END $$
+DELIMITER ;
@@ -26,6 +26,9 @@ CREATE TABLE books (
     stock_quantity INT DEFAULT 0
 );
 
+-- Keyset pagination for the catalog grid: ORDER BY title, book_id
+CREATE INDEX idx_books_title_id ON books (title, book_id);
+
 
 -- CURRENCIES
 -- to support PHP, USD, KRW
@@ -40,12 +43,16 @@ CREATE TABLE currencies (
 
 -- CART (temporary cart per customer)
 -- before checkout / placing order
+-- One line per (user, book); the clustered key keeps each cart's lines together
+-- (see database/migrations/001_cart_items_user_book_key.sql)
 
 CREATE TABLE cart_items (
-    cart_item_id INT AUTO_INCREMENT PRIMARY KEY,
-    user_id INT,
-    book_id INT,
+    cart_item_id INT AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    book_id INT NOT NULL,
     quantity INT,
+    PRIMARY KEY (user_id, book_id),
+    UNIQUE KEY uq_cart_item_id (cart_item_id),
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
     FOREIGN KEY (book_id) REFERENCES books(book_id)
 );
@@ -64,6 +71,12 @@ CREATE TABLE orders (
     FOREIGN KEY (currency_id) REFERENCES currencies(currency_id)
 );
 
+-- Admin Orders tab: filter by status and/or date range, sort by date
+CREATE INDEX idx_orders_status_date ON orders (status, order_date);
+CREATE INDEX idx_orders_date ON orders (order_date);
+-- Customer order history, newest first
+CREATE INDEX idx_orders_user_date ON orders (user_id, order_date);
+
 
 -- ORDER ITEMS: each book in an order
 
@@ -76,6 +89,8 @@ CREATE TABLE order_items (
     FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE,
     FOREIGN KEY (book_id) REFERENCES books(book_id)
 );
+-- Covers the item columns read per order
+CREATE INDEX idx_order_items_order_cover ON order_items (order_id, book_id, quantity, price_each);
 
 
 -- TRANSACTION LOGS: for payments & audit
@@ -89,6 +104,61 @@ CREATE TABLE transaction_logs (
     FOREIGN KEY (order_id) REFERENCES orders(order_id)
 );
 
+-- SALES ROLLUPS: maintained incrementally from queued orders by SalesAnalytics.
+-- Revenue is in the order's currency; revenue_php converts it at the rate current when rolled up.
+CREATE TABLE sales_daily (
+    sales_date DATE NOT NULL,
+    currency_code VARCHAR(10) NOT NULL,
+    order_count INT NOT NULL DEFAULT 0,
+    units INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, currency_code)
+);
+
+CREATE TABLE sales_daily_genre (
+    sales_date DATE NOT NULL,
+    genre VARCHAR(100) NOT NULL,
+    units INT NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, genre)
+);
+
+CREATE TABLE sales_daily_book (
+    sales_date DATE NOT NULL,
+    book_id INT NOT NULL,
+    units INT NOT NULL DEFAULT 0,
+    revenue_php DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, book_id)
+);
+
+-- Orders not yet in the rollups: checkout adds its order in its own transaction and
+-- SalesAnalytics deletes it in the transaction that adds the order's items
+CREATE TABLE sales_rollup_queue (
+    order_id INT PRIMARY KEY
+);
+
+-- Single row locked by every rollup run, so runs from several processes take turns
+CREATE TABLE sales_rollup_state (
+    id INT PRIMARY KEY,
+    updated_at TIMESTAMP NULL
+);
+INSERT INTO sales_rollup_state (id) VALUES (1);
+
+-- Versions from database/migrations already contained in this script; SchemaMigrator
+-- applies only the later ones
+CREATE TABLE schema_migrations (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    checksum VARCHAR(16),
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    execution_millis BIGINT NOT NULL DEFAULT 0
+);
+INSERT INTO schema_migrations (version, description) VALUES
+(1, 'cart_items_user_book_key'),
+(2, 'order_lookup_indexes'),
+(3, 'baseline');
+
 
 -- Users
 INSERT INTO users (name, email, password, role) VALUES
@@ -143,30 +213,21 @@ DELIMITER ;
 
  
 DELIMITER $$ 
-CREATE PROCEDURE getCart(IN user_id INT)
+CREATE PROCEDURE getCart(IN userId INT)
 BEGIN
     SELECT c.cart_item_id, b.title, c.quantity, b.price, (b.price * c.quantity) AS total
     FROM cart_items c
     JOIN books b ON c.book_id = b.book_id
-    WHERE c.user_id = user_id;
+    WHERE c.user_id = userId;
 END $$
 DELIMITER ;
 
 DELIMITER $$ 
-CREATE PROCEDURE addToCart(IN user_id INT, IN book_id INT, IN qty INT)
+CREATE PROCEDURE addToCart(IN userId INT, IN bookId INT, IN qty INT)
 BEGIN
-    DECLARE existingQty INT;
-    SELECT quantity INTO existingQty
-    FROM cart_items
-    WHERE user_id = user_id AND book_id = book_id;
-    IF existingQty IS NOT NULL THEN
-        UPDATE cart_items
-        SET quantity = quantity + qty
-        WHERE user_id = user_id AND book_id = book_id;
-    ELSE
-        INSERT INTO cart_items (user_id, book_id, quantity)
-        VALUES (user_id, book_id, qty);
-    END IF;
+    INSERT INTO cart_items (user_id, book_id, quantity)
+    VALUES (userId, bookId, qty)
+    ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity);
 END $$
 DELIMITER ;
 
@@ -190,9 +251,122 @@ BEGIN
 END $$
 DELIMITER ;
 
+-- Checkout in one call: prices the cart from the current catalog, decrements stock,
+-- writes the order and its items and clears the cart in a single transaction.
+-- Stock rows are locked one at a time in book_id order, so two checkouts sharing
+-- books always acquire their locks in the same order and cannot deadlock each other.
+-- reserved is a JSON object {"book_id": quantity} of lines already reserved by the
+-- application's hot-item counters (see StockReservations); their rows are not touched.
+-- Returns one row per ordered book: (order_id, book_id, quantity).
+DELIMITER $$
+CREATE PROCEDURE placeReservedOrder(IN userId INT, IN currencyCode VARCHAR(10), IN reserved JSON)
+BEGIN
+    DECLARE currencyId INT;
+    DECLARE rate DECIMAL(10,4);
+    DECLARE lineCount INT DEFAULT 0;
+    DECLARE orderTotal DECIMAL(10,2);
+    DECLARE newOrderId INT;
+    DECLARE lineBookId INT;
+    DECLARE lineQty INT;
+    DECLARE reservedQty INT;
+    DECLARE lockedRows INT;
+    DECLARE done BOOLEAN DEFAULT FALSE;
+    DECLARE cartLines CURSOR FOR
+        SELECT book_id, SUM(quantity)
+        FROM cart_items WHERE user_id = userId
+        GROUP BY book_id
+        ORDER BY book_id;
+    DECLARE CONTINUE HANDLER FOR NOT FOUND SET done = TRUE;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    SELECT currency_id, exchange_rate_to_php INTO currencyId, rate
+    FROM currencies WHERE currency_code = currencyCode;
+    IF currencyId IS NULL THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unknown currency.';
+    END IF;
+    SET done = FALSE;
+
+    START TRANSACTION;
+
+    -- Lock the cart first. The next-key locks make an add from another session of the same
+    -- user wait for this checkout, instead of being ordered without a stock decrement.
+    SELECT COUNT(*) INTO lockedRows FROM cart_items WHERE user_id = userId FOR UPDATE;
+
+    OPEN cartLines;
+    stock_loop: LOOP
+        FETCH cartLines INTO lineBookId, lineQty;
+        IF done THEN
+            LEAVE stock_loop;
+        END IF;
+        SET lineCount = lineCount + 1;
+        SET reservedQty = JSON_EXTRACT(reserved, CONCAT('$."', lineBookId, '"'));
+        IF reservedQty IS NULL THEN
+            UPDATE books SET stock_quantity = stock_quantity - lineQty
+            WHERE book_id = lineBookId AND stock_quantity >= lineQty;
+            IF ROW_COUNT() = 0 THEN
+                SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Insufficient stock.';
+            END IF;
+        ELSEIF reservedQty <> lineQty THEN
+            SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Reservation does not match cart.';
+        END IF;
+    END LOOP;
+    CLOSE cartLines;
+
+    IF lineCount = 0 THEN
+        SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Cart is empty.';
+    END IF;
+
+    -- One insert logs every decremented line; reserved lines are logged when
+    -- StockReservations writes their decrements back
+    INSERT INTO stock_log (book_id, old_stock, new_stock)
+    SELECT b.book_id, b.stock_quantity + l.qty, b.stock_quantity
+    FROM (SELECT book_id, SUM(quantity) AS qty FROM cart_items WHERE user_id = userId GROUP BY book_id) l
+    JOIN books b ON b.book_id = l.book_id
+    WHERE JSON_EXTRACT(reserved, CONCAT('$."', l.book_id, '"')) IS NULL;
+
+    SELECT ROUND(SUM(c.quantity * b.price) / rate, 2) INTO orderTotal
+    FROM cart_items c JOIN books b ON b.book_id = c.book_id
+    WHERE c.user_id = userId;
+
+    INSERT INTO orders (user_id, total_amount, currency_id, status)
+    VALUES (userId, orderTotal, currencyId, 'Pending');
+    SET newOrderId = LAST_INSERT_ID();
+
+    INSERT INTO order_items (order_id, book_id, quantity, price_each)
+    SELECT newOrderId, c.book_id, SUM(c.quantity), ROUND(b.price / rate, 2)
+    FROM cart_items c JOIN books b ON b.book_id = c.book_id
+    WHERE c.user_id = userId
+    GROUP BY c.book_id, b.price;
+
+    INSERT INTO cart_deletion_log (user_id, book_id, quantity)
+    SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = userId;
+    DELETE FROM cart_items WHERE user_id = userId;
+
+    INSERT INTO sales_rollup_queue (order_id) VALUES (newOrderId);
+
+    COMMIT;
+
+    SELECT order_id, book_id, quantity FROM order_items WHERE order_id = newOrderId;
+END $$
+DELIMITER ;
+
+-- Checkout without application-side reservations.
+DELIMITER $$
+CREATE PROCEDURE placeOrder(IN userId INT, IN currencyCode VARCHAR(10))
+BEGIN
+    CALL placeReservedOrder(userId, currencyCode, NULL);
+END $$
+DELIMITER ;
+
 DELIMITER $$
 CREATE PROCEDURE updateBookPrice(IN bookId INT, IN newPrice DECIMAL(10,2))
 BEGIN
+    INSERT INTO price_audit (book_id, old_price, new_price, changed_by_user)
+    SELECT book_id, price, newPrice, NULL FROM books WHERE book_id = bookId AND price != newPrice;
     UPDATE books
     SET price = newPrice
     WHERE book_id = bookId;
@@ -202,6 +376,8 @@ DELIMITER ;
 DELIMITER $$
 CREATE PROCEDURE updateStockQuantity(IN bookId INT, IN newStock INT)
 BEGIN
+    INSERT INTO stock_log (book_id, old_stock, new_stock)
+    SELECT book_id, stock_quantity, newStock FROM books WHERE book_id = bookId AND stock_quantity != newStock;
     UPDATE books
     SET stock_quantity = newStock
     WHERE book_id = bookId;
@@ -212,6 +388,8 @@ DELIMITER ;
 DELIMITER $$
 CREATE PROCEDURE removeFromCart(IN userId INT, IN bookId INT)
 BEGIN
+    INSERT INTO cart_deletion_log (user_id, book_id, quantity)
+    SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = userId AND book_id = bookId;
     DELETE FROM cart_items
     WHERE user_id = userId AND book_id = bookId;
 END $$
@@ -220,6 +398,8 @@ DELIMITER ;
 DELIMITER $$
 CREATE PROCEDURE clearCart(IN userId INT)
 BEGIN
+    INSERT INTO cart_deletion_log (user_id, book_id, quantity)
+    SELECT user_id, book_id, quantity FROM cart_items WHERE user_id = userId;
     DELETE FROM cart_items
     WHERE user_id = userId;
 END $$
@@ -238,6 +418,9 @@ CREATE PROCEDURE removeUsers(IN userId INT)
 BEGIN
     DELETE FROM users
     WHERE user_id = userId;
+    IF @authorized_admin_id = userId THEN
+        SET @authorized_admin_id = NULL;
+    END IF;
 END $$
 DELIMITER ;
 
@@ -271,17 +454,8 @@ CREATE TABLE price_audit(
   changed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
-DELIMITER $$
-CREATE TRIGGER price_change
-AFTER UPDATE ON books
-FOR EACH ROW
-BEGIN
-    IF OLD.price != NEW.price THEN
-        INSERT INTO price_audit (book_id, old_price, new_price, changed_by_user)
-        VALUES (OLD.book_id, OLD.price, NEW.price, NULL);
-    END IF;
-END $$
-DELIMITER ;
+-- Written by the application (ChangeCapture) and by the procedures that change prices,
+-- in one multi-row insert per transaction instead of a trigger row per update.
 
 
 -- If the stock changes --
@@ -294,17 +468,8 @@ CREATE TABLE IF NOT EXISTS stock_log (
 );
 
 
-DELIMITER $$
-CREATE TRIGGER after_order_item_insert
-AFTER INSERT ON order_items
-FOR EACH ROW
-BEGIN
-  DECLARE current_stock INT;
-  SELECT stock_quantity INTO current_stock FROM books WHERE book_id = NEW.book_id;
-  INSERT INTO stock_log (book_id, old_stock, new_stock)
-  VALUES (NEW.book_id, current_stock + NEW.quantity, current_stock);
-END$$
-DELIMITER ;
+-- Written by checkout (placeReservedOrder), StockReservations and ChangeCapture with one
+-- insert per transaction, replacing the per-order-item stock lookup trigger.
 
 CREATE TABLE user_registration_log (
     log_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -344,15 +509,7 @@ CREATE TABLE cart_deletion_log (
     deleted_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
-DELIMITER $$
-CREATE TRIGGER log_deleted_cart_items
-AFTER DELETE ON cart_items
-FOR EACH ROW
-BEGIN
-    INSERT INTO cart_deletion_log (user_id, book_id, quantity)
-    VALUES (OLD.user_id, OLD.book_id, OLD.quantity);
-END $$
-DELIMITER ;
+-- Written by the procedures that delete cart lines, with one insert before the delete.
 
 CREATE TABLE role_change_log (
     log_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -404,15 +561,7 @@ CREATE TABLE book_deletion_log (
     deleted_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
-DELIMITER $$
-CREATE TRIGGER log_book_deletion
-BEFORE DELETE ON books
-FOR EACH ROW
-BEGIN
-    INSERT INTO book_deletion_log (book_id, title)
-    VALUES (OLD.book_id, OLD.title);
-END $$
-DELIMITER ;
+-- Written by ChangeCapture in the transaction that deletes the book.
 
 DELIMITER $$
 CREATE TRIGGER update_order_status_after_payment
@@ -429,12 +578,33 @@ DELIMITER ;
 
 -- ADMIN-SECURED STORED PROCEDURES AND LOGGING --
 
+-- Admin check shared by the procedures below. A successful check is remembered in the
+-- session (@authorized_admin_id/@authorized_admin_until) for a minute, so repeated admin
+-- calls on one connection skip the role query. updateUserRole and removeUsers clear it for
+-- the affected user, and the application's connection pool clears it on every pooled
+-- connection after a role change.
 DELIMITER $$
-CREATE PROCEDURE getAllOrders(IN admin_user_id INT)
+CREATE FUNCTION isSessionAdmin(adminUserId INT) RETURNS BOOLEAN
+READS SQL DATA
 BEGIN
     DECLARE adminRole VARCHAR(20);
-    SELECT role INTO adminRole FROM users WHERE user_id = admin_user_id;
+    IF @authorized_admin_id = adminUserId AND @authorized_admin_until > NOW() THEN
+        RETURN TRUE;
+    END IF;
+    SELECT role INTO adminRole FROM users WHERE user_id = adminUserId;
     IF adminRole = 'Admin' THEN
+        SET @authorized_admin_id = adminUserId;
+        SET @authorized_admin_until = NOW() + INTERVAL 60 SECOND;
+        RETURN TRUE;
+    END IF;
+    RETURN FALSE;
+END $$
+DELIMITER ;
+
+DELIMITER $$
+CREATE PROCEDURE getAllOrders(IN admin_user_id INT)
+BEGIN
+    IF isSessionAdmin(admin_user_id) THEN
         SELECT o.*, c.currency_code,
                GROUP_CONCAT(DISTINCT CONCAT(b.title, ' (', oi.quantity, ')') ORDER BY b.title SEPARATOR ', ') AS book_list
         FROM orders o
@@ -451,9 +621,7 @@ DELIMITER ;
 DELIMITER $$
 CREATE PROCEDURE getAllTransactionLogs(IN admin_user_id INT)
 BEGIN
-    DECLARE adminRole VARCHAR(20);
-    SELECT role INTO adminRole FROM users WHERE user_id = admin_user_id;
-    IF adminRole = 'Admin' THEN
+    IF isSessionAdmin(admin_user_id) THEN
         SELECT * FROM transaction_logs;
     ELSE
         SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can view transaction logs.';
@@ -464,10 +632,11 @@ DELIMITER ;
 DELIMITER $$
 CREATE PROCEDURE updateUserRole(IN admin_user_id INT, IN userId INT, IN newRole VARCHAR(20))
 BEGIN
-    DECLARE adminRole VARCHAR(20);
-    SELECT role INTO adminRole FROM users WHERE user_id = admin_user_id;
-    IF adminRole = 'Admin' THEN
+    IF isSessionAdmin(admin_user_id) THEN
         UPDATE users SET role = newRole WHERE user_id = userId;
+        IF @authorized_admin_id = userId THEN
+            SET @authorized_admin_id = NULL;
+        END IF;
     ELSE
         SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can update user roles.';
     END IF;
@@ -484,9 +653,7 @@ CREATE PROCEDURE updateBookDetails(
     IN stock INT
 )
 BEGIN
-    DECLARE adminRole VARCHAR(20);
-    SELECT role INTO adminRole FROM users WHERE user_id = admin_user_id;
-    IF adminRole = 'Admin' THEN
+    IF isSessionAdmin(admin_user_id) THEN
         UPDATE books SET title=title, genre=genre, price=price, stock_quantity=stock WHERE book_id=bookId;
     ELSE
         SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can update book details.';
@@ -497,9 +664,7 @@ DELIMITER ;
 DELIMITER $$
 CREATE PROCEDURE updateExchangeRate(IN admin_user_id INT, IN currencyCode VARCHAR(10), IN newRate DECIMAL(10,4))
 BEGIN
-    DECLARE adminRole VARCHAR(20);
-    SELECT role INTO adminRole FROM users WHERE user_id = admin_user_id;
-    IF adminRole = 'Admin' THEN
+    IF isSessionAdmin(admin_user_id) THEN
         UPDATE currencies SET exchange_rate_to_php = newRate WHERE currency_code = currencyCode;
     ELSE
         SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Unauthorized: Only admins can update exchange rates.';
@@ -4,9 +4,13 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Arrays;
-import java.util.stream.Collectors;
 
 import main.StyleLoader1;
 
@@ -14,18 +18,26 @@ import main.StyleLoader1;
 
 public class AdminPanel extends JFrame {
     private final AdminService adminService = new AdminService();
-    private final int adminUserId = LoginScreen.loggedInUserId;
+    private final int adminUserId;
+    private RoleValidator.AuthToken authToken;
+
+    // Rows handed to a table per EDT update while streaming
+    private static final int ROW_BATCH_SIZE = 200;
+    // Bumped on every reload so batches from a superseded load are dropped
+    private volatile int userLoadGeneration = 0;
 
     // Book Management
     private DefaultTableModel bookTableModel;
     // Orders
-    private DefaultTableModel orderTableModel; 
+    private OrderTableModel orderTableModel;
     // Transactions 
     // private DefaultTableModel transactionTableModel;
     // Users
     private DefaultTableModel userTableModel;
     // Currencies
     private DefaultTableModel currencyTableModel;
+    // Dashboard
+    private final SalesAnalytics salesAnalytics = SalesAnalytics.getInstance();
     
     private JPanel contentPanel;
     private JPanel cardPanel;
@@ -34,12 +46,14 @@ public class AdminPanel extends JFrame {
     
     
 
-    public AdminPanel() {
+    public AdminPanel(SessionContext session) {
+        this.adminUserId = session.getUserId();
         if (!isAdmin()) {
             JOptionPane.showMessageDialog(this, "Access denied: Admins only.", "Error", JOptionPane.ERROR_MESSAGE);
             dispose();
             return;
         }
+        salesAnalytics.startTailer();
         setTitle("📚 Admin Dashboard - BookMart");
         setSize(900, 600);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
@@ -49,7 +63,7 @@ public class AdminPanel extends JFrame {
         JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 20, 10));
         headerPanel.setBackground(Color.decode("#003059"));
 
-        String[] sections = { "Books", "Orders", "Users", "Currencies" };
+        String[] sections = { "Books", "Orders", "Users", "Currencies", "Dashboard" };
         JButton[] navButtons = new JButton[sections.length];
 
         // Shared font style
@@ -100,6 +114,9 @@ public class AdminPanel extends JFrame {
             case "Currencies":
                 contentPanel.add(createCurrencyPanel(), BorderLayout.CENTER);
                 break;
+            case "Dashboard":
+                contentPanel.add(createDashboardPanel(), BorderLayout.CENTER);
+                break;
         }
 
         contentPanel.revalidate();
@@ -108,9 +125,9 @@ public class AdminPanel extends JFrame {
 
 
     private boolean isAdmin() {
-        // In a real app, check role from DB or session
-        // Here, assume user is admin if they reached this panel
-        return adminUserId > 0;
+        // Checked once per session; the role was cached at login
+        authToken = authToken == null ? RoleValidator.authorize(adminUserId) : authToken.refresh();
+        return authToken.isAdmin();
     }
     
 
@@ -128,75 +145,113 @@ public class AdminPanel extends JFrame {
 
         JPanel btnPanel = new JPanel();
         JButton addBtn = new JButton("Add Book");
+        JButton importBtn = new JButton("Import CSV...");
+        JLabel importStatus = new JLabel();
         btnPanel.add(StyleLoader1.styleButton(addBtn));
+        btnPanel.add(StyleLoader1.styleButton(importBtn));
+        btnPanel.add(importStatus);
         panel.add(btnPanel, BorderLayout.SOUTH);
 
         addBtn.addActionListener(e -> {
             addOrEditBookDialog(false, -1);
             loadBooksAsCards(gridPanel);
         });
+        importBtn.addActionListener(e -> importBooks(importBtn, importStatus, gridPanel));
 
         loadBooksAsCards(gridPanel);
         return panel;
     }
-    private void loadBooksAsCards(JPanel gridPanel) {
-        gridPanel.removeAll();
-        List<AdminService.BookInfo> books = adminService.getAllBooks(adminUserId);
-        for (AdminService.BookInfo book : books) {
-            JPanel card = new JPanel(new BorderLayout(10, 5));
-            card.setBackground(StyleLoader1.CARD_COLOR);
-            card.setBorder(BorderFactory.createCompoundBorder(
-                    BorderFactory.createLineBorder(new Color(220, 220, 220)),
-                    BorderFactory.createEmptyBorder(10, 10, 10, 10)));
-
-            JLabel title = new JLabel(book.title);
-            title.setFont(StyleLoader1.TITLE_FONT);
-
-            JLabel genre = new JLabel("Genre: " + book.genre);
-            JLabel price = new JLabel("₱" + book.price);
-            JLabel stock = new JLabel("Stock: " + book.stockQuantity);
-
-            JPanel info = new JPanel(new GridLayout(0, 1));
-            info.setOpaque(false);
-            info.add(title);
-            info.add(genre);
-            info.add(price);
-            info.add(stock);
-
-            JPanel btnRow = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-            btnRow.setOpaque(false);
-            JButton editBtn = new JButton("Edit");
-            JButton delBtn = new JButton("Delete");
-            StyleLoader1.styleButton(editBtn);
-            StyleLoader1.styleButton(delBtn);
-            btnRow.add(editBtn);
-            btnRow.add(delBtn);
-
-            editBtn.addActionListener(e -> {
-                addOrEditBookDialog(true, book.bookId);
+    private void importBooks(JButton importBtn, JLabel importStatus, JPanel gridPanel) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV or TSV files", "csv", "tsv", "txt"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        java.nio.file.Path file = chooser.getSelectedFile().toPath();
+        java.nio.file.Path rejectFile = file.resolveSibling(file.getFileName() + ".rejects.csv");
+
+        importBtn.setEnabled(false);
+        importStatus.setText("Importing...");
+        SwingAsync.onEdt(AsyncDB.supply(() -> new BookImporter().importFile(adminUserId, file, rejectFile,
+                (rowsRead, imported, rejected) -> SwingUtilities.invokeLater(() ->
+                    importStatus.setText("Read " + rowsRead + ", imported " + imported + ", rejected " + rejected)))),
+            result -> {
+                importBtn.setEnabled(true);
+                importStatus.setText("");
+                String message = "Imported " + result.imported + " of " + result.rowsRead + " rows in "
+                    + result.elapsedMillis + " ms.";
+                if (result.rejectFile != null) {
+                    message += "\n" + result.rejected + " rows were rejected; see " + result.rejectFile;
+                }
+                JOptionPane.showMessageDialog(this, message);
+                loadBooksAsCards(gridPanel);
+            },
+            error -> {
+                importBtn.setEnabled(true);
+                importStatus.setText("");
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Import failed: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 loadBooksAsCards(gridPanel);
             });
+    }
 
-            delBtn.addActionListener(e -> {
-                int confirm = JOptionPane.showConfirmDialog(this, "Delete book \"" + book.title + "\"?", "Confirm", JOptionPane.YES_NO_OPTION);
-                if (confirm == JOptionPane.YES_OPTION) {
-                    boolean ok = adminService.deleteBook(adminUserId, book.bookId);
-                    if (ok) {
-                        JOptionPane.showMessageDialog(this, "Book deleted.");
-                        loadBooksAsCards(gridPanel);
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Failed to delete book.", "Error", JOptionPane.ERROR_MESSAGE);
+    private void loadBooksAsCards(JPanel gridPanel) {
+        SwingAsync.onEdt(AsyncDB.supply(() -> adminService.getAllBooks(adminUserId)), books -> {
+            gridPanel.removeAll();
+            for (AdminService.BookInfo book : books) {
+                JPanel card = new JPanel(new BorderLayout(10, 5));
+                card.setBackground(StyleLoader1.CARD_COLOR);
+                card.setBorder(BorderFactory.createCompoundBorder(
+                        BorderFactory.createLineBorder(new Color(220, 220, 220)),
+                        BorderFactory.createEmptyBorder(10, 10, 10, 10)));
+
+                JLabel title = new JLabel(book.title);
+                title.setFont(StyleLoader1.TITLE_FONT);
+
+                JLabel genre = new JLabel("Genre: " + book.genre);
+                JLabel price = new JLabel("₱" + book.price);
+                JLabel stock = new JLabel("Stock: " + book.stockQuantity);
+
+                JPanel info = new JPanel(new GridLayout(0, 1));
+                info.setOpaque(false);
+                info.add(title);
+                info.add(genre);
+                info.add(price);
+                info.add(stock);
+
+                JPanel btnRow = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+                btnRow.setOpaque(false);
+                JButton editBtn = new JButton("Edit");
+                JButton delBtn = new JButton("Delete");
+                StyleLoader1.styleButton(editBtn);
+                StyleLoader1.styleButton(delBtn);
+                btnRow.add(editBtn);
+                btnRow.add(delBtn);
+
+                editBtn.addActionListener(e -> {
+                    addOrEditBookDialog(true, book.bookId);
+                    loadBooksAsCards(gridPanel);
+                });
+
+                delBtn.addActionListener(e -> {
+                    int confirm = JOptionPane.showConfirmDialog(this, "Delete book \"" + book.title + "\"?", "Confirm", JOptionPane.YES_NO_OPTION);
+                    if (confirm == JOptionPane.YES_OPTION) {
+                        boolean ok = adminService.deleteBook(adminUserId, book.bookId);
+                        if (ok) {
+                            JOptionPane.showMessageDialog(this, "Book deleted.");
+                            loadBooksAsCards(gridPanel);
+                        } else {
+                            JOptionPane.showMessageDialog(this, "Failed to delete book.", "Error", JOptionPane.ERROR_MESSAGE);
+                        }
                     }
-                }
-            });
+                });
 
-            card.add(info, BorderLayout.CENTER);
-            card.add(btnRow, BorderLayout.SOUTH);
-            gridPanel.add(card);
-        }
+                card.add(info, BorderLayout.CENTER);
+                card.add(btnRow, BorderLayout.SOUTH);
+                gridPanel.add(card);
+            }
 
-        gridPanel.revalidate();
-        gridPanel.repaint();
+            gridPanel.revalidate();
+            gridPanel.repaint();
+        });
     }
 
 
@@ -274,9 +329,8 @@ public class AdminPanel extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(StyleLoader1.BG_COLOR);
 
-        orderTableModel = new DefaultTableModel(new String[]{
-            "Order ID", "User", "Date", "Amount", "Currency", "Status", "Books"
-        }, 0);
+        // Rows are paged in from the database as they scroll into view
+        orderTableModel = new OrderTableModel(adminService, adminUserId);
 
         JTable table = new JTable(orderTableModel) {
             @Override
@@ -326,12 +380,22 @@ public class AdminPanel extends JFrame {
         header.setOpaque(true);
         header.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.GRAY));
 
+        // Sorting happens in the database; click a header to sort or reverse
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                orderTableModel.sortBy(column);
+            }
+        });
+
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
 
         JPanel card = new JPanel(new BorderLayout());
         card.setBackground(StyleLoader1.CARD_COLOR);
         card.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        card.add(createOrderFilterBar(), BorderLayout.NORTH);
         card.add(scrollPane, BorderLayout.CENTER);
 
         panel.add(StyleLoader1.cardWrap(card), BorderLayout.CENTER);
@@ -361,21 +425,84 @@ public class AdminPanel extends JFrame {
         }
     }
 
-    private void loadOrders() {
-        orderTableModel.setRowCount(0);
-        List<AdminService.OrderInfo> orders = adminService.getAllOrders(adminUserId);
-
-        for (AdminService.OrderInfo o : orders) {
-            // Ensure newline per book, trimming extra whitespace
-            String booksFormatted = Arrays.stream(o.bookList.split(","))
-                                          .map(String::trim)
-                                          .collect(Collectors.joining("\n"));
-
-            orderTableModel.addRow(new Object[]{
-                o.orderId, o.userId, o.orderDate, o.totalAmount,
-                o.currencyCode, o.status, booksFormatted
+    private JPanel createOrderFilterBar() {
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 5));
+        bar.setBackground(StyleLoader1.CARD_COLOR);
+
+        JComboBox<String> statusBox = new JComboBox<>(new String[]{"All", "Pending", "Paid"});
+        statusBox.setEditable(true);
+        JTextField userField = new JTextField(6);
+        JTextField fromField = new JTextField(9);
+        JTextField toField = new JTextField(9);
+        JButton applyBtn = StyleLoader1.styleButton(new JButton("Filter"));
+        JButton exportBtn = StyleLoader1.styleButton(new JButton("Export..."));
+
+        bar.add(new JLabel("Status:"));
+        bar.add(statusBox);
+        bar.add(new JLabel("User ID:"));
+        bar.add(userField);
+        bar.add(new JLabel("From (yyyy-mm-dd):"));
+        bar.add(fromField);
+        bar.add(new JLabel("To:"));
+        bar.add(toField);
+        bar.add(applyBtn);
+        bar.add(exportBtn);
+
+        applyBtn.addActionListener(e -> {
+            try {
+                String status = String.valueOf(statusBox.getSelectedItem()).trim();
+                String user = userField.getText().trim();
+                String from = fromField.getText().trim();
+                String to = toField.getText().trim();
+                orderTableModel.setFilter(new AdminService.OrderFilter(
+                    status.isEmpty() || status.equals("All") ? null : status,
+                    user.isEmpty() ? null : Integer.valueOf(user),
+                    from.isEmpty() ? null : Timestamp.valueOf(LocalDate.parse(from).atStartOfDay()),
+                    // Inclusive end date
+                    to.isEmpty() ? null : Timestamp.valueOf(LocalDate.parse(to).plusDays(1).atStartOfDay())
+                ));
+            } catch (NumberFormatException | DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(this, "Please enter a numeric user ID and dates as yyyy-mm-dd.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        exportBtn.addActionListener(e -> exportOrders(exportBtn));
+        return bar;
+    }
+
+    // Exports the orders matching the current filter, with their items and transaction logs
+    private void exportOrders(JButton exportBtn) {
+        SalesExporter.Format[] formats = SalesExporter.Format.values();
+        String[] labels = {"Gzip CSV", "Columnar"};
+        int choice = JOptionPane.showOptionDialog(this, "Export the filtered orders, their items and transactions as:",
+                "Export Sales", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, labels, labels[0]);
+        if (choice < 0) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Export to folder");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        java.nio.file.Path directory = chooser.getSelectedFile().toPath();
+        AdminService.OrderFilter filter = orderTableModel.getFilter();
+
+        exportBtn.setEnabled(false);
+        SwingAsync.onEdt(AsyncDB.supply(() -> new SalesExporter().export(adminUserId, filter, formats[choice], directory,
+                (table, rows) -> SwingUtilities.invokeLater(() -> exportBtn.setText(table + ": " + rows)))),
+            result -> {
+                exportBtn.setEnabled(true);
+                exportBtn.setText("Export...");
+                StringBuilder message = new StringBuilder("Export finished in " + result.elapsedMillis + " ms.");
+                result.rowCounts.forEach((table, rows) -> message.append("\n").append(table).append(": ").append(rows).append(" rows"));
+                JOptionPane.showMessageDialog(this, message.toString());
+            },
+            error -> {
+                exportBtn.setEnabled(true);
+                exportBtn.setText("Export...");
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Export failed: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             });
-        }
+    }
+
+    private void loadOrders() {
+        orderTableModel.refresh();
     }
 
 /*
@@ -521,20 +648,145 @@ public class AdminPanel extends JFrame {
 
 
     private void loadUsers() {
+        int generation = ++userLoadGeneration;
         userTableModel.setRowCount(0);
-        List<AdminService.UserInfo> users = adminService.getAllUsers(adminUserId);
-        for (AdminService.UserInfo user : users) {
-            userTableModel.addRow(new Object[]{
-                user.userId,
-                user.name,
-                user.role
+        SwingAsync.Batcher<AdminService.UserInfo> batcher = new SwingAsync.Batcher<>(ROW_BATCH_SIZE, users -> {
+            if (generation != userLoadGeneration) return;
+            for (AdminService.UserInfo user : users) {
+                userTableModel.addRow(new Object[]{
+                    user.userId,
+                    user.name,
+                    user.role
+                });
+            }
+        });
+        SwingAsync.onEdt(AsyncDB.supply(() -> {
+            int count = adminService.streamAllUsers(adminUserId, AdminService.DEFAULT_FETCH_SIZE, user -> {
+                batcher.add(user);
+                return generation == userLoadGeneration;
             });
-        }
-        
+            batcher.flush();
+            return count;
+        }), count -> { });
     }
     
 
  
+    // DASHBOARD TAB: reads only the sales rollup tables
+    private JPanel createDashboardPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBackground(StyleLoader1.BG_COLOR);
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        String[] ranges = {"Last 7 days", "Last 30 days", "Last 90 days", "Last 365 days"};
+        int[] rangeDays = {7, 30, 90, 365};
+        JComboBox<String> rangeBox = new JComboBox<>(ranges);
+        rangeBox.setSelectedIndex(1);
+        JButton refreshBtn = StyleLoader1.styleButton(new JButton("Refresh"));
+        JButton rebuildBtn = StyleLoader1.styleButton(new JButton("Rebuild"));
+        JLabel totalsLabel = new JLabel();
+        totalsLabel.setFont(StyleLoader1.TITLE_FONT);
+        JLabel asOfLabel = new JLabel();
+
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 5));
+        bar.setBackground(StyleLoader1.BG_COLOR);
+        bar.add(new JLabel("Range:"));
+        bar.add(rangeBox);
+        bar.add(refreshBtn);
+        bar.add(rebuildBtn);
+        bar.add(asOfLabel);
+
+        JPanel top = new JPanel(new BorderLayout());
+        top.setOpaque(false);
+        top.add(bar, BorderLayout.NORTH);
+        top.add(totalsLabel, BorderLayout.SOUTH);
+        panel.add(top, BorderLayout.NORTH);
+
+        DefaultTableModel dailyModel = readOnlyModel("Date", "Orders", "Units", "Revenue (PHP)");
+        DefaultTableModel currencyModel = readOnlyModel("Currency", "Orders", "Units", "Revenue", "Revenue (PHP)");
+        DefaultTableModel genreModel = readOnlyModel("Genre", "Units", "Revenue (PHP)");
+        DefaultTableModel bookModel = readOnlyModel("Book", "Units", "Revenue (PHP)");
+
+        JPanel grid = new JPanel(new GridLayout(2, 2, 10, 10));
+        grid.setOpaque(false);
+        grid.add(titledTable("Per day", dailyModel));
+        grid.add(titledTable("Per currency", currencyModel));
+        grid.add(titledTable("Per genre", genreModel));
+        grid.add(titledTable("Top books", bookModel));
+        panel.add(grid, BorderLayout.CENTER);
+
+        Runnable load = () -> {
+            LocalDate to = LocalDate.now();
+            LocalDate from = to.minusDays(rangeDays[rangeBox.getSelectedIndex()] - 1);
+            SwingAsync.onEdt(AsyncDB.supply(() -> salesAnalytics.getDashboard(adminUserId, from, to, 20)), dashboard -> {
+                int orders = 0, units = 0;
+                double revenue = 0;
+                dailyModel.setRowCount(0);
+                // Newest day first
+                for (int i = dashboard.days.size() - 1; i >= 0; i--) {
+                    SalesAnalytics.DailySales day = dashboard.days.get(i);
+                    dailyModel.addRow(new Object[]{day.date, day.orders, day.units, String.format("%,.2f", day.revenuePhp)});
+                    orders += day.orders;
+                    units += day.units;
+                    revenue += day.revenuePhp;
+                }
+                currencyModel.setRowCount(0);
+                for (SalesAnalytics.CurrencySales c : dashboard.currencies) {
+                    currencyModel.addRow(new Object[]{c.currencyCode, c.orders, c.units,
+                        String.format("%,.2f", c.revenue), String.format("%,.2f", c.revenuePhp)});
+                }
+                genreModel.setRowCount(0);
+                for (SalesAnalytics.GenreSales g : dashboard.genres) {
+                    genreModel.addRow(new Object[]{g.genre, g.units, String.format("%,.2f", g.revenuePhp)});
+                }
+                bookModel.setRowCount(0);
+                for (SalesAnalytics.BookSales b : dashboard.topBooks) {
+                    bookModel.addRow(new Object[]{b.title, b.units, String.format("%,.2f", b.revenuePhp)});
+                }
+                totalsLabel.setText(String.format("Orders: %,d    Units: %,d    Revenue: ₱%,.2f", orders, units, revenue));
+                asOfLabel.setText(dashboard.rolledUpAt == null ? "Not rolled up yet" : "Rolled up as of " + dashboard.rolledUpAt);
+            });
+        };
+
+        rangeBox.addActionListener(e -> load.run());
+        refreshBtn.addActionListener(e -> load.run());
+        rebuildBtn.addActionListener(e -> {
+            int confirm = JOptionPane.showConfirmDialog(this, "Rebuild the sales rollups from all orders?", "Confirm", JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION) return;
+            rebuildBtn.setEnabled(false);
+            SwingAsync.onEdt(AsyncDB.supply(() -> salesAnalytics.rebuild(adminUserId)), items -> {
+                rebuildBtn.setEnabled(true);
+                load.run();
+            }, error -> {
+                rebuildBtn.setEnabled(true);
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Rebuild failed: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            });
+        });
+
+        load.run();
+        return panel;
+    }
+
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    private static JComponent titledTable(String title, DefaultTableModel model) {
+        JTable table = new JTable(model);
+        table.setFont(StyleLoader1.TEXT_FONT);
+        table.setRowHeight(24);
+        table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 13));
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
+        return scrollPane;
+    }
+
  // CURRENCIES TAB
     private JPanel createCurrencyPanel() {
         JPanel panel = new JPanel(new BorderLayout());
@@ -611,14 +863,15 @@ public class AdminPanel extends JFrame {
 
 
     private void loadCurrencies() {
-        currencyTableModel.setRowCount(0);
-        List<AdminService.CurrencyInfo> currencies = adminService.getAllCurrencies(adminUserId);
-        for (AdminService.CurrencyInfo currency : currencies) {
-            currencyTableModel.addRow(new Object[]{
-                currency.currencyCode,
-                currency.exchangeRate
-            });
-        }
+        SwingAsync.onEdt(AsyncDB.supply(() -> adminService.getAllCurrencies(adminUserId)), currencies -> {
+            currencyTableModel.setRowCount(0);
+            for (AdminService.CurrencyInfo currency : currencies) {
+                currencyTableModel.addRow(new Object[]{
+                    currency.currencyCode,
+                    currency.exchangeRate
+                });
+            }
+        });
     }
 
     // Add this method to display user order history in a dialog
@@ -632,7 +885,7 @@ public class AdminPanel extends JFrame {
             sb.append(String.format("%-10s %-20s %-10s %-10s %-10s %-40s\n", "OrderID", "Date", "Amount", "Currency", "Status", "Books Ordered"));
             for (AdminService.OrderInfo o : orders) {
                 sb.append(String.format("%-10d %-20s %-10.2f %-10s %-10s %-40s\n",
-                    o.orderId, o.orderDate, o.totalAmount, o.currencyCode, o.status, o.bookList != null ? o.bookList : ""));
+                    o.orderId, o.orderDate, o.totalAmount, o.currencyCode, o.status, o.bookList));
             }
         }
         JTextArea textArea = new JTextArea(sb.toString());
@@ -1,8 +1,14 @@
 package main;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Service class for admin operations using admin-secured stored procedures.
@@ -28,8 +34,9 @@ public class AdminService {
                 stmt.setDouble(3, price);
                 stmt.setInt(4, stock);
                 stmt.executeUpdate();
-                logAdminAction(conn, adminUserId, "ADD_BOOK", "Added book: " + title);
                 conn.commit();
+                logAdminAction(adminUserId, "ADD_BOOK", "Added book: " + title);
+                CatalogCache.getInstance().bookAdded();
                 return true;
             } catch (SQLException e) {
                 conn.rollback();
@@ -54,9 +61,14 @@ public class AdminService {
      */
     public boolean updateBook(int adminUserId, int bookId, String title, String genre, double price, int stock) {
         validateBookInput(title, genre, price, stock);
+        // Flush in-process reservations first so the new stock is not overwritten by them
+        StockReservations.getInstance().evict(bookId);
         try (Connection conn = DBConnection.getConnection()) {
             conn.setAutoCommit(false);
             try {
+                ChangeCapture changes = new ChangeCapture();
+                changes.bookUpdating(conn, bookId, BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP), stock,
+                    adminUserId);
                 CallableStatement stmt = conn.prepareCall("{CALL updateBookDetails(?, ?, ?, ?, ?, ?)}");
                 stmt.setInt(1, adminUserId);
                 stmt.setInt(2, bookId);
@@ -65,8 +77,10 @@ public class AdminService {
                 stmt.setDouble(5, price);
                 stmt.setInt(6, stock);
                 stmt.executeUpdate();
-                logAdminAction(conn, adminUserId, "UPDATE_BOOK", "Updated book ID: " + bookId);
+                changes.flush(conn);
                 conn.commit();
+                logAdminAction(adminUserId, "UPDATE_BOOK", "Updated book ID: " + bookId);
+                CatalogCache.getInstance().bookChanged(bookId);
                 return true;
             } catch (SQLException e) {
                 conn.rollback();
@@ -86,14 +100,19 @@ public class AdminService {
      * @return true if successful, false otherwise
      */
     public boolean deleteBook(int adminUserId, int bookId) {
+        StockReservations.getInstance().evict(bookId);
         try (Connection conn = DBConnection.getConnection()) {
             conn.setAutoCommit(false);
             try {
+                ChangeCapture changes = new ChangeCapture();
+                changes.bookDeleting(conn, bookId);
                 CallableStatement stmt = conn.prepareCall("{CALL removeBooks(?)}");
                 stmt.setInt(1, bookId);
                 stmt.executeUpdate();
-                logAdminAction(conn, adminUserId, "DELETE_BOOK", "Deleted book ID: " + bookId);
+                changes.flush(conn);
                 conn.commit();
+                logAdminAction(adminUserId, "DELETE_BOOK", "Deleted book ID: " + bookId);
+                CatalogCache.getInstance().bookChanged(bookId);
                 return true;
             } catch (SQLException e) {
                 conn.rollback();
@@ -123,8 +142,9 @@ public class AdminService {
                 stmt.setInt(2, userId);
                 stmt.setString(3, sanitize(newRole));
                 stmt.executeUpdate();
-                logAdminAction(conn, adminUserId, "UPDATE_USER_ROLE", "Changed user ID " + userId + " to role " + newRole);
+                logAdminActionSync(conn, adminUserId, "UPDATE_USER_ROLE", "Changed user ID " + userId + " to role " + newRole);
                 conn.commit();
+                RoleValidator.invalidate(userId);
                 return true;
             } catch (SQLException e) {
                 conn.rollback();
@@ -140,26 +160,13 @@ public class AdminService {
     /**
      * Gets all orders in the system (admin only).
      * @param adminUserId Admin's user ID
-     * @return List of OrderInfo objects
+     * @return List of OrderInfo objects in order_id order; empty if the user is not an admin
      */
     public List<OrderInfo> getAllOrders(int adminUserId) {
         List<OrderInfo> orders = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
-            CallableStatement stmt = conn.prepareCall("{CALL getAllOrders(?)}");
-            stmt.setInt(1, adminUserId);
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                orders.add(new OrderInfo(
-                    rs.getInt("order_id"),
-                    rs.getInt("user_id"),
-                    rs.getTimestamp("order_date"),
-                    rs.getDouble("total_amount"),
-                    rs.getString("currency_code"),
-                    rs.getString("status"),
-                    rs.getString("book_list")
-                ));
-            }
-        } catch (SQLException e) {
+        try {
+            streamAllOrders(adminUserId, DEFAULT_FETCH_SIZE, orders::add);
+        } catch (SQLException | SecurityException e) {
             e.printStackTrace();
         }
         return orders;
@@ -192,6 +199,306 @@ public class AdminService {
         return logs;
     }
 
+    /**
+     * Counts the orders matching a filter (admin only).
+     * @param adminUserId Admin's user ID
+     * @param filter Status, user and date range to match
+     * @return Number of matching orders
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public int countOrders(int adminUserId, OrderFilter filter) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM orders o" + filter.toWhereClause(params);
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Fetches one window of orders, filtered and sorted by the database (admin only).
+     * Book lists are read for just the orders in the window.
+     * @param adminUserId Admin's user ID
+     * @param filter Status, user and date range to match
+     * @param sortColumn Column to sort by, see ORDER_SORT_COLUMNS
+     * @param ascending Sort direction
+     * @param offset Index of the first row
+     * @param limit Maximum number of rows
+     * @return Orders in the window, in sort order
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public List<OrderInfo> getOrderPage(int adminUserId, OrderFilter filter, String sortColumn, boolean ascending,
+                                        int offset, int limit) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        List<Object> params = new ArrayList<>();
+        String sql = orderPageSql(filter, sortColumn, ascending, offset, limit, params);
+
+        List<OrderInfo> page = new ArrayList<>();
+        Map<Integer, TreeSet<String>> items = new HashMap<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                bind(stmt, params);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(new OrderInfo(rs.getInt("order_id"), rs.getInt("user_id"), rs.getTimestamp("order_date"),
+                            rs.getDouble("total_amount"), rs.getString("currency_code"), rs.getString("status"), null));
+                        items.put(rs.getInt("order_id"), new TreeSet<>());
+                    }
+                }
+            }
+            if (page.isEmpty()) return page;
+
+            StringBuilder in = new StringBuilder();
+            for (int i = 0; i < page.size(); i++) {
+                in.append(i == 0 ? "?" : ", ?");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT oi.order_id, b.title, oi.quantity FROM order_items oi " +
+                    "JOIN books b ON oi.book_id = b.book_id WHERE oi.order_id IN (" + in + ")")) {
+                for (int i = 0; i < page.size(); i++) {
+                    stmt.setInt(i + 1, page.get(i).orderId);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        items.get(rs.getInt("order_id")).add(rs.getString("title") + " (" + rs.getInt("quantity") + ")");
+                    }
+                }
+            }
+        }
+        List<OrderInfo> result = new ArrayList<>(page.size());
+        for (OrderInfo order : page) {
+            result.add(withBooks(order, items.get(order.orderId)));
+        }
+        return result;
+    }
+
+    /** Sortable order columns and the expression each sorts by. */
+    public static final Map<String, String> ORDER_SORT_COLUMNS = Map.of(
+        "order_id", "o.order_id",
+        "user_id", "o.user_id",
+        "order_date", "o.order_date",
+        "total_amount", "o.total_amount",
+        "currency_code", "c.currency_code",
+        "status", "o.status"
+    );
+
+    /**
+     * Builds the window query getOrderPage runs (IndexAdvisor explains the same text).
+     * @param params Receives the parameters, in placeholder order
+     * @return Statement with ? placeholders
+     */
+    static String orderPageSql(OrderFilter filter, String sortColumn, boolean ascending, int offset, int limit,
+                               List<Object> params) {
+        String orderBy = ORDER_SORT_COLUMNS.getOrDefault(sortColumn, "o.order_id");
+        String direction = ascending ? "ASC" : "DESC";
+        String sql = "SELECT o.order_id, o.user_id, o.order_date, o.total_amount, c.currency_code, o.status " +
+                     "FROM orders o JOIN currencies c ON o.currency_id = c.currency_id" +
+                     filter.toWhereClause(params) +
+                     " ORDER BY " + orderBy + " " + direction + ", o.order_id " + direction +
+                     " LIMIT ? OFFSET ?";
+        params.add(limit);
+        params.add(offset);
+        return sql;
+    }
+
+    static void bind(PreparedStatement stmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    /**
+     * Receives rows from the stream* methods one at a time.
+     */
+    public interface RowHandler<T> {
+        /**
+         * @param row Next row
+         * @return false to stop reading
+         */
+        boolean accept(T row);
+    }
+
+    /** Rows fetched per round trip by the stream* methods unless told otherwise. */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    /**
+     * Streams all orders in order_id order without holding the result in memory.
+     * Each order's book list is assembled from consecutive order_items rows.
+     * @param adminUserId Admin's user ID
+     * @param fetchSize Rows fetched per round trip on drivers that use it; MySQL streams rows, see openStream
+     * @param handler Called with each order as soon as its last item has been read
+     * @return Number of orders delivered
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public int streamAllOrders(int adminUserId, int fetchSize, RowHandler<OrderInfo> handler) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        String sql = """
+            SELECT o.order_id, o.user_id, o.order_date, o.total_amount, c.currency_code, o.status,
+                   b.title, oi.quantity
+            FROM orders o
+            JOIN currencies c ON o.currency_id = c.currency_id
+            LEFT JOIN order_items oi ON o.order_id = oi.order_id
+            LEFT JOIN books b ON oi.book_id = b.book_id
+            ORDER BY o.order_id
+            """;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = openStream(conn, sql, fetchSize);
+             ResultSet rs = stmt.executeQuery()) {
+            return readOrders(rs, handler);
+        }
+    }
+
+    /**
+     * Groups rows of orders joined to their items (order columns, then b.title and oi.quantity,
+     * consecutive per order) into one OrderInfo per order.
+     * @return Number of orders delivered
+     */
+    private static int readOrders(ResultSet rs, RowHandler<OrderInfo> handler) throws SQLException {
+        int count = 0;
+        OrderInfo current = null;
+        TreeSet<String> items = new TreeSet<>();
+        while (rs.next()) {
+            int orderId = rs.getInt("order_id");
+            if (current == null || current.orderId != orderId) {
+                if (current != null) {
+                    count++;
+                    if (!handler.accept(withBooks(current, items))) return count;
+                }
+                current = new OrderInfo(orderId, rs.getInt("user_id"), rs.getTimestamp("order_date"),
+                    rs.getDouble("total_amount"), rs.getString("currency_code"), rs.getString("status"), null);
+                items.clear();
+            }
+            String title = rs.getString("title");
+            if (title != null) {
+                items.add(title + " (" + rs.getInt("quantity") + ")");
+            }
+        }
+        if (current != null) {
+            count++;
+            handler.accept(withBooks(current, items));
+        }
+        return count;
+    }
+
+    private static OrderInfo withBooks(OrderInfo order, TreeSet<String> items) {
+        return new OrderInfo(order.orderId, order.userId, order.orderDate, order.totalAmount,
+            order.currencyCode, order.status, new ArrayList<>(items));
+    }
+
+    /**
+     * Streams all transaction logs in transaction_id order.
+     * @param adminUserId Admin's user ID
+     * @param fetchSize Rows fetched per round trip on drivers that use it; MySQL streams rows, see openStream
+     * @param handler Called with each log entry
+     * @return Number of rows delivered
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public int streamAllTransactionLogs(int adminUserId, int fetchSize, RowHandler<TransactionLog> handler) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        String sql = "SELECT transaction_id, order_id, payment_method, payment_status, amount, timestambooksusersp " +
+                     "FROM transaction_logs ORDER BY transaction_id";
+        int count = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = openStream(conn, sql, fetchSize);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                count++;
+                if (!handler.accept(new TransactionLog(
+                    rs.getInt("transaction_id"),
+                    rs.getInt("order_id"),
+                    rs.getString("payment_method"),
+                    rs.getString("payment_status"),
+                    rs.getDouble("amount"),
+                    rs.getTimestamp("timestambooksusersp")
+                ))) break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Streams all users in user_id order.
+     * @param adminUserId Admin's user ID
+     * @param fetchSize Rows fetched per round trip on drivers that use it; MySQL streams rows, see openStream
+     * @param handler Called with each user
+     * @return Number of rows delivered
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public int streamAllUsers(int adminUserId, int fetchSize, RowHandler<UserInfo> handler) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        int count = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = openStream(conn, "SELECT user_id, name, role FROM users ORDER BY user_id", fetchSize);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                count++;
+                if (!handler.accept(new UserInfo(
+                    rs.getInt("user_id"),
+                    rs.getString("name"),
+                    rs.getString("role")
+                ))) break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Streams all books straight from the database in book_id order, bypassing the catalog cache.
+     * @param adminUserId Admin's user ID
+     * @param fetchSize Rows fetched per round trip on drivers that use it; MySQL streams rows, see openStream
+     * @param handler Called with each book
+     * @return Number of rows delivered
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public int streamAllBooks(int adminUserId, int fetchSize, RowHandler<BookInfo> handler) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        String sql = "SELECT book_id, title, genre, price, stock_quantity FROM books ORDER BY book_id";
+        int count = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = openStream(conn, sql, fetchSize);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                count++;
+                if (!handler.accept(new BookInfo(
+                    rs.getInt("book_id"),
+                    rs.getString("title"),
+                    rs.getString("genre"),
+                    rs.getDouble("price"),
+                    rs.getInt("stock_quantity")
+                ))) break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Prepares a forward-only, read-only query whose rows are streamed instead of buffered.
+     * On MySQL this is Connector/J's row streaming (fetch size Integer.MIN_VALUE): rows are
+     * read off the socket as the server sends them and fetchSize is not used. The connection
+     * cannot run another statement until the result set is closed. A query whose ORDER BY
+     * needs a filesort still waits for the sort before its first row. Other drivers get
+     * fetchSize as a hint.
+     */
+    static PreparedStatement openStream(Connection conn, String sql, int fetchSize) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (conn.getMetaData().getDatabaseProductName().equals("MySQL")) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            stmt.setFetchSize(fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
+        }
+        return stmt;
+    }
+
     /**
      * Updates a currency's exchange rate (admin only).
      * @param adminUserId Admin's user ID
@@ -212,7 +519,8 @@ public class AdminService {
             stmt.setString(2, sanitize(currencyCode));
             stmt.setDouble(3, newRate);
             stmt.executeUpdate();
-            logAdminAction(conn, adminUserId, "UPDATE_EXCHANGE_RATE", "Updated " + currencyCode + " to rate " + newRate);
+            logAdminAction(adminUserId, "UPDATE_EXCHANGE_RATE", "Updated " + currencyCode + " to rate " + newRate);
+            CatalogCache.getInstance().exchangeRatesChanged();
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -226,26 +534,8 @@ public class AdminService {
      * @return List of BookInfo objects
      */
     public List<BookInfo> getAllBooks(int adminUserId) {
-        List<BookInfo> books = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
-            // Simple SELECT query to get all books
-            PreparedStatement stmt = conn.prepareStatement(
-                "SELECT book_id, title, genre, price, stock_quantity FROM books ORDER BY book_id"
-            );
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                books.add(new BookInfo(
-                    rs.getInt("book_id"),
-                    rs.getString("title"),
-                    rs.getString("genre"),
-                    rs.getDouble("price"),
-                    rs.getInt("stock_quantity")
-                ));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return books;
+        // Served from the shared catalog cache; only changed rows are re-queried
+        return CatalogCache.getInstance().getAllBooks();
     }
 
     /**
@@ -305,28 +595,21 @@ public class AdminService {
      */
     public List<OrderInfo> getUserOrderHistory(int adminUserId, int targetUserId) {
         List<OrderInfo> orders = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection()) {
-            String sql = "SELECT o.order_id, o.order_date, o.total_amount, c.currency_code, o.status, " +
-                         "GROUP_CONCAT(CONCAT(b.title, ' (', oi.quantity, ')') ORDER BY b.title SEPARATOR ', ') AS book_list " +
-                         "FROM orders o " +
-                         "JOIN currencies c ON o.currency_id = c.currency_id " +
-                         "LEFT JOIN order_items oi ON o.order_id = oi.order_id " +
-                         "LEFT JOIN books b ON oi.book_id = b.book_id " +
-                         "WHERE o.user_id = ? " +
-                         "GROUP BY o.order_id, o.user_id, o.order_date, o.total_amount, o.currency_id, o.status, c.currency_code";
-            PreparedStatement stmt = conn.prepareStatement(sql);
+        String sql = """
+            SELECT o.order_id, o.user_id, o.order_date, o.total_amount, c.currency_code, o.status,
+                   b.title, oi.quantity
+            FROM orders o
+            JOIN currencies c ON o.currency_id = c.currency_id
+            LEFT JOIN order_items oi ON o.order_id = oi.order_id
+            LEFT JOIN books b ON oi.book_id = b.book_id
+            WHERE o.user_id = ?
+            ORDER BY o.order_date DESC, o.order_id DESC
+            """;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, targetUserId);
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                orders.add(new OrderInfo(
-                    rs.getInt("order_id"),
-                    targetUserId,
-                    rs.getTimestamp("order_date"),
-                    rs.getDouble("total_amount"),
-                    rs.getString("currency_code"),
-                    rs.getString("status"),
-                    rs.getString("book_list")
-                ));
+            try (ResultSet rs = stmt.executeQuery()) {
+                readOrders(rs, orders::add);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -347,8 +630,10 @@ public class AdminService {
                 CallableStatement stmt = conn.prepareCall("{CALL removeUsers(?)}");
                 stmt.setInt(1, targetUserId);
                 stmt.executeUpdate();
-                logAdminAction(conn, adminUserId, "DELETE_USER", "Deleted user ID: " + targetUserId);
+                logAdminActionSync(conn, adminUserId, "DELETE_USER", "Deleted user ID: " + targetUserId);
                 conn.commit();
+                RoleValidator.invalidate(targetUserId);
+                OrderHistoryCache.getInstance().invalidate(targetUserId);
                 return true;
             } catch (SQLException e) {
                 conn.rollback();
@@ -362,24 +647,25 @@ public class AdminService {
     }
 
     /**
-     * Logs an admin action to the admin_action_log table.
+     * Queues an admin action for the admin_action_log table; it is written in the background.
+     * @param adminUserId Admin's user ID
+     * @param action Action type
+     * @param details Action details
+     */
+    private void logAdminAction(int adminUserId, String action, String details) {
+        AuditLog.getInstance().record(adminUserId, action, details);
+    }
+
+    /**
+     * Logs a compliance-critical admin action inside the current transaction,
+     * so the change cannot commit without its audit entry.
      * @param conn Active SQL connection
      * @param adminUserId Admin's user ID
      * @param action Action type
      * @param details Action details
      */
-    private void logAdminAction(Connection conn, int adminUserId, String action, String details) {
-        try (PreparedStatement stmt = conn.prepareStatement(
-                "INSERT INTO admin_action_log (admin_user_id, action, details) VALUES (?, ?, ?)")
-        ) {
-            stmt.setInt(1, adminUserId);
-            stmt.setString(2, action);
-            stmt.setString(3, details);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            // Logging failure should not break main operation
-            e.printStackTrace();
-        }
+    private void logAdminActionSync(Connection conn, int adminUserId, String action, String details) throws SQLException {
+        AuditLog.getInstance().recordSync(conn, adminUserId, action, details);
     }
 
     // Data classes for return values
@@ -390,15 +676,58 @@ public class AdminService {
         public final double totalAmount;
         public final String currencyCode;
         public final String status;
+        /** "Title (quantity)" per distinct item, sorted by title; unmodifiable */
+        public final List<String> books;
+        /** The books joined with ", ", for one-line display */
         public final String bookList;
-        public OrderInfo(int orderId, int userId, Timestamp orderDate, double totalAmount, String currencyCode, String status, String bookList) {
+        public OrderInfo(int orderId, int userId, Timestamp orderDate, double totalAmount, String currencyCode, String status, List<String> books) {
             this.orderId = orderId;
             this.userId = userId;
             this.orderDate = orderDate;
             this.totalAmount = totalAmount;
             this.currencyCode = currencyCode;
             this.status = status;
-            this.bookList = bookList != null ? bookList : "";
+            this.books = books != null ? Collections.unmodifiableList(books) : Collections.emptyList();
+            this.bookList = String.join(", ", this.books);
+        }
+    }
+
+    /**
+     * Order filter; null fields match everything. The date range is [from, to).
+     */
+    public static class OrderFilter {
+        public static final OrderFilter ALL = new OrderFilter(null, null, null, null);
+
+        public final String status;
+        public final Integer userId;
+        public final Timestamp from;
+        public final Timestamp to;
+        public OrderFilter(String status, Integer userId, Timestamp from, Timestamp to) {
+            this.status = status;
+            this.userId = userId;
+            this.from = from;
+            this.to = to;
+        }
+
+        String toWhereClause(List<Object> params) {
+            List<String> conditions = new ArrayList<>();
+            if (status != null) {
+                conditions.add("o.status = ?");
+                params.add(status);
+            }
+            if (userId != null) {
+                conditions.add("o.user_id = ?");
+                params.add(userId);
+            }
+            if (from != null) {
+                conditions.add("o.order_date >= ?");
+                params.add(from);
+            }
+            if (to != null) {
+                conditions.add("o.order_date < ?");
+                params.add(to);
+            }
+            return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
         }
     }
 
@@ -455,7 +784,7 @@ public class AdminService {
     }
 
     // --- Input Validation Helpers ---
-    private void validateBookInput(String title, String genre, double price, int stock) {
+    static void validateBookInput(String title, String genre, double price, int stock) {
         if (title == null || title.trim().isEmpty()) {
             throw new IllegalArgumentException("Book title cannot be empty.");
         }
@@ -478,7 +807,7 @@ public class AdminService {
         }
     }
 
-    private String sanitize(String input) {
+    static String sanitize(String input) {
         if (input == null) return "";
         // Basic sanitization: trim and remove dangerous characters
         return input.trim().replaceAll("[<>\"'%;]", "");
@@ -0,0 +1,576 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP/JSON API over the customer services, on the JDK's built-in HTTP server.
+ * All clients share this process's connection pool and catalog cache.
+ *
+ * Usage: java main.ApiServer --port=8080 --threads=32
+ *
+ * POST /api/login          {"email": ..., "password": ...} -> {"token": ..., "userId": ..., "role": ...}
+ * POST /api/logout
+ * GET  /api/books          ?q=keyword&currency=PHP&after=bookId&limit=50
+ * GET  /api/books/{id}     ?currency=PHP
+ * GET  /api/cart
+ * POST /api/cart           {"bookId": ..., "quantity": ...}
+ * DELETE /api/cart         empties the cart
+ * DELETE /api/cart/{id}    removes one book's line
+ * GET  /api/orders
+ * POST /api/orders         {"currency": "PHP"}
+ * GET  /api/orders/{id}
+ *
+ * Cart and order endpoints need an "Authorization: Bearer <token>" header from /api/login.
+ */
+public class ApiServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_THREADS = 32;
+    // Requests waiting beyond this are answered 503 instead of piling up behind a slow database
+    private static final int MAX_QUEUED_REQUESTS = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final long SESSION_IDLE_TIMEOUT_MS = 30 * 60 * 1000;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    // One permit per request running or waiting for a worker
+    private final Semaphore admission;
+    private final Map<String, ApiSession> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AuthService authService = new AuthService();
+    private final CartService cartService = new CartService();
+    private final OrderService orderService = new OrderService();
+
+    /**
+     * @param port TCP port to listen on; 0 picks a free port
+     * @param threads Worker threads handling requests
+     * @throws IOException if the port could not be bound
+     */
+    public ApiServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // JDK 17 has no virtual threads, so requests run on a bounded pool; a request blocked on
+        // the database holds a worker, and the connection pool caps how many reach MySQL at once.
+        // The queue is bounded by the admission semaphore, not by the executor: an executor
+        // rejection would surface in the server's dispatcher, which leaves the client hanging.
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "api-worker-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        admission = new Semaphore(threads + MAX_QUEUED_REQUESTS);
+        // No server executor: handlers start on the dispatcher thread, which only admits or
+        // refuses the request and hands it to the worker pool
+
+        server.createContext("/api/login", handler(this::login));
+        server.createContext("/api/logout", handler(this::logout));
+        server.createContext("/api/books", handler(this::books));
+        server.createContext("/api/cart", handler(this::cart));
+        server.createContext("/api/orders", handler(this::orders));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @param delaySeconds Time to let in-flight requests finish
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        // The API is the one backend selling its titles, so its in-process stock counters are authoritative
+        if (System.getProperty("bookmart.db.hotItems") == null) {
+            System.setProperty("bookmart.db.hotItems", "true");
+        }
+        int port = DEFAULT_PORT;
+        int threads = DEFAULT_THREADS;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else {
+                System.err.println("Usage: ApiServer [--port=N] [--threads=N]");
+                System.exit(2);
+            }
+        }
+        if (!SchemaMigrator.migrateAtStartup()) {
+            System.exit(1);
+        }
+        CatalogCache.getInstance().preload();
+        SalesAnalytics.getInstance().startTailer();
+        ApiServer api = new ApiServer(port, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> api.stop(2), "api-shutdown"));
+        api.start();
+        System.out.println("BookMart API listening on port " + api.getPort() + " with " + threads + " workers");
+    }
+
+    // ---- Endpoints ----
+
+    private Response login(Request req) throws SQLException, HttpError {
+        req.requireMethod("POST");
+        Map<String, Object> body = req.jsonBody();
+        String email = req.stringField(body, "email");
+        String password = req.stringField(body, "password");
+        SessionContext session = authService.login(email, password);
+        if (session == null) {
+            throw new HttpError(401, "Invalid credentials.");
+        }
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(s -> s.isExpired(now));
+        String token = newToken();
+        sessions.put(token, new ApiSession(session));
+        return Response.ok(new Json.Writer().beginObject()
+            .name("token").value(token)
+            .name("userId").value(session.getUserId())
+            .name("role").value(session.getRole())
+            .endObject());
+    }
+
+    private Response logout(Request req) throws HttpError {
+        req.requireMethod("POST");
+        String token = req.bearerToken();
+        if (token != null) {
+            sessions.remove(token);
+        }
+        return Response.noContent();
+    }
+
+    private Response books(Request req) throws HttpError {
+        req.requireMethod("GET");
+        CatalogCache cache = CatalogCache.getInstance();
+        String currency = req.query("currency", "PHP");
+        if (cache.getExchangeRate(currency) == null) {
+            throw new HttpError(400, "Unknown currency: " + currency);
+        }
+
+        String id = req.pathRest();
+        if (!id.isEmpty()) {
+            AdminService.BookInfo book = cache.getBook(req.parseId(id));
+            if (book == null) {
+                throw new HttpError(404, "No such book.");
+            }
+            Json.Writer json = new Json.Writer();
+            writeBook(json, book, currency);
+            return Response.ok(json);
+        }
+
+        // Same sources as CustomerCatalog.loadBooks: browsing pages the table, a keyword pages index hits
+        String keyword = req.query("q", "").trim();
+        BookPageSource source = keyword.isEmpty()
+            ? BookPageSource.database()
+            : BookPageSource.of(cache.search(keyword));
+        AdminService.BookInfo after = null;
+        String afterParam = req.query("after", null);
+        if (afterParam != null) {
+            after = cache.getBook(req.parseId(afterParam));
+            if (after == null) {
+                throw new HttpError(400, "Unknown book in 'after'.");
+            }
+        }
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, req.intQuery("limit", DEFAULT_PAGE_SIZE)));
+        List<AdminService.BookInfo> page = source.fetchPage(after, limit);
+
+        Json.Writer json = new Json.Writer().beginObject().name("books").beginArray();
+        for (AdminService.BookInfo book : page) {
+            writeBook(json, book, currency);
+        }
+        json.endArray().name("next");
+        if (page.size() == limit) {
+            json.value(page.get(page.size() - 1).bookId);
+        } else {
+            json.nullValue();
+        }
+        return Response.ok(json.endObject());
+    }
+
+    private Response cart(Request req) throws SQLException, HttpError {
+        SessionContext session = requireSession(req);
+        String id = req.pathRest();
+        if (!id.isEmpty()) {
+            req.requireMethod("DELETE");
+            cartService.removeFromCart(session, req.parseId(id));
+            return Response.ok(new Json.Writer().beginObject().name("removed").value(true).endObject());
+        }
+        if (req.method().equals("DELETE")) {
+            cartService.clearCart(session);
+            return Response.ok(new Json.Writer().beginObject().name("removed").value(true).endObject());
+        }
+        if (req.method().equals("POST")) {
+            Map<String, Object> body = req.jsonBody();
+            int bookId = req.intField(body, "bookId");
+            int quantity = req.intField(body, "quantity");
+            if (quantity <= 0) {
+                throw new HttpError(400, "Quantity must be positive.");
+            }
+            if (CatalogCache.getInstance().getBook(bookId) == null) {
+                throw new HttpError(404, "No such book.");
+            }
+            CartService.AddResult result = cartService.addToCart(session, bookId, quantity);
+            if (!result.added) {
+                return new Response(409, new Json.Writer().beginObject()
+                    .name("error").value("Not enough stock.")
+                    .name("stockAvailable").value(result.stockAvailable)
+                    .endObject());
+            }
+            return Response.ok(new Json.Writer().beginObject().name("added").value(true).endObject());
+        }
+        req.requireMethod("GET");
+        double total = 0;
+        Json.Writer json = new Json.Writer().beginObject().name("items").beginArray();
+        for (CartService.CartLine line : cartService.getCart(session)) {
+            total += line.subtotal;
+            json.beginObject()
+                .name("bookId").value(line.bookId)
+                .name("title").value(line.title)
+                .name("quantity").value(line.quantity)
+                .name("price").value(line.price)
+                .name("subtotal").value(line.subtotal)
+                .endObject();
+        }
+        return Response.ok(json.endArray().name("total").value(total).name("currency").value("PHP").endObject());
+    }
+
+    private Response orders(Request req) throws SQLException, HttpError {
+        SessionContext session = requireSession(req);
+        String id = req.pathRest();
+        if (!id.isEmpty()) {
+            req.requireMethod("GET");
+            int orderId = req.parseId(id);
+            List<OrderService.OrderLine> items = orderService.getOrderItems(session, orderId);
+            if (items.isEmpty()) {
+                throw new HttpError(404, "No such order.");
+            }
+            Json.Writer json = new Json.Writer().beginObject()
+                .name("orderId").value(orderId)
+                .name("items").beginArray();
+            for (OrderService.OrderLine item : items) {
+                writeOrderLine(json, item);
+            }
+            return Response.ok(json.endArray().endObject());
+        }
+
+        if (req.method().equals("POST")) {
+            Map<String, Object> body = req.jsonBody();
+            Object currencyValue = body.get("currency");
+            String currency = currencyValue instanceof String ? (String) currencyValue : "PHP";
+            if (CatalogCache.getInstance().getExchangeRate(currency) == null) {
+                throw new HttpError(400, "Unknown currency: " + currency);
+            }
+            try {
+                int orderId = orderService.placeOrder(session, currency);
+                return new Response(201, new Json.Writer().beginObject().name("orderId").value(orderId).endObject());
+            } catch (SQLException e) {
+                if (OrderService.isInsufficientStock(e)) throw new HttpError(409, "Insufficient stock.");
+                if (OrderService.isCartEmpty(e)) throw new HttpError(409, "Cart is empty.");
+                throw e;
+            }
+        }
+
+        req.requireMethod("GET");
+        Json.Writer json = new Json.Writer().beginObject().name("orders").beginArray();
+        for (OrderService.OrderSummary order : orderService.getOrderHistory(session)) {
+            json.beginObject()
+                .name("orderId").value(order.orderId)
+                .name("orderDate").value(order.orderDate == null ? null : order.orderDate.toLocalDateTime().toString())
+                .name("totalAmount").value(order.totalAmount)
+                .name("currency").value(order.currencyCode)
+                .name("titles").value(order.bookTitles)
+                .name("items").beginArray();
+            for (OrderService.OrderLine item : order.items) {
+                writeOrderLine(json, item);
+            }
+            json.endArray().endObject();
+        }
+        return Response.ok(json.endArray().endObject());
+    }
+
+    private static void writeOrderLine(Json.Writer json, OrderService.OrderLine item) {
+        json.beginObject()
+            .name("bookId").value(item.bookId)
+            .name("title").value(item.title)
+            .name("quantity").value(item.quantity)
+            .name("priceEach").value(item.priceEach)
+            .endObject();
+    }
+
+    private static void writeBook(Json.Writer json, AdminService.BookInfo book, String currency) {
+        json.beginObject()
+            .name("bookId").value(book.bookId)
+            .name("title").value(book.title)
+            .name("genre").value(book.genre)
+            .name("price").value(CatalogCache.getInstance().getPrice(book, currency))
+            .name("currency").value(currency)
+            .name("stock").value(book.stockQuantity)
+            .endObject();
+    }
+
+    // ---- Sessions ----
+
+    private SessionContext requireSession(Request req) throws HttpError {
+        String token = req.bearerToken();
+        ApiSession session = token == null ? null : sessions.get(token);
+        long now = System.currentTimeMillis();
+        if (session == null || session.isExpired(now)) {
+            if (session != null) sessions.remove(token);
+            throw new HttpError(401, "Log in first.");
+        }
+        session.lastUsed = now;
+        return session.context;
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static class ApiSession {
+        final SessionContext context;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        ApiSession(SessionContext context) {
+            this.context = context;
+        }
+
+        boolean isExpired(long now) {
+            return now - lastUsed > SESSION_IDLE_TIMEOUT_MS;
+        }
+    }
+
+    // ---- Plumbing ----
+
+    private interface Endpoint {
+        Response handle(Request req) throws SQLException, HttpError;
+    }
+
+    /**
+     * Wraps an endpoint in admission control: runs on the dispatcher thread, answers 503 at
+     * once when the workers and queue are full, and otherwise queues the request for a worker.
+     */
+    private HttpHandler handler(Endpoint endpoint) {
+        HttpHandler work = handle(endpoint);
+        return exchange -> {
+            if (!admission.tryAcquire()) {
+                send(exchange, Response.error(503, "Server busy."));
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        work.handle(exchange);
+                    } catch (IOException | RuntimeException e) {
+                        exchange.close();
+                    } finally {
+                        admission.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                admission.release();
+                send(exchange, Response.error(503, "Server is shutting down."));
+            }
+        };
+    }
+
+    private static HttpHandler handle(Endpoint endpoint) {
+        return exchange -> {
+            Response response;
+            try {
+                response = endpoint.handle(new Request(exchange));
+            } catch (HttpError e) {
+                response = Response.error(e.status, e.getMessage());
+            } catch (SQLException e) {
+                e.printStackTrace();
+                response = Response.error(500, "Database error.");
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                response = Response.error(500, "Internal error.");
+            }
+            send(exchange, response);
+        };
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        try (exchange) {
+            if (response.body == null) {
+                exchange.sendResponseHeaders(response.status, -1);
+                return;
+            }
+            byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static class HttpError extends Exception {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, Json.Writer body) {
+            this.status = status;
+            this.body = body == null ? null : body.toString();
+        }
+
+        static Response ok(Json.Writer body) {
+            return new Response(200, body);
+        }
+
+        static Response noContent() {
+            return new Response(204, null);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, new Json.Writer().beginObject().name("error").value(message).endObject());
+        }
+    }
+
+    private static class Request {
+        private final HttpExchange exchange;
+        private Map<String, String> query;
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        String method() {
+            return exchange.getRequestMethod();
+        }
+
+        void requireMethod(String method) throws HttpError {
+            if (!method.equals(method())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new HttpError(405, "Method not allowed.");
+            }
+        }
+
+        /**
+         * @return Path after the context, without slashes, e.g. "12" for /api/books/12
+         */
+        String pathRest() {
+            String path = exchange.getRequestURI().getPath();
+            String rest = path.substring(Math.min(path.length(), exchange.getHttpContext().getPath().length()));
+            while (rest.startsWith("/")) rest = rest.substring(1);
+            while (rest.endsWith("/")) rest = rest.substring(0, rest.length() - 1);
+            return rest;
+        }
+
+        int parseId(String text) throws HttpError {
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                throw new HttpError(404, "Not found.");
+            }
+        }
+
+        String query(String name, String defaultValue) {
+            if (query == null) {
+                query = new HashMap<>();
+                String raw = exchange.getRequestURI().getRawQuery();
+                if (raw != null) {
+                    for (String pair : raw.split("&")) {
+                        int eq = pair.indexOf('=');
+                        String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                        String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                        query.putIfAbsent(key, value);
+                    }
+                }
+            }
+            return query.getOrDefault(name, defaultValue);
+        }
+
+        int intQuery(String name, int defaultValue) throws HttpError {
+            String value = query(name, null);
+            if (value == null) return defaultValue;
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "'" + name + "' must be a number.");
+            }
+        }
+
+        String bearerToken() {
+            String auth = exchange.getRequestHeaders().getFirst("Authorization");
+            if (auth == null || !auth.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+            return auth.substring(7).trim();
+        }
+
+        Map<String, Object> jsonBody() throws HttpError {
+            byte[] bytes;
+            try (InputStream in = exchange.getRequestBody()) {
+                bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            } catch (IOException e) {
+                throw new HttpError(400, "Could not read the request body.");
+            }
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body too large.");
+            }
+            try {
+                return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, "Malformed JSON: " + e.getMessage());
+            }
+        }
+
+        String stringField(Map<String, Object> body, String name) throws HttpError {
+            Object value = body.get(name);
+            if (!(value instanceof String)) {
+                throw new HttpError(400, "'" + name + "' is required.");
+            }
+            return (String) value;
+        }
+
+        int intField(Map<String, Object> body, String name) throws HttpError {
+            Object value = body.get(name);
+            if (!(value instanceof Double) || (Double) value != Math.rint((Double) value)) {
+                throw new HttpError(400, "'" + name + "' must be a whole number.");
+            }
+            return ((Double) value).intValue();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package main;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs database work on a dedicated executor so it never blocks the Swing Event Dispatch Thread.
+ * Use SwingAsync to apply the results back on the EDT.
+ */
+public class AsyncDB {
+    private static final int WORKER_THREADS = 4;
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(WORKER_THREADS, task -> {
+        Thread thread = new Thread(task, "db-worker-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Runs a task on the database executor.
+     * Cancelling the returned future interrupts the task if it is still running.
+     * @param task Work to run; may throw SQLException or any other exception
+     * @return Future completed with the task's result or exception
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            if (future.isDone()) return;
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return The executor used for database work
+     */
+    public static ExecutorService getExecutor() {
+        return executor;
+    }
+}
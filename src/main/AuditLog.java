@@ -0,0 +1,309 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writer for the admin_action_log table.
+ * Entries recorded with record() go into a bounded lock-free queue and are group-committed
+ * by a background thread as multi-row INSERTs, so audit logging adds no round trip or lock
+ * time to the admin's own transaction. If the database cannot be reached (or the queue is
+ * full) entries are appended to a local spill file, which is replayed on the next successful
+ * flush. A batch the database rejects for its content (e.g. a foreign key to an admin deleted
+ * meanwhile) is retried row by row, and rows that still fail go to a reject file instead of
+ * being spilled and replayed forever. Compliance-critical actions use recordSync() to insert
+ * inside the caller's transaction.
+ */
+public class AuditLog {
+    private static final AuditLog INSTANCE = new AuditLog();
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH = 200;
+    private static final long FLUSH_INTERVAL_MS = 200;
+    private static final Path SPILL_FILE = Paths.get("admin_action_log.spill");
+    private static final Path REJECT_FILE = Paths.get("admin_action_log.rejected");
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Object spillLock = new Object();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private AuditLog() {
+        writer = new Thread(this::writeLoop, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        // The last entries must be written before the pool closes at shutdown
+        DBConnection.runBeforePoolClose(this::shutdown);
+    }
+
+    public static AuditLog getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues an admin action to be written in the background.
+     * Call after the action's own transaction has committed.
+     * @param adminUserId Admin's user ID
+     * @param action Action type
+     * @param details Action details
+     */
+    public void record(int adminUserId, String action, String details) {
+        Entry entry = new Entry(adminUserId, action, details, new Timestamp(System.currentTimeMillis()));
+        if (queued.incrementAndGet() > QUEUE_CAPACITY) {
+            queued.decrementAndGet();
+            spill(List.of(entry));
+            return;
+        }
+        queue.offer(entry);
+        if (queued.get() >= MAX_BATCH) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Writes an admin action inside the caller's transaction, so the action and its
+     * audit entry commit or roll back together.
+     * @param conn Active SQL connection
+     * @param adminUserId Admin's user ID
+     * @param action Action type
+     * @param details Action details
+     */
+    public void recordSync(Connection conn, int adminUserId, String action, String details) throws SQLException {
+        insert(conn, List.of(new Entry(adminUserId, action, details, new Timestamp(System.currentTimeMillis()))));
+        written.incrementAndGet();
+    }
+
+    /**
+     * Writes everything queued so far, e.g. before reading the log back.
+     */
+    public void flush() {
+        synchronized (spillLock) {
+            drain();
+        }
+    }
+
+    private void writeLoop() {
+        replaySpill();
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS));
+            try {
+                flush();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void shutdown() {
+        running = false;
+        LockSupport.unpark(writer);
+        flush();
+    }
+
+    /**
+     * Writes queued entries in batches. Must hold spillLock.
+     */
+    private void drain() {
+        boolean wroteAny = false;
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            batch.clear();
+            Entry entry;
+            while (batch.size() < MAX_BATCH && (entry = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) break;
+            if (!write(batch)) {
+                spill(batch);
+                return;
+            }
+            wroteAny = true;
+        }
+        if (wroteAny) {
+            // The database is reachable again; bring spilled entries back in
+            replaySpill();
+        }
+    }
+
+    /**
+     * Writes a batch, falling back to one row at a time if the database rejects its content.
+     * @return false if the database is unavailable and the batch should be spilled
+     */
+    private boolean write(List<Entry> batch) {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) return false;
+            try {
+                insert(conn, batch);
+                written.addAndGet(batch.size());
+                flushes.incrementAndGet();
+                return true;
+            } catch (SQLException e) {
+                if (isTransient(e)) throw e;
+            }
+            for (Entry entry : batch) {
+                try {
+                    insert(conn, List.of(entry));
+                    written.incrementAndGet();
+                } catch (SQLException e) {
+                    if (isTransient(e)) throw e;
+                    reject(entry, e);
+                }
+            }
+            flushes.incrementAndGet();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            // Rows written before a transient failure would be written again by the replay;
+            // a duplicate audit entry is preferred to a lost one
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the failure says nothing about the rows, e.g. a lost connection or lock timeout
+     */
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) return true;
+        if (e.getSQLState() != null && e.getSQLState().startsWith("08")) return true;
+        return TransactionRetry.isRetryable(e);
+    }
+
+    private void reject(Entry entry, SQLException cause) {
+        System.err.println("Audit entry rejected by the database (" + cause.getMessage() + "); kept in " + REJECT_FILE);
+        try (BufferedWriter out = Files.newBufferedWriter(REJECT_FILE, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(format(entry) + "\t" + escape(cause.getMessage()));
+            out.newLine();
+            rejected.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Could not write audit reject file; entry lost.");
+            e.printStackTrace();
+        }
+    }
+
+    private static void insert(Connection conn, List<Entry> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO admin_action_log (admin_user_id, action, details, `timestamp`) VALUES ");
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Entry entry : batch) {
+                stmt.setInt(index++, entry.adminUserId);
+                stmt.setString(index++, entry.action);
+                stmt.setString(index++, entry.details);
+                stmt.setTimestamp(index++, entry.timestamp);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    private void spill(List<Entry> entries) {
+        synchronized (spillLock) {
+            try (BufferedWriter out = Files.newBufferedWriter(SPILL_FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Entry entry : entries) {
+                    out.write(format(entry));
+                    out.newLine();
+                }
+                spilled.addAndGet(entries.size());
+            } catch (IOException e) {
+                System.err.println("Could not write audit spill file; " + entries.size() + " entries lost.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void replaySpill() {
+        synchronized (spillLock) {
+            if (!Files.exists(SPILL_FILE)) return;
+            try {
+                List<Entry> entries = new ArrayList<>();
+                for (String line : Files.readAllLines(SPILL_FILE, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split("\t", -1);
+                    if (parts.length != 4) continue;
+                    entries.add(new Entry(Integer.parseInt(parts[1]), unescape(parts[2]), unescape(parts[3]),
+                        new Timestamp(Long.parseLong(parts[0]))));
+                }
+                for (int from = 0; from < entries.size(); from += MAX_BATCH) {
+                    if (!write(entries.subList(from, Math.min(from + MAX_BATCH, entries.size())))) {
+                        // Keep what was not written for the next attempt
+                        List<Entry> rest = new ArrayList<>(entries.subList(from, entries.size()));
+                        Files.delete(SPILL_FILE);
+                        spilled.addAndGet(-rest.size());
+                        spill(rest);
+                        return;
+                    }
+                }
+                Files.delete(SPILL_FILE);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static String format(Entry entry) {
+        return entry.timestamp.getTime() + "\t" + entry.adminUserId + "\t" + escape(entry.action) + "\t" + escape(entry.details);
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "\\N";
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.equals("\\N")) return null;
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    public int getQueuedCount() { return queued.get(); }
+    public long getWrittenCount() { return written.get(); }
+    public long getSpilledCount() { return spilled.get(); }
+    public long getFlushCount() { return flushes.get(); }
+    public long getRejectedCount() { return rejected.get(); }
+
+    private static class Entry {
+        final int adminUserId;
+        final String action;
+        final String details;
+        final Timestamp timestamp;
+
+        Entry(int adminUserId, String action, String details, Timestamp timestamp) {
+            this.adminUserId = adminUserId;
+            this.action = action;
+            this.details = details;
+            this.timestamp = timestamp;
+        }
+    }
+}
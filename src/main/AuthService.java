@@ -0,0 +1,34 @@
+package main;
+
+import java.sql.*;
+
+/**
+ * Service class for signing users in.
+ */
+public class AuthService {
+
+    /**
+     * Checks the credentials and starts a session for the user.
+     * @param email User's email
+     * @param password User's password
+     * @return The new session, or null if the credentials do not match a user
+     * @throws SQLException if the users table could not be read
+     */
+    public SessionContext login(String email, String password) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            String sql = "SELECT user_id, role FROM users WHERE email=? AND password=?";
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            stmt.setString(1, email);
+            stmt.setString(2, password);
+            ResultSet rs = stmt.executeQuery();
+
+            if (!rs.next()) {
+                return null;
+            }
+            int userId = rs.getInt("user_id");
+            String role = rs.getString("role");
+            RoleValidator.cacheRole(userId, role);
+            return new SessionContext(userId, role);
+        }
+    }
+}
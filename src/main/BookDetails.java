@@ -2,7 +2,6 @@ package main;
 
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
 
 public class BookDetails extends JFrame {
     public BookDetails(int bookId, String currency) {
@@ -21,23 +20,13 @@ public class BookDetails extends JFrame {
 
         add(panel);
 
-        try (Connection conn = DBConnection.getConnection()) {
-            String sql = """
-                SELECT b.title, b.genre, b.stock_quantity,
-                ROUND(b.price / c.exchange_rate_to_php, 2) AS converted_price
-                FROM books b JOIN currencies c ON c.currency_code=?
-                WHERE b.book_id=?
-            """;
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, currency);
-            stmt.setInt(2, bookId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                titleLabel.setText("Title: " + rs.getString(1));
-                genreLabel.setText("Genre: " + rs.getString(2));
-                stockLabel.setText("Stock: " + rs.getInt(3));
-                priceLabel.setText("Price ("+currency+"): " + rs.getDouble(4));
-            }
-        } catch(SQLException e){ e.printStackTrace(); }
+        CatalogCache cache = CatalogCache.getInstance();
+        AdminService.BookInfo book = cache.getBook(bookId);
+        if (book != null && cache.getExchangeRate(currency) != null) {
+            titleLabel.setText("Title: " + book.title);
+            genreLabel.setText("Genre: " + book.genre);
+            stockLabel.setText("Stock: " + book.stockQuantity);
+            priceLabel.setText("Price ("+currency+"): " + cache.convertPrice(book.price, currency));
+        }
     }
 }
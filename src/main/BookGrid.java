@@ -0,0 +1,274 @@
+package main;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Virtualized grid of book cards for the catalog.
+ * Only the cards inside the visible area are painted, all through a single reused
+ * renderer component (the same idea as a JTable cell renderer). Books are pulled
+ * from a BookPageSource one page at a time as the user scrolls towards the end;
+ * pages are fetched on the AsyncDB executor and appended on the EDT.
+ */
+public class BookGrid extends JComponent implements Scrollable {
+    private static final int COLUMNS = 3;
+    private static final int GAP = 20;
+    private static final int CARD_HEIGHT = 130;
+    private static final int ROW_HEIGHT = CARD_HEIGHT + GAP;
+    private static final int PAGE_SIZE = 60;
+
+    private static final Color BG_COLOR = new Color(0xf4f6fa);
+    private static final Color CARD_BORDER = new Color(0xe0e0e0);
+    private static final Color SELECTED_BORDER = new Color(0x003059);
+    private static final Color SELECTED_BG = new Color(0xeaf0fa);
+
+    private final List<AdminService.BookInfo> books = new ArrayList<>();
+    private final CellRendererPane rendererPane = new CellRendererPane();
+    private final CardRenderer renderer = new CardRenderer();
+    private final SwingAsync.Latest<List<AdminService.BookInfo>> pageLoader = new SwingAsync.Latest<>();
+
+    private BookPageSource source;
+    private boolean exhausted = true;
+    private boolean loading = false;
+    private String currency = "PHP";
+    private int selectedIndex = -1;
+    private Consumer<AdminService.BookInfo> selectionListener = book -> { };
+
+    public BookGrid() {
+        setOpaque(true);
+        setBackground(BG_COLOR);
+        add(rendererPane);
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent evt) {
+                int index = indexAt(evt.getPoint());
+                if (index >= 0) {
+                    select(index);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param listener Called with the selected book, or null when the selection is cleared
+     */
+    public void setSelectionListener(Consumer<AdminService.BookInfo> listener) {
+        this.selectionListener = listener;
+    }
+
+    /**
+     * Replaces the grid contents with a new source and loads its first page.
+     * @param source Where to page books from
+     * @param currency Currency to show prices in
+     */
+    public void setSource(BookPageSource source, String currency) {
+        this.source = source;
+        this.currency = currency;
+        books.clear();
+        exhausted = false;
+        loading = false;
+        pageLoader.cancel();
+        clearSelection();
+        loadMore();
+        scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    }
+
+    /**
+     * Changes the display currency without refetching any books.
+     * @param currency Currency to show prices in
+     */
+    public void setCurrency(String currency) {
+        this.currency = currency;
+        repaint();
+    }
+
+    public void clearSelection() {
+        selectedIndex = -1;
+        selectionListener.accept(null);
+        repaint();
+    }
+
+    /**
+     * @return The selected book, or null if none
+     */
+    public AdminService.BookInfo getSelectedBook() {
+        return selectedIndex >= 0 && selectedIndex < books.size() ? books.get(selectedIndex) : null;
+    }
+
+    private void select(int index) {
+        selectedIndex = index;
+        selectionListener.accept(books.get(index));
+        repaint();
+    }
+
+    /**
+     * Fetches the next page once the visible area gets within half a page of the loaded books.
+     */
+    public void loadMoreIfNeeded() {
+        if (exhausted || source == null) return;
+        Rectangle visible = getVisibleRect();
+        int lastVisibleRow = (visible.y + visible.height) / ROW_HEIGHT;
+        if ((lastVisibleRow + 1) * COLUMNS + PAGE_SIZE / 2 >= books.size()) {
+            loadMore();
+        }
+    }
+
+    private void loadMore() {
+        if (exhausted || loading || source == null) return;
+        loading = true;
+        BookPageSource requested = source;
+        AdminService.BookInfo last = books.isEmpty() ? null : books.get(books.size() - 1);
+        pageLoader.submit(() -> requested.fetchPage(last, PAGE_SIZE), page -> {
+            loading = false;
+            books.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                exhausted = true;
+            }
+            revalidate();
+            repaint();
+            loadMoreIfNeeded();
+        }, error -> {
+            loading = false;
+            error.printStackTrace();
+        });
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (getParent() instanceof JViewport) {
+            ((JViewport) getParent()).addChangeListener(e -> loadMoreIfNeeded());
+        }
+    }
+
+    private int cardWidth() {
+        return Math.max(1, (getWidth() - GAP * (COLUMNS + 1)) / COLUMNS);
+    }
+
+    private int indexAt(Point p) {
+        int cardWidth = cardWidth();
+        int col = (p.x - GAP) / (cardWidth + GAP);
+        int row = (p.y - GAP) / ROW_HEIGHT;
+        if (p.x < GAP || p.y < GAP || col >= COLUMNS) return -1;
+        if ((p.x - GAP) % (cardWidth + GAP) >= cardWidth) return -1;
+        if ((p.y - GAP) % ROW_HEIGHT >= CARD_HEIGHT) return -1;
+        int index = row * COLUMNS + col;
+        return index < books.size() ? index : -1;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int cardWidth = cardWidth();
+        int firstRow = Math.max(0, (clip.y - GAP) / ROW_HEIGHT);
+        int lastRow = (clip.y + clip.height) / ROW_HEIGHT;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                int index = row * COLUMNS + col;
+                if (index >= books.size()) return;
+                renderer.configure(books.get(index), currency, index == selectedIndex);
+                rendererPane.paintComponent(g, renderer, this,
+                    GAP + col * (cardWidth + GAP), GAP + row * ROW_HEIGHT, cardWidth, CARD_HEIGHT, true);
+            }
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int rows = (books.size() + COLUMNS - 1) / COLUMNS;
+        int width = getParent() instanceof JViewport ? getParent().getWidth() : 900;
+        return new Dimension(width, GAP + rows * ROW_HEIGHT);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+
+    /**
+     * The single card component reused to paint every visible book.
+     */
+    private static class CardRenderer extends JPanel {
+        private final JLabel titleLbl = new JLabel();
+        private final JLabel genreLbl = new JLabel();
+        private final JLabel priceLbl = new JLabel();
+        private final JLabel stockLbl = new JLabel();
+
+        CardRenderer() {
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+
+            titleLbl.setFont(new Font("SansSerif", Font.BOLD, 15));
+            titleLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            genreLbl.setFont(new Font("SansSerif", Font.ITALIC, 12));
+            genreLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            priceLbl.setForeground(new Color(0xc0722c));
+            priceLbl.setFont(new Font("SansSerif", Font.BOLD, 12));
+            priceLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            stockLbl.setFont(new Font("SansSerif", Font.PLAIN, 12));
+            stockLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            add(titleLbl);
+            add(Box.createVerticalStrut(6));
+            add(genreLbl);
+            add(Box.createVerticalStrut(6));
+            add(priceLbl);
+            add(Box.createVerticalStrut(6));
+            add(stockLbl);
+        }
+
+        void configure(AdminService.BookInfo book, String currency, boolean selected) {
+            titleLbl.setText("<html><b>" + book.title + "</b></html>");
+            genreLbl.setText("Genre: " + book.genre);
+            priceLbl.setText("Price: " + CatalogCache.getInstance().getPrice(book, currency) + " " + currency);
+            stockLbl.setText("Stock: " + book.stockQuantity);
+
+            setBorder(BorderFactory.createCompoundBorder(
+                selected ? BorderFactory.createLineBorder(SELECTED_BORDER, 2) : BorderFactory.createLineBorder(CARD_BORDER),
+                new EmptyBorder(10, 10, 10, 10)));
+            setBackground(selected ? SELECTED_BG : Color.WHITE);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(getBackground());
+            g2.fillRoundRect(0, 0, getWidth(), getHeight(), 16, 16);
+        }
+    }
+}
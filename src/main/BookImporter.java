@@ -0,0 +1,513 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk import of books from a CSV or TSV file.
+ * The file is streamed in chunks: each chunk is validated on a worker pool with the same rules
+ * as AdminService.addBook while earlier chunks are written, and each chunk is inserted in one
+ * transaction as multi-row INSERTs of up to batchRows rows. Rows that fail validation, or that
+ * the database rejects, are written to a reject file with their line number and reason.
+ * The whole import is recorded as one admin_action_log entry.
+ */
+public class BookImporter {
+    public static final int DEFAULT_BATCH_ROWS = 500;
+    public static final int DEFAULT_CHUNK_ROWS = 5000;
+
+    // Column limits from the books table
+    private static final int MAX_TITLE_LENGTH = 200;
+    private static final int MAX_GENRE_LENGTH = 100;
+
+    private static final String[] COLUMNS = {"title", "genre", "price", "stock"};
+    private static final int TITLE = 0, GENRE = 1, PRICE = 2, STOCK = 3;
+
+    private static final int VALIDATE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final int batchRows;
+    private final int chunkRows;
+
+    /**
+     * Receives progress after every chunk, on the importing thread.
+     */
+    public interface ProgressListener {
+        void onProgress(long rowsRead, long imported, long rejected);
+    }
+
+    public BookImporter() {
+        this(DEFAULT_BATCH_ROWS, DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * @param batchRows Rows per INSERT statement
+     * @param chunkRows Rows per transaction; rounded up to a multiple of batchRows
+     */
+    public BookImporter(int batchRows, int chunkRows) {
+        if (batchRows <= 0 || chunkRows <= 0) {
+            throw new IllegalArgumentException("Batch and chunk sizes must be positive.");
+        }
+        this.batchRows = batchRows;
+        this.chunkRows = Math.max(batchRows, (chunkRows + batchRows - 1) / batchRows * batchRows);
+    }
+
+    /**
+     * Imports every valid row of the file. The header row names the columns title, genre,
+     * price and stock (or stock_quantity) in any order; other columns are ignored.
+     * Files ending in .tsv, or whose header has tabs but no commas, are read as tab-separated.
+     * @param adminUserId Admin's user ID
+     * @param file CSV or TSV file, UTF-8
+     * @param rejectFile Where rejected rows are written; only created if a row is rejected
+     * @param listener Progress callback, or null
+     * @return Counts for the import
+     * @throws IOException if the file cannot be read or has no usable header
+     * @throws SQLException if a chunk could be neither batch- nor row-inserted, e.g. the database is down;
+     *                      chunks committed before it stay imported
+     */
+    public ImportResult importFile(int adminUserId, Path file, Path rejectFile, ProgressListener listener)
+            throws IOException, SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        long start = System.nanoTime();
+        ExecutorService validators = Executors.newFixedThreadPool(VALIDATE_THREADS, task -> {
+            Thread thread = new Thread(task, "book-import-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Progress progress = new Progress();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Rejects rejects = new Rejects(rejectFile)) {
+            RecordReader records = new RecordReader(reader);
+            Record header = records.next(',');
+            if (header == null) {
+                throw new IOException("File is empty: " + file);
+            }
+            char delimiter = chooseDelimiter(file, header.raw);
+            if (delimiter != ',') {
+                header = RecordReader.split(header.raw, delimiter, header.line);
+            }
+            int[] columns = mapColumns(header.fields);
+            rejects.setHeader(header.fields);
+
+            // Validation of up to VALIDATE_THREADS chunks runs ahead of the writer
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            List<Record> pending = new ArrayList<>(chunkRows);
+            Record record;
+            while ((record = records.next(delimiter)) != null) {
+                if (record.isBlank()) continue;
+                pending.add(record);
+                progress.rowsRead++;
+                if (pending.size() == chunkRows) {
+                    List<Record> rows = pending;
+                    inFlight.add(validators.submit(() -> validate(rows, columns)));
+                    pending = new ArrayList<>(chunkRows);
+                    if (inFlight.size() > VALIDATE_THREADS) {
+                        write(adminUserId, await(inFlight.poll()), rejects, progress, listener);
+                    }
+                }
+            }
+            if (!pending.isEmpty()) {
+                List<Record> rows = pending;
+                inFlight.add(validators.submit(() -> validate(rows, columns)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(adminUserId, await(inFlight.poll()), rejects, progress, listener);
+            }
+        } finally {
+            validators.shutdownNow();
+            if (progress.rowsRead > 0) {
+                AuditLog.getInstance().record(adminUserId, "IMPORT_BOOKS", "Imported " + progress.imported
+                    + " books from " + file.getFileName() + " (" + progress.rejected + " rejected of "
+                    + progress.rowsRead + " rows)");
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new ImportResult(progress.rowsRead, progress.imported, progress.rejected,
+            progress.rejected > 0 ? rejectFile : null, elapsedMillis);
+    }
+
+    private static char chooseDelimiter(Path file, String headerLine) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".tsv") || name.endsWith(".tab")) return '\t';
+        if (headerLine.indexOf('\t') >= 0 && headerLine.indexOf(',') < 0) return '\t';
+        return ',';
+    }
+
+    private static int[] mapColumns(String[] header) throws IOException {
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].trim().toLowerCase(Locale.ROOT);
+            if (i == 0 && name.startsWith("\uFEFF")) name = name.substring(1);
+            if (name.equals("stock_quantity")) name = "stock";
+            byName.putIfAbsent(name, i);
+        }
+        int[] columns = new int[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            Integer index = byName.get(COLUMNS[c]);
+            if (index == null) {
+                throw new IOException("Missing column \"" + COLUMNS[c] + "\" in header");
+            }
+            columns[c] = index;
+        }
+        return columns;
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Validation failed", e.getCause());
+        }
+    }
+
+    // --- Validation stage (worker threads) ---
+
+    private static Chunk validate(List<Record> records, int[] columns) {
+        Chunk chunk = new Chunk(records.size());
+        for (Record record : records) {
+            try {
+                chunk.valid.add(parse(record, columns));
+            } catch (IllegalArgumentException e) {
+                chunk.rejected.add(new Rejected(record, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    private static BookRow parse(Record record, int[] columns) {
+        for (int column : columns) {
+            if (column >= record.fields.length) {
+                throw new IllegalArgumentException("Expected at least " + (column + 1) + " fields, found " + record.fields.length + ".");
+            }
+        }
+        String title = record.fields[columns[TITLE]];
+        String genre = record.fields[columns[GENRE]];
+        double price;
+        int stock;
+        try {
+            price = Double.parseDouble(record.fields[columns[PRICE]].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Price is not a number.");
+        }
+        try {
+            stock = Integer.parseInt(record.fields[columns[STOCK]].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Stock is not a whole number.");
+        }
+        if (!Double.isFinite(price)) {
+            throw new IllegalArgumentException("Price is not a number.");
+        }
+        AdminService.validateBookInput(title, genre, price, stock);
+        title = AdminService.sanitize(title);
+        genre = AdminService.sanitize(genre);
+        if (title.isEmpty() || genre.isEmpty()) {
+            throw new IllegalArgumentException("Title and genre cannot be empty after removing special characters.");
+        }
+        if (title.length() > MAX_TITLE_LENGTH) {
+            throw new IllegalArgumentException("Title is longer than " + MAX_TITLE_LENGTH + " characters.");
+        }
+        if (genre.length() > MAX_GENRE_LENGTH) {
+            throw new IllegalArgumentException("Genre is longer than " + MAX_GENRE_LENGTH + " characters.");
+        }
+        return new BookRow(record, title, genre, price, stock);
+    }
+
+    // --- Write stage (importing thread) ---
+
+    private void write(int adminUserId, Chunk chunk, Rejects rejects, Progress progress, ProgressListener listener)
+            throws IOException, SQLException {
+        for (Rejected r : chunk.rejected) {
+            rejects.write(r.record, r.reason);
+        }
+        progress.rejected += chunk.rejected.size();
+        if (!chunk.valid.isEmpty()) {
+            try {
+                progress.imported += TransactionRetry.run(() -> insertChunk(chunk.valid));
+            } catch (SQLException e) {
+                if (TransactionRetry.isRetryable(e)) throw e;
+                // Some row broke the batch; insert one at a time so only that row is rejected
+                insertRows(chunk.valid, rejects, progress);
+            }
+            CatalogCache.getInstance().bookAdded();
+        }
+        if (listener != null) {
+            listener.onProgress(progress.rowsRead, progress.imported, progress.rejected);
+        }
+    }
+
+    private int insertChunk(List<BookRow> rows) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int inserted = 0;
+                int tail = rows.size() % batchRows;
+                int from = 0;
+                if (rows.size() >= batchRows) {
+                    try (PreparedStatement stmt = conn.prepareStatement(insertSql(batchRows))) {
+                        for (; from + batchRows <= rows.size(); from += batchRows) {
+                            bind(stmt, rows, from, batchRows);
+                            inserted += stmt.executeUpdate();
+                        }
+                    }
+                }
+                if (tail > 0) {
+                    try (PreparedStatement stmt = conn.prepareStatement(insertSql(tail))) {
+                        bind(stmt, rows, from, tail);
+                        inserted += stmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void insertRows(List<BookRow> rows, Rejects rejects, Progress progress) throws IOException, SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(insertSql(1))) {
+            conn.setAutoCommit(true);
+            for (int i = 0; i < rows.size(); i++) {
+                bind(stmt, rows, i, 1);
+                try {
+                    progress.imported += stmt.executeUpdate();
+                } catch (SQLException e) {
+                    if (TransactionRetry.isRetryable(e) || !conn.isValid(2)) throw e;
+                    rejects.write(rows.get(i).record, e.getMessage());
+                    progress.rejected++;
+                }
+            }
+        }
+    }
+
+    private static String insertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder("INSERT INTO books (title, genre, price, stock_quantity) VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement stmt, List<BookRow> rows, int from, int count) throws SQLException {
+        int p = 1;
+        for (int i = from; i < from + count; i++) {
+            BookRow row = rows.get(i);
+            stmt.setString(p++, row.title);
+            stmt.setString(p++, row.genre);
+            stmt.setDouble(p++, row.price);
+            stmt.setInt(p++, row.stock);
+        }
+    }
+
+    // --- File reading ---
+
+    /**
+     * Reads delimited records, honouring double-quoted fields that contain delimiters,
+     * escaped quotes ("") or line breaks.
+     */
+    private static class RecordReader {
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        RecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        Record next(char delimiter) throws IOException {
+            String line = reader.readLine();
+            if (line == null) return null;
+            long startLine = ++lineNumber;
+            StringBuilder raw = new StringBuilder(line);
+            // An odd number of quotes means a quoted field continues on the next line
+            while (countQuotes(raw) % 2 != 0) {
+                String more = reader.readLine();
+                if (more == null) break;
+                lineNumber++;
+                raw.append('\n').append(more);
+            }
+            return split(raw.toString(), delimiter, startLine);
+        }
+
+        static Record split(String raw, char delimiter, long line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < raw.length(); i++) {
+                char c = raw.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < raw.length() && raw.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return new Record(line, raw, fields.toArray(new String[0]));
+        }
+
+        private static int countQuotes(CharSequence s) {
+            int n = 0;
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) == '"') n++;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Writes rejected rows as CSV: line, reason, then the row's original fields.
+     */
+    private static class Rejects implements AutoCloseable {
+        private final Path path;
+        private String[] header = new String[0];
+        private BufferedWriter out;
+
+        Rejects(Path path) {
+            this.path = path;
+        }
+
+        void setHeader(String[] header) {
+            this.header = header;
+        }
+
+        void write(Record record, String reason) throws IOException {
+            if (path == null) return;
+            if (out == null) {
+                out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                writeRow("line", "reason", header);
+            }
+            writeRow(String.valueOf(record.line), reason, record.fields);
+        }
+
+        private void writeRow(String line, String reason, String[] fields) throws IOException {
+            out.write(quote(line));
+            out.write(',');
+            out.write(quote(reason));
+            for (String field : fields) {
+                out.write(',');
+                out.write(quote(field));
+            }
+            out.newLine();
+        }
+
+        private static String quote(String s) {
+            if (s == null) return "";
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) out.close();
+        }
+    }
+
+    private static class Progress {
+        long rowsRead;
+        long imported;
+        long rejected;
+    }
+
+    private static class Record {
+        final long line;
+        final String raw;
+        final String[] fields;
+
+        Record(long line, String raw, String[] fields) {
+            this.line = line;
+            this.raw = raw;
+            this.fields = fields;
+        }
+
+        boolean isBlank() {
+            return raw.isBlank();
+        }
+    }
+
+    private static class BookRow {
+        final Record record;
+        final String title;
+        final String genre;
+        final double price;
+        final int stock;
+
+        BookRow(Record record, String title, String genre, double price, int stock) {
+            this.record = record;
+            this.title = title;
+            this.genre = genre;
+            this.price = price;
+            this.stock = stock;
+        }
+    }
+
+    private static class Rejected {
+        final Record record;
+        final String reason;
+
+        Rejected(Record record, String reason) {
+            this.record = record;
+            this.reason = reason;
+        }
+    }
+
+    private static class Chunk {
+        final List<BookRow> valid;
+        final List<Rejected> rejected = new ArrayList<>();
+
+        Chunk(int size) {
+            valid = new ArrayList<>(size);
+        }
+    }
+
+    // Data classes for return values
+    public static class ImportResult {
+        public final long rowsRead;
+        public final long imported;
+        public final long rejected;
+        public final Path rejectFile;
+        public final long elapsedMillis;
+        public ImportResult(long rowsRead, long imported, long rejected, Path rejectFile, long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.rejectFile = rejectFile;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+}
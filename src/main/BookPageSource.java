@@ -0,0 +1,83 @@
+package main;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Supplies catalog books one page at a time to BookGrid.
+ * Each call continues after the last book of the previous page.
+ */
+public interface BookPageSource {
+    // Keyset pages of the catalog grid; the next-page query is also explained by IndexAdvisor
+    String FIRST_PAGE_SQL = "SELECT book_id, title, genre, price, stock_quantity FROM books " +
+                            "ORDER BY title, book_id LIMIT ?";
+    String NEXT_PAGE_SQL = "SELECT book_id, title, genre, price, stock_quantity FROM books " +
+                           "WHERE title > ? OR (title = ? AND book_id > ?) " +
+                           "ORDER BY title, book_id LIMIT ?";
+
+    /**
+     * @param after Last book of the previous page, or null for the first page
+     * @param limit Maximum number of books to return
+     * @return The next page; fewer than limit books means there are no more
+     */
+    List<AdminService.BookInfo> fetchPage(AdminService.BookInfo after, int limit);
+
+    /**
+     * Pages through the books table ordered by (title, book_id) using keyset pagination,
+     * so every page is an index range read no matter how far the user has scrolled.
+     * @return A database-backed page source
+     */
+    static BookPageSource database() {
+        return (after, limit) -> {
+            List<AdminService.BookInfo> page = new ArrayList<>();
+            String sql = after == null ? FIRST_PAGE_SQL : NEXT_PAGE_SQL;
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int i = 1;
+                if (after != null) {
+                    stmt.setString(i++, after.title);
+                    stmt.setString(i++, after.title);
+                    stmt.setInt(i++, after.bookId);
+                }
+                stmt.setInt(i, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(new AdminService.BookInfo(
+                            rs.getInt("book_id"),
+                            rs.getString("title"),
+                            rs.getString("genre"),
+                            rs.getDouble("price"),
+                            rs.getInt("stock_quantity")
+                        ));
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return page;
+        };
+    }
+
+    /**
+     * Pages through an already computed result list, e.g. ranked search hits.
+     * @param books Books in display order
+     * @return A list-backed page source
+     */
+    static BookPageSource of(List<AdminService.BookInfo> books) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < books.size(); i++) {
+            positions.put(books.get(i).bookId, i);
+        }
+        return (after, limit) -> {
+            int from = after == null ? 0 : positions.getOrDefault(after.bookId, books.size() - 1) + 1;
+            if (from >= books.size()) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(books.subList(from, Math.min(books.size(), from + limit)));
+        };
+    }
+}
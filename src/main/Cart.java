@@ -13,11 +13,28 @@ public class Cart extends JFrame {
     private DefaultTableModel tableModel;
     private ArrayList<CartItem> cartItems = new ArrayList<>();
     private double total = 0.0;
-    private int selectedCurrencyId = 1;
     private CustomerCatalog catalog;
+    private final SessionContext session;
+    private final CartSession cartSession;
+    private final OrderService orderService = new OrderService();
+    private JLabel totalLabel;
+    private JButton orderBtn;
+    private JButton removeBtn;
+    private JButton clearBtn;
+    private JTable table;
 
     public Cart(CustomerCatalog catalog) {
+        this(catalog.getSession(), catalog);
+    }
+
+    public Cart(SessionContext session) {
+        this(session, null);
+    }
+
+    private Cart(SessionContext session, CustomerCatalog catalog) {
+        this.session = session;
         this.catalog = catalog;
+        this.cartSession = catalog != null ? catalog.getCartSession() : null;
 
         setTitle("🛒 Your Cart - BookMart");
         setSize(700, 450);
@@ -43,7 +60,7 @@ public class Cart extends JFrame {
 
         // Table
         tableModel = new DefaultTableModel(new String[]{"Title", "Quantity", "Price", "Subtotal"}, 0);
-        JTable table = new JTable(tableModel);
+        table = new JTable(tableModel);
 
         // Set custom header background color
         JTableHeader tableHeader = table.getTableHeader();
@@ -66,18 +83,16 @@ public class Cart extends JFrame {
         scrollPane.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
         add(scrollPane, BorderLayout.CENTER);
 
-        loadCart();
-
         // Bottom Panel
         JPanel bottomPanel = new JPanel(new BorderLayout());
         bottomPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
         bottomPanel.setBackground(new Color(0xf4f6fa));
 
-        JLabel totalLabel = new JLabel("Total: ₱ " + String.format("%.2f", total));
+        totalLabel = new JLabel("Total: ₱ " + String.format("%.2f", total));
         totalLabel.setFont(new Font("SansSerif", Font.BOLD, 16));
         totalLabel.setForeground(new Color(0xc0722c));
 
-        JButton orderBtn = new JButton("✅ Place Order");
+        orderBtn = new JButton("✅ Place Order");
         orderBtn.setFont(style.getFont("button.font"));
         orderBtn.setBackground(style.getColor("button.bg"));
         orderBtn.setForeground(style.getColor("button.fg"));
@@ -87,45 +102,106 @@ public class Cart extends JFrame {
 
         orderBtn.addActionListener(e -> placeOrder());
 
+        removeBtn = new JButton("Remove");
+        clearBtn = new JButton("Clear Cart");
+        for (JButton btn : new JButton[]{removeBtn, clearBtn}) {
+            btn.setFont(style.getFont("button.font"));
+            btn.setBackground(style.getColor("button.bg"));
+            btn.setForeground(style.getColor("button.fg"));
+            btn.setFocusPainted(false);
+            btn.setBorder(style.getRoundedBorder(30));
+            btn.setPreferredSize(new Dimension(110, 35));
+        }
+        removeBtn.addActionListener(e -> removeSelected());
+        clearBtn.addActionListener(e -> clearCart());
+
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        actions.setOpaque(false);
+        actions.add(removeBtn);
+        actions.add(clearBtn);
+        actions.add(orderBtn);
+
         bottomPanel.add(totalLabel, BorderLayout.WEST);
-        bottomPanel.add(orderBtn, BorderLayout.EAST);
+        bottomPanel.add(actions, BorderLayout.EAST);
 
         add(bottomPanel, BorderLayout.SOUTH);
-    }
 
-    public Cart() {
-        this(null);
+        loadCart();
     }
 
     private void loadCart() {
-        cartItems.clear();
-        total = 0.0;
-
-        try (Connection conn = DBConnection.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("""
-                SELECT c.book_id, b.title, c.quantity, b.price, (c.quantity * b.price) AS subtotal
-                FROM cart_items c
-                JOIN books b ON c.book_id = b.book_id
-                WHERE c.user_id = ?
-            """);
-            stmt.setInt(1, LoginScreen.loggedInUserId);
-            ResultSet rs = stmt.executeQuery();
+        setButtonsEnabled(false);
+        SwingAsync.onEdt(AsyncDB.supply(() -> fetchCart(session, cartSession)), contents -> {
+            cartItems.clear();
+            cartItems.addAll(contents.items);
+            total = contents.total;
             tableModel.setRowCount(0);
+            for (Object[] row : contents.rows) {
+                tableModel.addRow(row);
+            }
+            totalLabel.setText("Total: ₱ " + String.format("%.2f", total));
+            setButtonsEnabled(true);
+        });
+    }
 
-            while (rs.next()) {
-                int bookId = rs.getInt("book_id");
-                String title = rs.getString("title");
-                int qty = rs.getInt("quantity");
-                double price = rs.getDouble("price");
-                double subtotal = rs.getDouble("subtotal");
-                cartItems.add(new CartItem(bookId, qty, price));
-                total += subtotal;
+    private void setButtonsEnabled(boolean enabled) {
+        orderBtn.setEnabled(enabled);
+        removeBtn.setEnabled(enabled);
+        clearBtn.setEnabled(enabled);
+    }
 
-                tableModel.addRow(new Object[]{title, qty, price, subtotal});
+    private void removeSelected() {
+        int row = table.getSelectedRow();
+        if (row < 0 || row >= cartItems.size()) {
+            JOptionPane.showMessageDialog(this, "Select a book to remove.");
+            return;
+        }
+        int bookId = cartItems.get(row).bookId;
+        setButtonsEnabled(false);
+        SwingAsync.onEdt(AsyncDB.supply(() -> {
+            // Write queued adds first, or a pending add would bring the line back
+            if (cartSession != null) {
+                cartSession.flush();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            new CartService().removeFromCart(session, bookId);
+            return null;
+        }), done -> loadCart(), error -> {
+            error.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Failed to remove the book.");
+            setButtonsEnabled(true);
+        });
+    }
+
+    private void clearCart() {
+        if (cartItems.isEmpty()) return;
+        setButtonsEnabled(false);
+        SwingAsync.onEdt(AsyncDB.supply(() -> {
+            if (cartSession != null) {
+                cartSession.flush();
+            }
+            new CartService().clearCart(session);
+            return null;
+        }), done -> loadCart(), error -> {
+            error.printStackTrace();
+            JOptionPane.showMessageDialog(this, "❌ Failed to clear the cart.");
+            setButtonsEnabled(true);
+        });
+    }
+
+    /**
+     * Writes queued adds, then reads the user's cart. Runs on the AsyncDB executor.
+     */
+    private static CartContents fetchCart(SessionContext session, CartSession cartSession) throws SQLException {
+        if (cartSession != null) {
+            cartSession.flush();
+        }
+        CartContents contents = new CartContents();
+        for (CartService.CartLine line : new CartService().getCart(session)) {
+            contents.items.add(new CartItem(line.bookId, line.quantity, line.price));
+            contents.total += line.subtotal;
+            contents.rows.add(new Object[]{line.title, line.quantity, line.price, line.subtotal});
         }
+        return contents;
     }
 
     private void placeOrder() {
@@ -134,63 +210,15 @@ public class Cart extends JFrame {
             return;
         }
 
-        try (Connection conn = DBConnection.getConnection()) {
-            conn.setAutoCommit(false);
-
-            PreparedStatement currencyStmt = conn.prepareStatement("SELECT currency_id FROM currencies WHERE currency_code = 'PHP'");
-            ResultSet cr = currencyStmt.executeQuery();
-            if (cr.next()) selectedCurrencyId = cr.getInt("currency_id");
-
-            PreparedStatement orderStmt = conn.prepareStatement(
-                "INSERT INTO orders (user_id, total_amount, currency_id, status) VALUES (?, ?, ?, 'Pending')",
-                Statement.RETURN_GENERATED_KEYS
-            );
-            orderStmt.setInt(1, LoginScreen.loggedInUserId);
-            orderStmt.setDouble(2, total);
-            orderStmt.setInt(3, selectedCurrencyId);
-            orderStmt.executeUpdate();
-
-            ResultSet rs = orderStmt.getGeneratedKeys();
-            int orderId = -1;
-            if (rs.next()) {
-                orderId = rs.getInt(1);
-            }
-
-            PreparedStatement itemStmt = conn.prepareStatement(
-                "INSERT INTO order_items (order_id, book_id, quantity, price_each) VALUES (?, ?, ?, ?)"
-            );
-            for (CartItem item : cartItems) {
-                itemStmt.setInt(1, orderId);
-                itemStmt.setInt(2, item.bookId);
-                itemStmt.setInt(3, item.quantity);
-                itemStmt.setDouble(4, item.price);
-                itemStmt.addBatch();
+        setButtonsEnabled(false);
+        // Priced and stock-checked server-side in one call; the displayed total is informational only
+        SwingAsync.onEdt(AsyncDB.supply(() -> {
+            // Adds queued since the cart was opened are part of the order
+            if (cartSession != null) {
+                cartSession.flush();
             }
-            itemStmt.executeBatch();
-
-            PreparedStatement updateStockStmt = conn.prepareStatement(
-                "UPDATE books SET stock_quantity = stock_quantity - ? WHERE book_id = ? AND stock_quantity >= ?"
-            );
-            for (CartItem item : cartItems) {
-                updateStockStmt.setInt(1, item.quantity);
-                updateStockStmt.setInt(2, item.bookId);
-                updateStockStmt.setInt(3, item.quantity);
-                updateStockStmt.addBatch();
-            }
-            int[] updateCounts = updateStockStmt.executeBatch();
-            for (int count : updateCounts) {
-                if (count == 0) {
-                    conn.rollback();
-                    JOptionPane.showMessageDialog(this, "❌ Failed to update stock. Possibly insufficient stock.");
-                    return;
-                }
-            }
-
-            PreparedStatement clearCartStmt = conn.prepareStatement("DELETE FROM cart_items WHERE user_id = ?");
-            clearCartStmt.setInt(1, LoginScreen.loggedInUserId);
-            clearCartStmt.executeUpdate();
-
-            conn.commit();
+            return orderService.placeOrder(session, "PHP");
+        }), orderId -> {
             JOptionPane.showMessageDialog(this, "✅ Order placed!");
 
             if (catalog != null) {
@@ -198,11 +226,23 @@ public class Cart extends JFrame {
             }
 
             this.dispose();
+        }, error -> {
+            setButtonsEnabled(true);
+            if (error instanceof SQLException && OrderService.isInsufficientStock((SQLException) error)) {
+                JOptionPane.showMessageDialog(this, "❌ Failed to update stock. Possibly insufficient stock.");
+            } else if (error instanceof SQLException && OrderService.isCartEmpty((SQLException) error)) {
+                JOptionPane.showMessageDialog(this, "🛑 Cart is empty.");
+            } else {
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this, "❌ Failed to place order.");
+            }
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "❌ Failed to place order.");
-        }
+    private static class CartContents {
+        final ArrayList<CartItem> items = new ArrayList<>();
+        final ArrayList<Object[]> rows = new ArrayList<>();
+        double total = 0.0;
     }
 
     private static class CartItem {
@@ -0,0 +1,220 @@
+package main;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class for a customer's shopping cart. Holds no per-user state, so one instance
+ * can serve any number of sessions concurrently.
+ */
+public class CartService {
+    // A user's cart with current prices; also explained by IndexAdvisor
+    static final String CART_SQL = """
+        SELECT c.book_id, b.title, c.quantity, b.price, (c.quantity * b.price) AS subtotal
+        FROM cart_items c
+        JOIN books b ON c.book_id = b.book_id
+        WHERE c.user_id = ?
+        ORDER BY c.book_id
+        """;
+
+    /**
+     * Checks stock and adds the book to the user's cart.
+     * @param session Customer's session
+     * @param bookId Book ID
+     * @param qty Quantity to add
+     * @return Whether the book was added, and the stock seen when it was not
+     * @throws SQLException if the cart could not be updated
+     */
+    public AddResult addToCart(SessionContext session, int bookId, int qty) throws SQLException {
+        int userId = session.getUserId();
+        try (Connection conn = DBConnection.getConnection()) {
+            PreparedStatement stockStmt = conn.prepareStatement("SELECT stock_quantity FROM books WHERE book_id = ?");
+            stockStmt.setInt(1, bookId);
+            ResultSet rs = stockStmt.executeQuery();
+            if (rs.next()) {
+                int stock = rs.getInt(1);
+                if (qty > stock) {
+                    return new AddResult(false, stock);
+                }
+            }
+
+            PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO cart_items (user_id, book_id, quantity) VALUES (?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)");
+            stmt.setInt(1, userId);
+            stmt.setInt(2, bookId);
+            stmt.setInt(3, qty);
+            stmt.executeUpdate();
+            return new AddResult(true, -1);
+        }
+    }
+
+    /**
+     * Adds several books to the user's cart in one transaction: one query checks each book's
+     * stock against what the cart will hold afterwards, and one multi-row upsert writes the
+     * lines that fit. Lines that do not fit are left out; the rest are still added.
+     * @param session Customer's session
+     * @param quantities Quantity to add per book ID
+     * @return Lines left out for lack of stock; empty if everything was added
+     * @throws SQLException if the cart could not be updated; nothing was added
+     */
+    public List<Rejection> addToCart(SessionContext session, Map<Integer, Integer> quantities) throws SQLException {
+        List<Rejection> rejected = new ArrayList<>();
+        if (quantities.isEmpty()) return rejected;
+        int userId = session.getUserId();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("No database connection.");
+            conn.setAutoCommit(false);
+            try {
+                // Stock and units already in the cart, for every book in one round trip
+                Map<Integer, Integer> available = new HashMap<>();
+                String placeholders = "?, ".repeat(quantities.size() - 1) + "?";
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT b.book_id, b.stock_quantity - COALESCE(SUM(c.quantity), 0) " +
+                        "FROM books b LEFT JOIN cart_items c ON c.book_id = b.book_id AND c.user_id = ? " +
+                        "WHERE b.book_id IN (" + placeholders + ") GROUP BY b.book_id, b.stock_quantity")) {
+                    int p = 1;
+                    stmt.setInt(p++, userId);
+                    for (int bookId : quantities.keySet()) {
+                        stmt.setInt(p++, bookId);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            available.put(rs.getInt(1), Math.max(0, rs.getInt(2)));
+                        }
+                    }
+                }
+
+                Map<Integer, Integer> accepted = new LinkedHashMap<>();
+                for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+                    int left = available.getOrDefault(line.getKey(), 0);
+                    if (line.getValue() > left) {
+                        rejected.add(new Rejection(line.getKey(), line.getValue(), left));
+                    } else {
+                        accepted.put(line.getKey(), line.getValue());
+                    }
+                }
+
+                if (!accepted.isEmpty()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "INSERT INTO cart_items (user_id, book_id, quantity) VALUES " +
+                            "(?, ?, ?), ".repeat(accepted.size() - 1) + "(?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)")) {
+                        int p = 1;
+                        for (Map.Entry<Integer, Integer> line : accepted.entrySet()) {
+                            stmt.setInt(p++, userId);
+                            stmt.setInt(p++, line.getKey());
+                            stmt.setInt(p++, line.getValue());
+                        }
+                        stmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return rejected;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Removes one book's line from the user's cart.
+     * @param session Customer's session
+     * @param bookId Book ID
+     * @throws SQLException if the cart could not be updated
+     */
+    public void removeFromCart(SessionContext session, int bookId) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("CALL removeFromCart(?, ?)")) {
+            // The procedure logs the line and deletes it; one transaction keeps the two together
+            conn.setAutoCommit(false);
+            stmt.setInt(1, session.getUserId());
+            stmt.setInt(2, bookId);
+            stmt.execute();
+            conn.commit();
+        }
+    }
+
+    /**
+     * Empties the user's cart.
+     * @param session Customer's session
+     * @throws SQLException if the cart could not be updated
+     */
+    public void clearCart(SessionContext session) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("CALL clearCart(?)")) {
+            conn.setAutoCommit(false);
+            stmt.setInt(1, session.getUserId());
+            stmt.execute();
+            conn.commit();
+        }
+    }
+
+    /**
+     * Reads the user's cart with current catalog prices.
+     * @param session Customer's session
+     * @return Cart lines
+     * @throws SQLException if the cart could not be read
+     */
+    public List<CartLine> getCart(SessionContext session) throws SQLException {
+        List<CartLine> lines = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(CART_SQL);
+            stmt.setInt(1, session.getUserId());
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                lines.add(new CartLine(
+                    rs.getInt("book_id"),
+                    rs.getString("title"),
+                    rs.getInt("quantity"),
+                    rs.getDouble("price"),
+                    rs.getDouble("subtotal")
+                ));
+            }
+        }
+        return lines;
+    }
+
+    // Data classes for return values
+    public static class AddResult {
+        public final boolean added;
+        public final int stockAvailable;
+        public AddResult(boolean added, int stockAvailable) {
+            this.added = added;
+            this.stockAvailable = stockAvailable;
+        }
+    }
+
+    public static class Rejection {
+        public final int bookId;
+        public final int requested;
+        /** Units that could still be added when the line was checked */
+        public final int available;
+        public Rejection(int bookId, int requested, int available) {
+            this.bookId = bookId;
+            this.requested = requested;
+            this.available = available;
+        }
+    }
+
+    public static class CartLine {
+        public final int bookId;
+        public final String title;
+        public final int quantity;
+        public final double price;
+        public final double subtotal;
+        public CartLine(int bookId, String title, int quantity, double price, double subtotal) {
+            this.bookId = bookId;
+            this.title = title;
+            this.quantity = quantity;
+            this.price = price;
+            this.subtotal = subtotal;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package main;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for one customer's cart in the desktop client.
+ * Adds are checked against the cached catalog stock and coalesced per book in memory, then
+ * written by CartService.addToCart in one batched upsert FLUSH_DELAY_MS after the first
+ * pending add, so a burst of clicks costs one transaction instead of two round trips each.
+ * The database stock check happens at flush time; lines that no longer fit are reported to
+ * the RejectionListener. Call flush() before reading the cart and before checkout, and close()
+ * when the customer leaves; a session not closed is flushed at JVM shutdown.
+ */
+public class CartSession {
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "cart-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Receives lines a flush left out for lack of stock, on the thread that flushed.
+     */
+    public interface RejectionListener {
+        void onRejected(List<CartService.Rejection> rejected);
+    }
+
+    private final SessionContext session;
+    private final CartService cartService = new CartService();
+    private final RejectionListener listener;
+    // Guarded by this
+    private final Map<Integer, Integer> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduled;
+    // Held for a whole flush, so batches reach the database in the order they were taken
+    private final Object flushLock = new Object();
+    private final Runnable shutdownFlush = this::flushAtShutdown;
+
+    /**
+     * @param session Customer's session
+     * @param listener Told about lines rejected at flush time, or null
+     */
+    public CartSession(SessionContext session, RejectionListener listener) {
+        this.session = session;
+        this.listener = listener;
+        DBConnection.runBeforePoolClose(shutdownFlush);
+    }
+
+    /**
+     * Queues books for the cart. Checks the stock of the caller's copy of the book, which can be
+     * slightly stale; the flush checks again against the database. Does no database I/O, so it
+     * may be called on the EDT.
+     * @param book Book as loaded by the catalog grid
+     * @param qty Quantity to add
+     * @return Whether the book was queued, and the units still available when it was not
+     */
+    public synchronized CartService.AddResult add(AdminService.BookInfo book, int qty) {
+        int queued = pending.getOrDefault(book.bookId, 0);
+        if (queued + qty > book.stockQuantity) {
+            return new CartService.AddResult(false, Math.max(0, book.stockQuantity - queued));
+        }
+        pending.merge(book.bookId, qty, Integer::sum);
+        schedule(FLUSH_DELAY_MS);
+        return new CartService.AddResult(true, -1);
+    }
+
+    /**
+     * @return Units queued and not yet written to the database
+     */
+    public synchronized int getPendingUnits() {
+        return pending.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Writes every queued add now, on the calling thread.
+     * @throws SQLException if the batch could not be written; it stays queued and a retry is
+     *         scheduled, as when a RuntimeException escapes
+     */
+    public void flush() throws SQLException {
+        synchronized (flushLock) {
+            Map<Integer, Integer> batch;
+            synchronized (this) {
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                    scheduled = null;
+                }
+                if (pending.isEmpty()) return;
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            List<CartService.Rejection> rejected;
+            try {
+                rejected = cartService.addToCart(session, batch);
+            } catch (SQLException | RuntimeException e) {
+                // Put the batch back, merged with anything added meanwhile
+                synchronized (this) {
+                    batch.forEach((bookId, qty) -> pending.merge(bookId, qty, Integer::sum));
+                    schedule(RETRY_DELAY_MS);
+                }
+                throw e;
+            }
+            if (!rejected.isEmpty() && listener != null) {
+                listener.onRejected(rejected);
+            }
+        }
+    }
+
+    /**
+     * Writes every queued add and detaches the session from the shutdown flush, e.g. at logout.
+     * Call off the EDT.
+     * @throws SQLException if the adds could not be written; they stay queued, retries continue
+     *         and the shutdown flush still covers them
+     */
+    public void close() throws SQLException {
+        flush();
+        DBConnection.cancelBeforePoolClose(shutdownFlush);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flushAtShutdown() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Cart adds for user " + session.getUserId() + " could not be saved: " + getPendingUnits() + " units");
+            e.printStackTrace();
+        }
+    }
+
+    // Caller holds this
+    private void schedule(long delayMs) {
+        if (scheduled == null && !pending.isEmpty()) {
+            scheduled = flusher.schedule(this::flushQuietly, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package main;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared in-memory copy of the books table, keyed by book_id.
+ * Writers bump the catalog version and mark the rows they touched; readers
+ * then re-query only those rows instead of the whole table. A periodic full
+ * reload picks up changes made by other processes. Keyword search is answered
+ * from a CatalogSearchIndex kept in step with the cached rows, and prices in
+ * every currency from a PriceTable rebuilt only when rates or prices change.
+ */
+public class CatalogCache {
+    private static final CatalogCache INSTANCE = new CatalogCache();
+
+    private static final long FULL_RELOAD_INTERVAL_MS = 5 * 60 * 1000;
+    private static final String BOOK_COLUMNS = "SELECT book_id, title, genre, price, stock_quantity FROM books";
+
+    private final ConcurrentSkipListMap<Integer, AdminService.BookInfo> books = new ConcurrentSkipListMap<>();
+    private final CatalogSearchIndex searchIndex = new CatalogSearchIndex();
+    private final Map<String, Double> exchangeRates = new ConcurrentHashMap<>();
+    private final Set<Integer> changedIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong version = new AtomicLong();
+    private volatile PriceTable prices = PriceTable.EMPTY;
+    // Collected during a refresh, applied to the price table at its end
+    private boolean pricesRebuild = false;
+    private final Map<Integer, Double> changedPrices = new HashMap<>();
+
+    private volatile long loadedVersion = -1;
+    private volatile long lastFullReload = 0;
+    private volatile boolean booksAdded = false;
+    private volatile boolean fullReloadRequested = true;
+    private volatile boolean ratesStale = true;
+
+    private CatalogCache() {
+    }
+
+    public static CatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Current catalog version; bumped on every catalog write
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Marks a book as changed (updated, removed or stock adjusted).
+     * @param bookId Book ID that changed
+     */
+    public void bookChanged(int bookId) {
+        changedIds.add(bookId);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Marks several books as changed, e.g. all lines of a checkout.
+     * @param bookIds Book IDs that changed
+     */
+    public void booksChanged(Iterable<Integer> bookIds) {
+        for (int bookId : bookIds) {
+            changedIds.add(bookId);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Marks that new books were inserted; they are fetched by book_id above the highest cached ID.
+     */
+    public void bookAdded() {
+        booksAdded = true;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Marks the cached exchange rates as stale.
+     */
+    public void exchangeRatesChanged() {
+        ratesStale = true;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Drops everything so the next read reloads the full table.
+     */
+    public void invalidateAll() {
+        fullReloadRequested = true;
+        ratesStale = true;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Loads the catalog and builds the search index on a background thread,
+     * so the first search does not pay for the initial load.
+     */
+    public void preload() {
+        Thread loader = new Thread(this::refreshIfStale, "catalog-preload");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * @return All books ordered by book_id
+     */
+    public List<AdminService.BookInfo> getAllBooks() {
+        refreshIfStale();
+        return new ArrayList<>(books.values());
+    }
+
+    /**
+     * @param bookId Book ID
+     * @return The cached book, or null if it does not exist
+     */
+    public AdminService.BookInfo getBook(int bookId) {
+        refreshIfStale();
+        return books.get(bookId);
+    }
+
+    /**
+     * Looks up a book without refreshing the cache, for callers on the EDT.
+     * @param bookId Book ID
+     * @return The cached book as of the last refresh, or null if it is not cached
+     */
+    public AdminService.BookInfo peekBook(int bookId) {
+        return books.get(bookId);
+    }
+
+    /**
+     * Case-insensitive substring match on title or genre, same rows as the old LIKE '%kw%' query.
+     * @param keyword Search text; empty matches everything
+     * @return Matching books, ranked by CatalogSearchIndex (book_id order when keyword is empty)
+     */
+    public List<AdminService.BookInfo> search(String keyword) {
+        refreshIfStale();
+        return searchIndex.search(keyword);
+    }
+
+    /**
+     * @param currencyCode Currency code (e.g., USD)
+     * @return Exchange rate to PHP, or null if the currency is unknown
+     */
+    public Double getExchangeRate(String currencyCode) {
+        refreshIfStale();
+        return exchangeRates.get(currencyCode);
+    }
+
+    /**
+     * Converts a PHP price the same way the catalog queries did: ROUND(price / rate, 2).
+     * Uses the rates from the last refresh and never touches the database, so it is safe
+     * to call while painting.
+     * @param pricePhp Price in PHP
+     * @param currencyCode Target currency
+     * @return Converted price, or the PHP price if the currency is unknown
+     */
+    public double convertPrice(double pricePhp, String currencyCode) {
+        Double rate = exchangeRates.get(currencyCode);
+        return rate == null ? pricePhp : PriceTable.convert(pricePhp, rate);
+    }
+
+    /**
+     * Looks the book's price up in the precomputed price table, converting only if the
+     * table does not have it yet. Never touches the database, so it is safe to call while painting.
+     * @param book Book being shown
+     * @param currencyCode Target currency
+     * @return Converted price, or the PHP price if the currency is unknown
+     */
+    public double getPrice(AdminService.BookInfo book, String currencyCode) {
+        double price = prices.price(book.bookId, book.price, currencyCode);
+        return Double.isNaN(price) ? convertPrice(book.price, currencyCode) : price;
+    }
+
+    /**
+     * @return Every cached book's price in every currency, as of the last refresh
+     */
+    public PriceTable getPriceTable() {
+        refreshIfStale();
+        return prices;
+    }
+
+    private void putBook(AdminService.BookInfo book) {
+        AdminService.BookInfo old = books.put(book.bookId, book);
+        searchIndex.put(book);
+        if (old == null) {
+            pricesRebuild = true;
+        } else if (old.price != book.price) {
+            changedPrices.put(book.bookId, book.price);
+        }
+    }
+
+    private void removeBook(int bookId) {
+        if (books.remove(bookId) != null) {
+            pricesRebuild = true;
+        }
+        searchIndex.remove(bookId);
+    }
+
+    /**
+     * Brings the price table in line with the books and rates loaded by this refresh:
+     * patches changed prices in a copy, or rebuilds when rates or the set of books changed.
+     */
+    private void updatePrices() {
+        if (!pricesRebuild && !changedPrices.isEmpty()) {
+            PriceTable patched = prices.withPrices(changedPrices);
+            if (patched == null) {
+                pricesRebuild = true;
+            } else {
+                prices = patched;
+            }
+        }
+        if (pricesRebuild) {
+            prices = PriceTable.build(books.values(), exchangeRates);
+        }
+        pricesRebuild = false;
+        changedPrices.clear();
+    }
+
+    private void refreshIfStale() {
+        boolean due = System.currentTimeMillis() - lastFullReload >= FULL_RELOAD_INTERVAL_MS;
+        if (!due && loadedVersion == version.get()) {
+            return;
+        }
+        synchronized (this) {
+            long target = version.get();
+            due = System.currentTimeMillis() - lastFullReload >= FULL_RELOAD_INTERVAL_MS;
+            if (!due && loadedVersion == target) {
+                return;
+            }
+            try (Connection conn = DBConnection.getConnection()) {
+                if (conn == null) return;
+                if (ratesStale || due || fullReloadRequested) {
+                    ratesStale = false;
+                    loadExchangeRates(conn);
+                }
+                if (due || fullReloadRequested) {
+                    fullReloadRequested = false;
+                    booksAdded = false;
+                    changedIds.clear();
+                    loadAll(conn);
+                    lastFullReload = System.currentTimeMillis();
+                } else {
+                    if (booksAdded) {
+                        booksAdded = false;
+                        loadAdded(conn);
+                    }
+                    reloadChanged(conn);
+                }
+                loadedVersion = target;
+            } catch (SQLException e) {
+                fullReloadRequested = true;
+                e.printStackTrace();
+            }
+            updatePrices();
+        }
+    }
+
+    private void loadAll(Connection conn) throws SQLException {
+        Map<Integer, AdminService.BookInfo> fresh = new ConcurrentSkipListMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(BOOK_COLUMNS + " ORDER BY book_id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                AdminService.BookInfo book = readBook(rs);
+                fresh.put(book.bookId, book);
+            }
+        }
+        for (Integer bookId : books.keySet()) {
+            if (!fresh.containsKey(bookId)) {
+                removeBook(bookId);
+            }
+        }
+        for (AdminService.BookInfo book : fresh.values()) {
+            putBook(book);
+        }
+    }
+
+    private void loadAdded(Connection conn) throws SQLException {
+        int maxId = books.isEmpty() ? 0 : books.lastKey();
+        try (PreparedStatement stmt = conn.prepareStatement(BOOK_COLUMNS + " WHERE book_id > ? ORDER BY book_id")) {
+            stmt.setInt(1, maxId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    AdminService.BookInfo book = readBook(rs);
+                    putBook(book);
+                }
+            }
+        }
+    }
+
+    private void reloadChanged(Connection conn) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        for (Iterator<Integer> it = changedIds.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        if (ids.isEmpty()) return;
+
+        StringBuilder sql = new StringBuilder(BOOK_COLUMNS).append(" WHERE book_id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            List<Integer> missing = new ArrayList<>(ids);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    AdminService.BookInfo book = readBook(rs);
+                    putBook(book);
+                    missing.remove(Integer.valueOf(book.bookId));
+                }
+            }
+            // Rows that no longer exist were removed
+            for (int bookId : missing) {
+                removeBook(bookId);
+            }
+        } catch (SQLException e) {
+            changedIds.addAll(ids);
+            throw e;
+        }
+    }
+
+    private void loadExchangeRates(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT currency_code, exchange_rate_to_php FROM currencies");
+             ResultSet rs = stmt.executeQuery()) {
+            Map<String, Double> fresh = new ConcurrentHashMap<>();
+            while (rs.next()) {
+                fresh.put(rs.getString("currency_code"), rs.getDouble("exchange_rate_to_php"));
+            }
+            exchangeRates.keySet().retainAll(fresh.keySet());
+            exchangeRates.putAll(fresh);
+            pricesRebuild = true;
+        } catch (SQLException e) {
+            ratesStale = true;
+            throw e;
+        }
+    }
+
+    private static AdminService.BookInfo readBook(ResultSet rs) throws SQLException {
+        return new AdminService.BookInfo(
+            rs.getInt("book_id"),
+            rs.getString("title"),
+            rs.getString("genre"),
+            rs.getDouble("price"),
+            rs.getInt("stock_quantity")
+        );
+    }
+}
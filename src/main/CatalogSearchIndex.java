@@ -0,0 +1,287 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process trigram inverted index over book titles and genres.
+ * Matches the same rows as the old "title LIKE '%kw%' OR genre LIKE '%kw%'" query
+ * without scanning every book: each field is split into 3-character grams, each gram's
+ * posting list is a sorted int[] of book IDs, a query is answered by intersecting the
+ * lists of its grams, and only those candidates are checked and ranked. Keywords shorter
+ * than a gram match most of the catalog anyway and are answered by scanning every book.
+ */
+public class CatalogSearchIndex {
+    private static final int GRAM = 3;
+
+    // Rank buckets, best first
+    private static final int RANK_TITLE_EXACT = 0;
+    private static final int RANK_TITLE_PREFIX = 1;
+    private static final int RANK_TITLE_WORD = 2;
+    private static final int RANK_TITLE_CONTAINS = 3;
+    private static final int RANK_GENRE_EXACT = 4;
+    private static final int RANK_GENRE_CONTAINS = 5;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Integer, IndexedBook> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds or replaces a book in the index.
+     * @param book Book to index
+     */
+    public void put(AdminService.BookInfo book) {
+        IndexedBook doc = new IndexedBook(book);
+        lock.writeLock().lock();
+        try {
+            IndexedBook old = documents.put(book.bookId, doc);
+            if (old != null) {
+                if (old.title.equals(doc.title) && old.genre.equals(doc.genre)) {
+                    // Price/stock change only; postings are unchanged
+                    return;
+                }
+                unlink(old);
+            }
+            for (String gram : doc.grams()) {
+                postings.computeIfAbsent(gram, g -> new PostingList()).add(book.bookId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the index.
+     * @param bookId Book ID to remove
+     */
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            IndexedBook old = documents.remove(bookId);
+            if (old != null) {
+                unlink(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every indexed book.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds books whose title or genre contains the keyword, case-insensitively.
+     * Results are ranked: exact title, title prefix, title word prefix, title substring,
+     * then genre matches; ties are broken by title and book_id.
+     * @param keyword Search text; empty returns every book in book_id order
+     * @return Ranked matching books
+     */
+    public List<AdminService.BookInfo> search(String keyword) {
+        String kw = normalize(keyword);
+        lock.readLock().lock();
+        try {
+            if (kw.isEmpty()) {
+                List<AdminService.BookInfo> all = new ArrayList<>(documents.size());
+                for (IndexedBook doc : documents.values()) {
+                    all.add(doc.book);
+                }
+                all.sort(Comparator.comparingInt((AdminService.BookInfo b) -> b.bookId));
+                return all;
+            }
+
+            List<Ranked> hits = new ArrayList<>();
+            if (kw.length() < GRAM) {
+                for (IndexedBook doc : documents.values()) {
+                    addIfMatches(doc, kw, hits);
+                }
+            } else {
+                for (int bookId : candidates(kw)) {
+                    addIfMatches(documents.get(bookId), kw, hits);
+                }
+            }
+            hits.sort(Comparator.comparingInt((Ranked r) -> r.rank)
+                .thenComparing(r -> r.doc.title)
+                .thenComparingInt(r -> r.doc.book.bookId));
+
+            List<AdminService.BookInfo> result = new ArrayList<>(hits.size());
+            for (Ranked hit : hits) {
+                result.add(hit.doc.book);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addIfMatches(IndexedBook doc, String kw, List<Ranked> hits) {
+        int rank = doc.rank(kw);
+        if (rank >= 0) {
+            hits.add(new Ranked(doc, rank));
+        }
+    }
+
+    /**
+     * @return Sorted IDs of the books holding every gram of the keyword; a superset of the matches
+     */
+    private int[] candidates(String kw) {
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= kw.length(); i++) {
+            PostingList list = postings.get(kw.substring(i, i + GRAM));
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, PostingList b) {
+        int[] out = new int[Math.min(a.length, b.size)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.size) {
+            if (a[i] < b.ids[j]) {
+                i++;
+            } else if (a[i] > b.ids[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private void unlink(IndexedBook doc) {
+        for (String gram : doc.grams()) {
+            PostingList list = postings.get(gram);
+            if (list != null) {
+                list.remove(doc.book.bookId);
+                if (list.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void addGrams(String text, Set<String> out) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            out.add(text.substring(i, i + GRAM));
+        }
+    }
+
+    /**
+     * Book IDs holding one gram, sorted and distinct. The catalog loads in book_id order,
+     * so adds are almost always appends; other adds and removes shift the tail.
+     */
+    private static class PostingList {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int bookId) {
+            int pos = size;
+            if (size > 0 && ids[size - 1] >= bookId) {
+                pos = Arrays.binarySearch(ids, 0, size, bookId);
+                if (pos >= 0) return;
+                pos = -pos - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = bookId;
+            size++;
+        }
+
+        void remove(int bookId) {
+            int pos = Arrays.binarySearch(ids, 0, size, bookId);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+    }
+
+    private static class IndexedBook {
+        final AdminService.BookInfo book;
+        final String title;
+        final String genre;
+
+        IndexedBook(AdminService.BookInfo book) {
+            this.book = book;
+            this.title = book.title == null ? "" : book.title.toLowerCase(Locale.ROOT);
+            this.genre = book.genre == null ? "" : book.genre.toLowerCase(Locale.ROOT);
+        }
+
+        Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            addGrams(title, grams);
+            addGrams(genre, grams);
+            return grams;
+        }
+
+        /**
+         * @return Rank bucket for the keyword, or -1 if it does not match
+         */
+        int rank(String kw) {
+            int pos = title.indexOf(kw);
+            if (pos >= 0) {
+                if (title.equals(kw)) return RANK_TITLE_EXACT;
+                if (pos == 0) return RANK_TITLE_PREFIX;
+                if (!Character.isLetterOrDigit(title.charAt(pos - 1))) return RANK_TITLE_WORD;
+                return RANK_TITLE_CONTAINS;
+            }
+            if (genre.equals(kw)) return RANK_GENRE_EXACT;
+            if (genre.contains(kw)) return RANK_GENRE_CONTAINS;
+            return -1;
+        }
+    }
+
+    private static class Ranked {
+        final IndexedBook doc;
+        final int rank;
+
+        Ranked(IndexedBook doc, int rank) {
+            this.doc = doc;
+            this.rank = rank;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package main;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the row changes one transaction makes to books and cart_items and writes them to
+ * the change log tables (stock_log, price_audit, book_deletion_log, cart_deletion_log) with
+ * one multi-row INSERT per table, just before the transaction commits.
+ * This replaces the per-row price_change, after_order_item_insert, log_deleted_cart_items and
+ * log_book_deletion triggers, which added a statement (and for stock a lookup) to every row
+ * written. Use one instance per transaction; it is not thread-safe.
+ */
+public class ChangeCapture {
+    // Rows per INSERT statement, so a large flush does not build one huge statement
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
+    private final List<Object[]> stockChanges = new ArrayList<>();
+    private final List<Object[]> priceChanges = new ArrayList<>();
+    private final List<Object[]> bookDeletions = new ArrayList<>();
+    private final List<Object[]> cartDeletions = new ArrayList<>();
+
+    /**
+     * @param bookId Book ID
+     * @param oldStock Stock before the change
+     * @param newStock Stock after the change; nothing is recorded if equal
+     */
+    public void stockChanged(int bookId, int oldStock, int newStock) {
+        if (oldStock != newStock) {
+            stockChanges.add(new Object[]{bookId, oldStock, newStock});
+        }
+    }
+
+    /**
+     * @param bookId Book ID
+     * @param oldPrice Price before the change
+     * @param newPrice Price after the change; nothing is recorded if equal
+     * @param changedBy User who made the change, or null if unknown
+     */
+    public void priceChanged(int bookId, BigDecimal oldPrice, BigDecimal newPrice, Integer changedBy) {
+        if (oldPrice == null || newPrice == null || oldPrice.compareTo(newPrice) != 0) {
+            priceChanges.add(new Object[]{bookId, oldPrice, newPrice, changedBy});
+        }
+    }
+
+    /**
+     * @param bookId Deleted book's ID
+     * @param title Deleted book's title
+     */
+    public void bookDeleted(int bookId, String title) {
+        bookDeletions.add(new Object[]{bookId, title});
+    }
+
+    /**
+     * @param userId Cart owner
+     * @param bookId Book in the deleted line
+     * @param quantity Quantity in the deleted line
+     */
+    public void cartItemDeleted(int userId, int bookId, int quantity) {
+        cartDeletions.add(new Object[]{userId, bookId, quantity});
+    }
+
+    /**
+     * Locks a book about to be updated and records its price and stock changes.
+     * Call before the UPDATE, on the connection and transaction that will run it.
+     * @param conn Connection of the updating transaction
+     * @param bookId Book ID
+     * @param newPrice Price the update will set
+     * @param newStock Stock the update will set
+     * @param changedBy User making the change
+     * @throws SQLException if the book cannot be read
+     */
+    public void bookUpdating(Connection conn, int bookId, BigDecimal newPrice, int newStock, Integer changedBy)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT price, stock_quantity FROM books WHERE book_id = ? FOR UPDATE")) {
+            stmt.setInt(1, bookId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    priceChanged(bookId, rs.getBigDecimal(1), newPrice, changedBy);
+                    stockChanged(bookId, rs.getInt(2), newStock);
+                }
+            }
+        }
+    }
+
+    /**
+     * Locks a book about to be deleted and records its deletion.
+     * Call before the DELETE, on the connection and transaction that will run it.
+     * @param conn Connection of the deleting transaction
+     * @param bookId Book ID
+     * @throws SQLException if the book cannot be read
+     */
+    public void bookDeleting(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT title FROM books WHERE book_id = ? FOR UPDATE")) {
+            stmt.setInt(1, bookId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    bookDeleted(bookId, rs.getString(1));
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return stockChanges.isEmpty() && priceChanges.isEmpty() && bookDeletions.isEmpty() && cartDeletions.isEmpty();
+    }
+
+    /**
+     * Writes everything collected so far on the caller's connection, inside its transaction,
+     * and clears the buffer.
+     * @param conn Connection whose transaction made the changes
+     * @return Number of log rows written
+     * @throws SQLException if an insert fails; the buffer is left as it was
+     */
+    public int flush(Connection conn) throws SQLException {
+        int rows = insert(conn, "stock_log (book_id, old_stock, new_stock)", stockChanges)
+            + insert(conn, "price_audit (book_id, old_price, new_price, changed_by_user)", priceChanges)
+            + insert(conn, "book_deletion_log (book_id, title)", bookDeletions)
+            + insert(conn, "cart_deletion_log (user_id, book_id, quantity)", cartDeletions);
+        stockChanges.clear();
+        priceChanges.clear();
+        bookDeletions.clear();
+        cartDeletions.clear();
+        return rows;
+    }
+
+    private static int insert(Connection conn, String table, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) return 0;
+        int columns = rows.get(0).length;
+        String tuple = "(" + "?, ".repeat(columns - 1) + "?)";
+        int written = 0;
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_INSERT) {
+            int count = Math.min(MAX_ROWS_PER_INSERT, rows.size() - from);
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" VALUES ");
+            for (int i = 0; i < count; i++) {
+                sql.append(i == 0 ? tuple : ", " + tuple);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int p = 1;
+                for (int i = from; i < from + count; i++) {
+                    for (Object value : rows.get(i)) {
+                        stmt.setObject(p++, value);
+                    }
+                }
+                written += stmt.executeUpdate();
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,335 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact column-oriented file for exported tables.
+ * Rows are buffered into row groups of up to ROWS_PER_GROUP rows; each group is written one
+ * column at a time, and each column chunk is deflated on its own. Integers and timestamps are
+ * stored as zig-zag varint deltas from the previous row, decimals as cents, and strings as
+ * length-prefixed UTF-8, so sorted keys and repeated values compress to a few bits per row.
+ * Memory use is bounded by one row group regardless of how many rows are written.
+ *
+ * Layout: magic "BMCOL1", column count, then each column's name and type; then row groups,
+ * each a row count followed by one (length, deflated bytes) pair per column; a row count of
+ * 0 ends the file. Each column chunk starts with a null bitmap.
+ */
+public final class ColumnarFile {
+    private static final byte[] MAGIC = "BMCOL1".getBytes(StandardCharsets.US_ASCII);
+    public static final int ROWS_PER_GROUP = 65_536;
+
+    /**
+     * Column value types.
+     */
+    public enum Type {
+        /** 64-bit integer, read back as Long */
+        LONG,
+        /** Fixed-point number with two decimals, read back as BigDecimal */
+        DECIMAL,
+        /** Millisecond timestamp, read back as Timestamp */
+        TIMESTAMP,
+        /** UTF-8 text, read back as String */
+        STRING
+    }
+
+    private ColumnarFile() {
+    }
+
+    /**
+     * Writes rows to a columnar file. Not thread-safe.
+     */
+    public static class Writer implements AutoCloseable {
+        private final DataOutputStream out;
+        private final Type[] types;
+        private final int rowsPerGroup;
+        private final Object[][] columns;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final byte[] deflateBuffer = new byte[64 * 1024];
+        private int rows;
+        private long rowsWritten;
+
+        public Writer(Path file, String[] names, Type[] types) throws IOException {
+            this(Files.newOutputStream(file), names, types, ROWS_PER_GROUP);
+        }
+
+        /**
+         * @param out Stream to write; closed by close()
+         * @param names Column names
+         * @param types Column types, one per name
+         * @param rowsPerGroup Rows buffered before a row group is written
+         */
+        public Writer(OutputStream out, String[] names, Type[] types, int rowsPerGroup) throws IOException {
+            if (names.length != types.length) {
+                throw new IllegalArgumentException("Expected one type per column name.");
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+            this.types = types.clone();
+            this.rowsPerGroup = rowsPerGroup;
+            this.columns = new Object[types.length][rowsPerGroup];
+            this.out.write(MAGIC);
+            this.out.writeInt(types.length);
+            for (int c = 0; c < types.length; c++) {
+                this.out.writeUTF(names[c]);
+                this.out.writeByte(types[c].ordinal());
+            }
+        }
+
+        /**
+         * @param values One value per column; Number for LONG, BigDecimal or Number for DECIMAL,
+         *               Timestamp for TIMESTAMP, String for STRING, or null
+         */
+        public void writeRow(Object... values) throws IOException {
+            if (values.length != types.length) {
+                throw new IllegalArgumentException("Expected " + types.length + " values, got " + values.length);
+            }
+            for (int c = 0; c < values.length; c++) {
+                columns[c][rows] = values[c];
+            }
+            rows++;
+            rowsWritten++;
+            if (rows == rowsPerGroup) {
+                flushGroup();
+            }
+        }
+
+        public long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        private void flushGroup() throws IOException {
+            if (rows == 0) return;
+            out.writeInt(rows);
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            for (int c = 0; c < types.length; c++) {
+                chunk.reset();
+                encode(types[c], columns[c], rows, new DataOutputStream(chunk));
+                byte[] compressed = deflate(chunk.toByteArray());
+                out.writeInt(compressed.length);
+                out.write(compressed);
+                Arrays.fill(columns[c], 0, rows, null);
+            }
+            rows = 0;
+        }
+
+        private byte[] deflate(byte[] raw) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 16);
+            while (!deflater.finished()) {
+                int n = deflater.deflate(deflateBuffer);
+                compressed.write(deflateBuffer, 0, n);
+            }
+            return compressed.toByteArray();
+        }
+
+        private static void encode(Type type, Object[] values, int rows, DataOutputStream out) throws IOException {
+            byte[] nulls = new byte[(rows + 7) / 8];
+            for (int i = 0; i < rows; i++) {
+                if (values[i] == null) nulls[i >> 3] |= (byte) (1 << (i & 7));
+            }
+            out.write(nulls);
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                Object value = values[i];
+                if (value == null) continue;
+                switch (type) {
+                    case LONG -> {
+                        long v = ((Number) value).longValue();
+                        writeVarLong(out, v - previous);
+                        previous = v;
+                    }
+                    case DECIMAL -> {
+                        BigDecimal d = value instanceof BigDecimal b ? b : BigDecimal.valueOf(((Number) value).doubleValue());
+                        writeVarLong(out, d.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact());
+                    }
+                    case TIMESTAMP -> {
+                        long v = ((Timestamp) value).getTime();
+                        writeVarLong(out, v - previous);
+                        previous = v;
+                    }
+                    case STRING -> {
+                        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                        writeVarLong(out, bytes.length);
+                        out.write(bytes);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushGroup();
+                out.writeInt(0);
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a columnar file back one row at a time, holding one row group in memory.
+     */
+    public static class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final String[] names;
+        private final Type[] types;
+        private final Inflater inflater = new Inflater();
+        private Object[][] group = new Object[0][];
+        private int groupRows;
+        private int next;
+        private boolean finished;
+
+        public Reader(Path file) throws IOException {
+            this(Files.newInputStream(file));
+        }
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+            byte[] magic = new byte[MAGIC.length];
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a columnar export file");
+            }
+            int count = this.in.readInt();
+            names = new String[count];
+            types = new Type[count];
+            for (int c = 0; c < count; c++) {
+                names[c] = this.in.readUTF();
+                types[c] = Type.values()[this.in.readUnsignedByte()];
+            }
+        }
+
+        public String[] getColumnNames() {
+            return names.clone();
+        }
+
+        public Type[] getColumnTypes() {
+            return types.clone();
+        }
+
+        /**
+         * @return The next row's values, or null at the end of the file
+         */
+        public Object[] next() throws IOException {
+            if (next == groupRows && !readGroup()) return null;
+            Object[] row = new Object[types.length];
+            for (int c = 0; c < types.length; c++) {
+                row[c] = group[c][next];
+            }
+            next++;
+            return row;
+        }
+
+        private boolean readGroup() throws IOException {
+            if (finished) return false;
+            int rows = in.readInt();
+            if (rows == 0) {
+                finished = true;
+                return false;
+            }
+            group = new Object[types.length][];
+            for (int c = 0; c < types.length; c++) {
+                byte[] compressed = new byte[in.readInt()];
+                in.readFully(compressed);
+                group[c] = decode(types[c], rows, new DataInputStream(new ByteArrayInputStream(inflate(compressed))));
+            }
+            groupRows = rows;
+            next = 0;
+            return true;
+        }
+
+        private byte[] inflate(byte[] compressed) throws IOException {
+            inflater.reset();
+            inflater.setInput(compressed);
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(buffer);
+                    if (n == 0 && inflater.needsInput()) throw new EOFException("Truncated column chunk");
+                    raw.write(buffer, 0, n);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt column chunk", e);
+            }
+            return raw.toByteArray();
+        }
+
+        private static Object[] decode(Type type, int rows, DataInputStream in) throws IOException {
+            byte[] nulls = new byte[(rows + 7) / 8];
+            in.readFully(nulls);
+            Object[] values = new Object[rows];
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                if ((nulls[i >> 3] & (1 << (i & 7))) != 0) continue;
+                switch (type) {
+                    case LONG -> {
+                        previous += readVarLong(in);
+                        values[i] = previous;
+                    }
+                    case DECIMAL -> values[i] = BigDecimal.valueOf(readVarLong(in), 2);
+                    case TIMESTAMP -> {
+                        previous += readVarLong(in);
+                        values[i] = new Timestamp(previous);
+                    }
+                    case STRING -> {
+                        byte[] bytes = new byte[(int) readVarLong(in)];
+                        in.readFully(bytes);
+                        values[i] = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+    }
+
+    // Zig-zag varints: small magnitudes of either sign take one or two bytes
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
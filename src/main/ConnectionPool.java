@@ -0,0 +1,332 @@
+package main;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool used behind DBConnection.getConnection().
+ * Borrowers queue fairly on a semaphore, idle connections are validated before reuse
+ * and physical connections are retired once they pass their max lifetime.
+ * Calling close() on a borrowed connection returns it to the pool.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long validationIntervalMillis;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed = false;
+    private final AtomicLong sessionEpoch = new AtomicLong();
+    private volatile String sessionResetSql;
+
+    /**
+     * Creates a pool. Connections are opened lazily on first borrow.
+     * @param url JDBC URL
+     * @param user Database user
+     * @param password Database password
+     * @param maxSize Maximum number of physical connections
+     * @param borrowTimeoutMillis How long a borrower waits for a free connection
+     * @param maxLifetimeMillis Age after which a physical connection is retired
+     * @param validationIntervalMillis Idle time after which a connection is validated before reuse
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long borrowTimeoutMillis, long maxLifetimeMillis, long validationIntervalMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive.");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout if the pool is exhausted.
+     * @return A pooled connection; close() returns it to the pool
+     * @throws SQLException if the pool is closed, the wait times out or a connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+            } else {
+                pooled.resetSessionIfStale();
+            }
+            activeCount.incrementAndGet();
+            borrowCount.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (now - pooled.createdAt >= maxLifetimeMillis) {
+                pooled.closePhysical();
+                continue;
+            }
+            if (now - pooled.lastReturnedAt >= validationIntervalMillis && !pooled.isValid()) {
+                pooled.closePhysical();
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(PooledConnection pooled) {
+        boolean reusable = !closed && pooled.reset()
+                && System.currentTimeMillis() - pooled.createdAt < maxLifetimeMillis;
+        if (reusable) {
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            pooled.closePhysical();
+        }
+        activeCount.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Closes all idle connections and rejects further borrows.
+     * Connections still in use are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    /**
+     * Sets the statement run on an idle connection, before it is handed out, when its
+     * session state predates the last invalidateSessions() call.
+     * @param sql e.g. a SET that clears session variables
+     */
+    public void setSessionResetSql(String sql) {
+        this.sessionResetSql = sql;
+    }
+
+    /**
+     * Marks the session state of every existing connection as stale, e.g. after a role change
+     * that session-cached authorizations depend on.
+     */
+    public void invalidateSessions() {
+        sessionEpoch.incrementAndGet();
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public int getActiveCount() { return activeCount.get(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getWaitingCount() { return permits.getQueueLength(); }
+    public long getBorrowCount() { return borrowCount.get(); }
+    public long getTotalWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()); }
+    public long getMaxWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()); }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.get();
+        return borrows == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / borrows;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool{active=%d, idle=%d, waiting=%d, max=%d, borrows=%d, avgWaitMs=%.3f, maxWaitMs=%d}",
+            getActiveCount(), getIdleCount(), getWaitingCount(), maxSize, getBorrowCount(),
+            getAverageWaitMillis(), getMaxWaitMillis());
+    }
+
+    /**
+     * One physical connection plus the bookkeeping needed to hand it out repeatedly.
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturnedAt = createdAt;
+        private final List<Statement> openStatements = new ArrayList<>();
+        private long epoch = sessionEpoch.get();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        void resetSessionIfStale() throws SQLException {
+            long current = sessionEpoch.get();
+            if (epoch == current) return;
+            String sql = sessionResetSql;
+            if (sql != null) {
+                try (Statement stmt = physical.createStatement()) {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    closePhysical();
+                    throw e;
+                }
+            }
+            epoch = current;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new LeaseHandler(this));
+        }
+
+        boolean isValid() {
+            try {
+                return physical.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void track(Statement stmt) {
+            synchronized (openStatements) {
+                openStatements.add(stmt);
+            }
+        }
+
+        /**
+         * Closes statements the borrower left open and rolls back any unfinished transaction.
+         * @return true if the connection can go back into the pool
+         */
+        boolean reset() {
+            synchronized (openStatements) {
+                for (Statement stmt : openStatements) {
+                    try {
+                        stmt.close();
+                    } catch (SQLException ignored) {
+                        // Statement already unusable, nothing to release
+                    }
+                }
+                openStatements.clear();
+            }
+            try {
+                if (physical.isClosed()) return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) {
+                    physical.setReadOnly(false);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Connection is being discarded anyway
+            }
+        }
+    }
+
+    /**
+     * Proxy handler for a single lease: close() returns the connection once,
+     * and any use after that fails as it would on a closed connection.
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned = false;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            release(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return returned || pooled.physical.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            synchronized (this) {
+                if (returned) {
+                    throw new SQLException("Connection has already been returned to the pool.");
+                }
+            }
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    pooled.track((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
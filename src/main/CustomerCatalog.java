@@ -9,16 +9,22 @@ public class CustomerCatalog extends JFrame {
     private JComboBox<String> currencySelector;
     private JTextField searchField;
     private String currentCurrency = "PHP";
-    private int selectedBookId = -1;
-    private JPanel bookPanel;
+    private AdminService.BookInfo selectedBook;
+    private BookGrid bookGrid;
     
     private JButton addToCartBtn;
-    private JPanel selectedCard = null; // Track selected card
-
-    public CustomerCatalog() {
+    private final SwingAsync.Latest<BookPageSource> searchRequest = new SwingAsync.Latest<>();
+    private final CartSession cartSession;
+    private final SessionContext session;
+
+    public CustomerCatalog(SessionContext session) {
+        this.session = session;
+        this.cartSession = new CartSession(session,
+                rejected -> SwingUtilities.invokeLater(() -> showRejected(rejected)));
         setTitle("📖 BookMart Online - Browse Books");
         setSize(950, 600);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        // Closing waits for queued cart adds to be written, see leave()
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
         getContentPane().setBackground(new Color(0xf4f6fa));
@@ -67,11 +73,9 @@ public class CustomerCatalog extends JFrame {
         topPanel.add(rightPanel, BorderLayout.EAST);
         add(topPanel, BorderLayout.NORTH);
 
-        // Book Cards Panel
-        bookPanel = new JPanel(new GridLayout(0, 3, 20, 20));
-        bookPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
-        bookPanel.setBackground(new Color(0xf4f6fa));
-        JScrollPane scrollPane = new JScrollPane(bookPanel);
+        // Book Cards Grid (only visible cards are painted, pages load on scroll)
+        bookGrid = new BookGrid();
+        JScrollPane scrollPane = new JScrollPane(bookGrid);
         scrollPane.getViewport().setBackground(new Color(0xf4f6fa));
         add(scrollPane, BorderLayout.CENTER);
 
@@ -95,17 +99,22 @@ public class CustomerCatalog extends JFrame {
         
         addToCartBtn.setEnabled(false);
 
+        bookGrid.setSelectionListener(book -> {
+            selectedBook = book;
+            addToCartBtn.setEnabled(book != null);
+        });
         
         bottomPanel.add(addToCartBtn);
         add(bottomPanel, BorderLayout.SOUTH);
 
         // Events
-        currencySelector.addActionListener(e -> loadBooks(searchField.getText(), (String) currencySelector.getSelectedItem()));
+        // Prices in every currency are precomputed, so switching only repaints the loaded books
+        currencySelector.addActionListener(e -> bookGrid.setCurrency((String) currencySelector.getSelectedItem()));
         searchBtn.addActionListener(e -> loadBooks(searchField.getText(), (String) currencySelector.getSelectedItem()));
         cartBtn.addActionListener(e -> new Cart(this).setVisible(true));
 
         ordersBtn.addActionListener(e -> {
-            OrderHistory history = new OrderHistory();
+            OrderHistory history = new OrderHistory(session);
             history.setVisible(true);
             history.addWindowListener(new java.awt.event.WindowAdapter() {
                 @Override
@@ -121,15 +130,22 @@ public class CustomerCatalog extends JFrame {
         });
 
 
-        logoutBtn.addActionListener(e -> {
+        logoutBtn.addActionListener(e -> leave(() -> {
             dispose();
             new LoginScreen().setVisible(true);
+        }));
+
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                leave(() -> System.exit(0));
+            }
         });
 
 
 
         addToCartBtn.addActionListener(e -> {
-            if (selectedBookId != -1) {
+            if (selectedBook != null) {
                 String input = JOptionPane.showInputDialog(this, "Enter quantity:", "1");
                 if (input != null) {
                     try {
@@ -138,27 +154,7 @@ public class CustomerCatalog extends JFrame {
                             JOptionPane.showMessageDialog(this, "❌ Quantity must be at least 1.");
                             return;
                         }
-                        try (Connection conn = DBConnection.getConnection()) {
-                            PreparedStatement stockStmt = conn.prepareStatement("SELECT stock_quantity FROM books WHERE book_id = ?");
-                            stockStmt.setInt(1, selectedBookId);
-                            ResultSet rs = stockStmt.executeQuery();
-                            if (rs.next()) {
-                                int stock = rs.getInt(1);
-                                if (qty > stock) {
-                                    JOptionPane.showMessageDialog(this, "❌ Not enough stock. Only " + stock + " left.");
-                                    return;
-                                }
-                            }
-
-                            PreparedStatement stmt = conn.prepareStatement(
-                                    "INSERT INTO cart_items (user_id, book_id, quantity) VALUES (?, ?, ?) " +
-                                            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)");
-                            stmt.setInt(1, LoginScreen.loggedInUserId);
-                            stmt.setInt(2, selectedBookId);
-                            stmt.setInt(3, qty);
-                            stmt.executeUpdate();
-                            JOptionPane.showMessageDialog(this, "✅ Added to cart!");
-                        }
+                        JOptionPane.showMessageDialog(this, addToCart(selectedBook, qty));
                     } catch (NumberFormatException ex) {
                         JOptionPane.showMessageDialog(this, "❌ Please enter a valid number.");
                     } catch (Exception ex) {
@@ -171,104 +167,73 @@ public class CustomerCatalog extends JFrame {
         loadBooks("", currentCurrency);
     }
 
+    /**
+     * Writes queued cart adds off the EDT, then runs next. If they cannot be written the window
+     * stays open and the customer decides whether to leave anyway; the adds stay queued and
+     * are retried in the background and at exit.
+     */
+    private void leave(Runnable next) {
+        setEnabled(false);
+        SwingAsync.onEdt(AsyncDB.supply(() -> {
+            cartSession.close();
+            return null;
+        }), done -> next.run(), error -> {
+            error.printStackTrace();
+            setEnabled(true);
+            int choice = JOptionPane.showConfirmDialog(this,
+                    "❌ Your latest cart additions could not be saved yet. They will be retried.\nLeave anyway?",
+                    "Cart not saved", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (choice == JOptionPane.YES_OPTION) next.run();
+        });
+    }
+
     private void loadBooks(String keyword, String currency) {
-        bookPanel.removeAll();
-        selectedCard = null;
-        selectedBookId = -1;
+        selectedBook = null;
         
         addToCartBtn.setEnabled(false);
 
-        try (Connection conn = DBConnection.getConnection()) {
-            String sql = """
-                    SELECT b.book_id, b.title, b.genre,
-                    ROUND(b.price / c.exchange_rate_to_php, 2) AS converted_price, b.stock_quantity
-                    FROM books b JOIN currencies c ON c.currency_code=?
-                    WHERE b.title LIKE ? OR b.genre LIKE ?
-                    """;
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, currency);
-            stmt.setString(2, "%" + keyword + "%");
-            stmt.setString(3, "%" + keyword + "%");
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                int bookId = rs.getInt("book_id");
-                String title = rs.getString("title");
-                String genre = rs.getString("genre");
-                double price = rs.getDouble("converted_price");
-                int stock = rs.getInt("stock_quantity");
-
-                JPanel card = new JPanel() {
-                    protected void paintComponent(Graphics g) {
-                        super.paintComponent(g);
-                        Graphics2D g2 = (Graphics2D) g;
-                        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                        g2.setColor(getBackground());
-                        g2.fillRoundRect(0, 0, getWidth(), getHeight(), 16, 16);
-                    }
-                };
-
-                card.setLayout(new BoxLayout(card, BoxLayout.Y_AXIS));
-                card.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createLineBorder(new Color(0xe0e0e0)),
-                        new EmptyBorder(10, 10, 10, 10)));
-                card.setBackground(Color.WHITE);
-
-                JLabel titleLbl = new JLabel("<html><b>" + title + "</b></html>");
-                titleLbl.setFont(new Font("SansSerif", Font.BOLD, 15));
-                titleLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-                JLabel genreLbl = new JLabel("Genre: " + genre);
-                genreLbl.setFont(new Font("SansSerif", Font.ITALIC, 12));
-                genreLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-                JLabel priceLbl = new JLabel("Price: " + price + " " + currency);
-                priceLbl.setForeground(new Color(0xc0722c));
-                priceLbl.setFont(new Font("SansSerif", Font.BOLD, 12));
-                priceLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-                JLabel stockLbl = new JLabel("Stock: " + stock);
-                stockLbl.setFont(new Font("SansSerif", Font.PLAIN, 12));
-                stockLbl.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-                card.add(titleLbl);
-                card.add(Box.createVerticalStrut(6));
-                card.add(genreLbl);
-                card.add(Box.createVerticalStrut(6));
-                card.add(priceLbl);
-                card.add(Box.createVerticalStrut(6));
-                card.add(stockLbl);
-
-                card.addMouseListener(new java.awt.event.MouseAdapter() {
-                    public void mouseClicked(java.awt.event.MouseEvent evt) {
-                        if (selectedCard != null) {
-                            selectedCard.setBorder(BorderFactory.createCompoundBorder(
-                                    BorderFactory.createLineBorder(new Color(0xe0e0e0)),
-                                    new EmptyBorder(10, 10, 10, 10)));
-                            selectedCard.setBackground(Color.WHITE);
-                        }
-
-                        selectedCard = card;
-                        selectedCard.setBorder(BorderFactory.createCompoundBorder(
-                                BorderFactory.createLineBorder(new Color(0x003059), 2),
-                                new EmptyBorder(10, 10, 10, 10)));
-                        selectedCard.setBackground(new Color(0xeaf0fa));
+        // Search runs off the EDT; a newer search cancels one still in flight
+        searchRequest.submit(() -> {
+            CatalogCache cache = CatalogCache.getInstance();
+            cache.getExchangeRate(currency); // make sure rates are loaded before cards are painted
+            // Browsing pages through the table by (title, book_id); searches page over ranked index hits
+            return keyword == null || keyword.trim().isEmpty()
+                    ? BookPageSource.database()
+                    : BookPageSource.of(cache.search(keyword));
+        }, source -> bookGrid.setSource(source, currency));
+    }
 
-                        selectedBookId = bookId;
-                     
-                        addToCartBtn.setEnabled(true);
-                    }
-                });
+    /**
+     * Queues the book for the user's cart; CartSession writes it shortly after.
+     * Checks the grid's copy of the book only, so it runs on the EDT without database I/O.
+     * @return Message to show the user
+     */
+    private String addToCart(AdminService.BookInfo book, int qty) {
+        CartService.AddResult result = cartSession.add(book, qty);
+        return result.added ? "✅ Added to cart!" : "❌ Not enough stock. Only " + result.stockAvailable + " left.";
+    }
 
-                bookPanel.add(card);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Tells the user about queued adds the database stock check turned down.
+     */
+    private void showRejected(java.util.List<CartService.Rejection> rejected) {
+        StringBuilder message = new StringBuilder("❌ Some books could not be added to your cart:\n");
+        for (CartService.Rejection line : rejected) {
+            AdminService.BookInfo book = CatalogCache.getInstance().peekBook(line.bookId);
+            message.append("\n").append(book != null ? book.title : "Book #" + line.bookId)
+                   .append(": only ").append(line.available).append(" more available");
         }
+        JOptionPane.showMessageDialog(this, message.toString());
+    }
+
+    public SessionContext getSession() {
+        return session;
+    }
 
-        bookPanel.revalidate();
-        bookPanel.repaint();
+    public CartSession getCartSession() {
+        return cartSession;
     }
+
     public void refreshBooks() {
         loadBooks(searchField.getText(), (String) currencySelector.getSelectedItem());
     }
@@ -1,13 +1,25 @@
 package main;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DBConnection {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/bookmartdb";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "Dlsu1234!";
+    // Overridable with -Dbookmart.db.url etc., e.g. to point benchmarks at an embedded database
+    private static final String DB_URL = System.getProperty("bookmart.db.url",
+        "jdbc:mysql://localhost:3306/bookmartdb");
+    private static final String DB_USER = System.getProperty("bookmart.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("bookmart.db.password", "Dlsu1234!");
+
+    // Pool settings; -Dbookmart.db.poolSize raises the cap for a server shared by many clients
+    private static final int POOL_MAX_SIZE = Integer.getInteger("bookmart.db.poolSize", 10);
+    private static final long POOL_BORROW_TIMEOUT_MS = 10_000;
+    private static final long POOL_MAX_LIFETIME_MS = 30 * 60 * 1000;
+    private static final long POOL_VALIDATION_INTERVAL_MS = 30_000;
+
+    private static final ConnectionPool pool;
+    private static final List<Runnable> shutdownTasks = new CopyOnWriteArrayList<>();
 
     static {
         try {
@@ -17,15 +29,61 @@ public class DBConnection {
             System.err.println("MySQL JDBC Driver not found. Please add mysql-connector-j.jar to your classpath.");
             e.printStackTrace();
         }
+        pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, POOL_MAX_SIZE,
+            POOL_BORROW_TIMEOUT_MS, POOL_MAX_LIFETIME_MS, POOL_VALIDATION_INTERVAL_MS);
+        // Drops the admin authorization cached in the session by isSessionAdmin()
+        pool.setSessionResetSql("SET @authorized_admin_id = NULL, @authorized_admin_until = NULL");
+        Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::shutdown, "db-pool-shutdown"));
+    }
+
+    /**
+     * Registers work that still needs the database when the JVM shuts down, such as a final
+     * flush of buffered writes. Tasks run in registration order on the shutdown hook, before
+     * the pool closes; separate shutdown hooks would race the close.
+     * @param task Task to run; exceptions are printed and do not stop later tasks
+     */
+    public static void runBeforePoolClose(Runnable task) {
+        shutdownTasks.add(task);
+    }
+
+    /**
+     * Removes a task registered with runBeforePoolClose, once its work is done.
+     * @param task Task to remove
+     */
+    public static void cancelBeforePoolClose(Runnable task) {
+        shutdownTasks.remove(task);
     }
 
+    private static void shutdown() {
+        for (Runnable task : shutdownTasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        pool.close();
+    }
+
+    /**
+     * Borrows a connection from the shared pool. Closing it returns it to the pool.
+     * Statements made from it are timed by QueryStats when -Dbookmart.db.instrument=true.
+     * @return A pooled connection, or null if none could be obtained
+     */
     public static Connection getConnection() {
         try {
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+            return QueryStats.getInstance().instrument(pool.getConnection());
         } catch (SQLException ex) {
             System.err.println("Database connection failed: " + ex.getMessage());
             ex.printStackTrace();
             return null;
         }
     }
+
+    /**
+     * @return The shared pool, for reading its active/idle/wait counters
+     */
+    public static ConnectionPool getPool() {
+        return pool;
+    }
 }
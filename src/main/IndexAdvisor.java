@@ -0,0 +1,259 @@
+package main;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs EXPLAIN over the application's hot queries and reports plans that scan a whole table
+ * or index, sort or build a temporary table, or read table rows through a secondary index
+ * that does not cover the query. Each scan comes with a suggested index built from the
+ * query's predicates and sort on that table: equality columns, then ORDER BY columns, then
+ * range columns, so one index can both filter and return rows in order.
+ *
+ * The default registry explains the statements the services run on the cart, order history,
+ * admin order list, catalog and sales rollup paths, taken from the services' own SQL
+ * constants so it cannot drift from them, with sample parameters; register() more.
+ * Checkout's statements run inside placeReservedOrder and are not covered. MySQL plans are
+ * read from EXPLAIN's table output; on H2 only full scans are detected.
+ */
+public class IndexAdvisor {
+    // Scans of tables estimated below this many rows (e.g. currencies) are not worth an index
+    private static final long SMALL_TABLE_ROWS = 1000;
+
+    private static final Pattern TABLE_REF = Pattern.compile(
+        "\\b(?:FROM|JOIN)\\s+(\\w+)(?:\\s+(?:AS\\s+)?(?!ON\\b|WHERE\\b|JOIN\\b|LEFT\\b|RIGHT\\b|INNER\\b|GROUP\\b|ORDER\\b|LIMIT\\b)(\\w+))?",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern PREDICATE = Pattern.compile(
+        "(?:(\\w+)\\.)?(\\w+)\\s*(=|<=|>=|<|>|\\bIN\\b)\\s*\\(?\\s*\\?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER_BY = Pattern.compile("\\bORDER\\s+BY\\s+(.+?)(?:\\bLIMIT\\b|$)",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\*\\s*([\\w.\"]+)\\.tableScan");
+
+    private final List<HotQuery> queries = new ArrayList<>();
+
+    public IndexAdvisor() {
+        register("cart.read", CartService.CART_SQL, 3);
+        register("orders.history", OrderService.ORDER_HISTORY_SQL, 3);
+        List<Object> pageParams = new ArrayList<>();
+        String pageSql = AdminService.orderPageSql(new AdminService.OrderFilter("Pending", null, null, null),
+            "order_date", false, 200, 50, pageParams);
+        register("admin.ordersByStatus", pageSql, pageParams.toArray());
+        register("catalog.page", BookPageSource.NEXT_PAGE_SQL, "M", "M", 1, 50);
+        register("sales.queuedItems", SalesAnalytics.QUEUED_ITEMS_SQL, 1000);
+    }
+
+    /**
+     * Adds a query to check.
+     * @param name Short name shown in the report
+     * @param sql Statement with ? placeholders
+     * @param sampleParams One value per placeholder
+     * @return This advisor
+     */
+    public IndexAdvisor register(String name, String sql, Object... sampleParams) {
+        queries.add(new HotQuery(name, sql, sampleParams));
+        return this;
+    }
+
+    /**
+     * Explains every registered query.
+     * @return Findings in registration order; empty if every plan uses its indexes well
+     * @throws SQLException if a query cannot be explained
+     */
+    public List<Finding> advise() throws SQLException {
+        List<Finding> findings = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            boolean mysql = conn.getMetaData().getDatabaseProductName().equals("MySQL");
+            for (HotQuery query : queries) {
+                try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query.sql)) {
+                    for (int i = 0; i < query.params.length; i++) {
+                        stmt.setObject(i + 1, query.params[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (mysql) {
+                            readMySqlPlan(query, rs, findings);
+                        } else {
+                            readPlanText(query, rs, findings);
+                        }
+                    }
+                }
+            }
+        }
+        return findings;
+    }
+
+    private static void readMySqlPlan(HotQuery query, ResultSet rs, List<Finding> findings) throws SQLException {
+        Map<String, String> aliases = aliases(query.sql);
+        while (rs.next()) {
+            String alias = rs.getString("table");
+            if (alias == null || alias.startsWith("<")) continue; // derived tables and unions
+            String table = aliases.getOrDefault(alias.toLowerCase(Locale.ROOT), alias);
+            String type = rs.getString("type");
+            String key = rs.getString("key");
+            long rows = rs.getLong("rows");
+            String extra = rs.getString("Extra");
+            extra = extra != null ? extra : "";
+
+            if ("ALL".equals(type) && rows >= SMALL_TABLE_ROWS) {
+                findings.add(new Finding(query.name, table, "full table scan", rows, suggestIndex(query.sql, alias, table)));
+            } else if ("index".equals(type) && rows >= SMALL_TABLE_ROWS) {
+                findings.add(new Finding(query.name, table, "full index scan of " + key, rows,
+                    suggestIndex(query.sql, alias, table)));
+            }
+            if (extra.contains("Using filesort")) {
+                findings.add(new Finding(query.name, table, "sorts rows (filesort)", rows, null));
+            }
+            if (extra.contains("Using temporary")) {
+                findings.add(new Finding(query.name, table, "builds a temporary table", rows, null));
+            }
+            if (key != null && !key.equals("PRIMARY") && !extra.contains("Using index")
+                    && ("ref".equals(type) || "range".equals(type))) {
+                findings.add(new Finding(query.name, table, "index " + key + " does not cover the query", rows, null));
+            }
+        }
+    }
+
+    private static void readPlanText(HotQuery query, ResultSet rs, List<Finding> findings) throws SQLException {
+        Map<String, String> aliases = aliases(query.sql);
+        while (rs.next()) {
+            Matcher m = H2_TABLE_SCAN.matcher(rs.getString(1));
+            while (m.find()) {
+                String qualified = m.group(1).replace("\"", "");
+                String table = qualified.substring(qualified.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+                String alias = table;
+                for (Map.Entry<String, String> entry : aliases.entrySet()) {
+                    // Prefer the alias the query qualifies columns with over the bare table name
+                    if (entry.getValue().equals(table) && !entry.getKey().equals(table)) alias = entry.getKey();
+                }
+                findings.add(new Finding(query.name, table, "full table scan", -1, suggestIndex(query.sql, alias, table)));
+            }
+        }
+    }
+
+    /**
+     * @return Lower-case alias (or bare table name) to table name, for the tables in FROM/JOIN
+     */
+    private static Map<String, String> aliases(String sql) {
+        Map<String, String> aliases = new HashMap<>();
+        Matcher m = TABLE_REF.matcher(sql);
+        while (m.find()) {
+            String table = m.group(1).toLowerCase(Locale.ROOT);
+            aliases.put(table, table);
+            if (m.group(2) != null) {
+                aliases.put(m.group(2).toLowerCase(Locale.ROOT), table);
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * Builds an index from the query's parameterized predicates and ORDER BY on one table.
+     * @return CREATE INDEX statement, or null if the query has no such predicate on the table
+     */
+    private static String suggestIndex(String sql, String alias, String table) {
+        boolean singleTable = aliases(sql).values().stream().distinct().count() == 1;
+        Set<String> equality = new LinkedHashSet<>();
+        Set<String> range = new LinkedHashSet<>();
+        Matcher m = PREDICATE.matcher(sql);
+        while (m.find()) {
+            String qualifier = m.group(1);
+            boolean onTable = qualifier == null ? singleTable : qualifier.equalsIgnoreCase(alias);
+            if (!onTable) continue;
+            String column = m.group(2).toLowerCase(Locale.ROOT);
+            String op = m.group(3);
+            if (op.equals("=") || op.equalsIgnoreCase("IN")) {
+                equality.add(column);
+            } else {
+                range.add(column);
+            }
+        }
+        range.removeAll(equality);
+        if (equality.isEmpty() && range.isEmpty()) return null;
+        Set<String> columns = new LinkedHashSet<>(equality);
+        Matcher order = ORDER_BY.matcher(sql);
+        if (order.find()) {
+            for (String term : order.group(1).split(",")) {
+                String[] parts = term.trim().split("\\s+")[0].split("\\.");
+                boolean onTable = parts.length == 1 ? singleTable : parts[0].equalsIgnoreCase(alias);
+                if (!onTable) break; // a sort on another table cannot come from this index
+                columns.add(parts[parts.length - 1].toLowerCase(Locale.ROOT));
+            }
+        }
+        columns.addAll(range);
+        return "CREATE INDEX idx_" + table + "_" + String.join("_", columns) + " ON " + table
+            + " (" + String.join(", ", columns) + ")";
+    }
+
+    /**
+     * @return Text report of advise(), one line per finding
+     * @throws SQLException if a query cannot be explained
+     */
+    public String report() throws SQLException {
+        List<Finding> findings = advise();
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf("Index advisor: %d queries explained, %d findings%n", queries.size(), findings.size());
+        if (!findings.isEmpty()) {
+            out.printf("%-24s %-18s %10s  %s%n", "query", "table", "rows", "finding");
+        }
+        for (Finding f : findings) {
+            out.printf("%-24s %-18s %10s  %s%n", f.query, f.table, f.rowsExamined < 0 ? "-" : f.rowsExamined, f.problem);
+            if (f.suggestion != null) {
+                out.printf("%-24s %-18s %10s  suggest: %s%n", "", "", "", f.suggestion);
+            }
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    /**
+     * Prints the report for the configured database.
+     * Usage: java main.IndexAdvisor
+     */
+    public static void main(String[] args) throws SQLException {
+        System.out.print(new IndexAdvisor().report());
+        System.exit(0);
+    }
+
+    private static class HotQuery {
+        final String name;
+        final String sql;
+        final Object[] params;
+
+        HotQuery(String name, String sql, Object[] params) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    // Data classes for return values
+    public static class Finding {
+        public final String query;
+        public final String table;
+        public final String problem;
+        /** The optimizer's row estimate, or -1 if the plan does not give one */
+        public final long rowsExamined;
+        /** Suggested CREATE INDEX, or null */
+        public final String suggestion;
+        public Finding(String query, String table, String problem, long rowsExamined, String suggestion) {
+            this.query = query;
+            this.table = table;
+            this.problem = problem;
+            this.rowsExamined = rowsExamined;
+            this.suggestion = suggestion;
+        }
+    }
+}
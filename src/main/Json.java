@@ -0,0 +1,240 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the HTTP API: a streaming writer, and a parser for the flat
+ * request objects the API accepts (string, number, boolean and null values only).
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * @param s Text to encode
+     * @return The text as a quoted JSON string, or null
+     */
+    public static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder out = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Parses a flat JSON object such as {"bookId": 12, "quantity": 2}.
+     * @param text JSON text; blank is treated as an empty object
+     * @return Member values: String, Double, Boolean or null, in document order
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    public static Map<String, Object> parseObject(String text) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (text == null || text.isBlank()) return values;
+        Parser p = new Parser(text);
+        p.expect('{');
+        if (!p.tryConsume('}')) {
+            do {
+                String name = p.string();
+                p.expect(':');
+                values.put(name, p.value());
+            } while (p.tryConsume(','));
+            p.expect('}');
+        }
+        p.end();
+        return values;
+    }
+
+    private static class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        boolean tryConsume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!tryConsume(c)) throw error("Expected '" + c + "'");
+        }
+
+        void end() {
+            skipWhitespace();
+            if (pos != text.length()) throw error("Unexpected trailing content");
+        }
+
+        Object value() {
+            skipWhitespace();
+            if (pos >= text.length()) throw error("Unexpected end of input");
+            char c = text.charAt(pos);
+            if (c == '"') return string();
+            if (text.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+            if (text.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+            if (text.startsWith("null", pos)) { pos += 4; return null; }
+            int start = pos;
+            while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) pos++;
+            if (start == pos) throw error("Unsupported value");
+            try {
+                return Double.valueOf(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("Bad number");
+            }
+        }
+
+        String string() {
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) != '"') throw error("Expected a string");
+            pos++;
+            StringBuilder out = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) break;
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) throw error("Bad escape");
+                        out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> out.append(e);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + pos);
+        }
+    }
+
+    /**
+     * Appends JSON to a StringBuilder, inserting commas between members and elements.
+     */
+    public static class Writer {
+        private final StringBuilder out = new StringBuilder();
+        // One entry per open object/array: true until its first member is written
+        private final Deque<Boolean> first = new ArrayDeque<>();
+        private boolean afterName;
+
+        public Writer beginObject() {
+            separate();
+            out.append('{');
+            first.push(true);
+            return this;
+        }
+
+        public Writer endObject() {
+            first.pop();
+            out.append('}');
+            return this;
+        }
+
+        public Writer beginArray() {
+            separate();
+            out.append('[');
+            first.push(true);
+            return this;
+        }
+
+        public Writer endArray() {
+            first.pop();
+            out.append(']');
+            return this;
+        }
+
+        public Writer name(String name) {
+            separate();
+            out.append(quote(name)).append(':');
+            afterName = true;
+            return this;
+        }
+
+        public Writer value(String value) {
+            separate();
+            out.append(quote(value));
+            return this;
+        }
+
+        public Writer value(long value) {
+            separate();
+            out.append(value);
+            return this;
+        }
+
+        public Writer value(double value) {
+            separate();
+            out.append(Double.isFinite(value) ? String.valueOf(value) : "null");
+            return this;
+        }
+
+        public Writer value(boolean value) {
+            separate();
+            out.append(value);
+            return this;
+        }
+
+        public Writer nullValue() {
+            separate();
+            out.append("null");
+            return this;
+        }
+
+        private void separate() {
+            if (afterName) {
+                afterName = false;
+                return;
+            }
+            if (!first.isEmpty()) {
+                if (!first.peek()) out.append(',');
+                first.pop();
+                first.push(false);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package main;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load generator: simulates concurrent customers driving the same service calls as
+ * CustomerCatalog (search, add to cart), Cart (place order) and OrderHistory (load orders).
+ *
+ * Usage: java main.LoadGenerator --users=1000 --duration=60 --ramp=10 --think=500
+ *        --mix=search:50,add:30,checkout:10,history:10 --threads=64 --currency=PHP
+ *
+ * Each virtual user is a small state machine rescheduled on a shared pool, so a user that is
+ * thinking holds no thread; only in-flight requests do. At the end it prints throughput and
+ * latency per operation, retry counts and a stock check against the orders placed.
+ */
+public class LoadGenerator {
+    enum Operation { SEARCH, ADD, CHECKOUT, HISTORY }
+
+    private static final int SEARCH_PAGE_SIZE = 60;
+
+    private final Config config;
+    private final CartService cartService = new CartService();
+    private final OrderService orderService = new OrderService();
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicInteger activeUsers = new AtomicInteger();
+    private ScheduledThreadPoolExecutor scheduler;
+    private List<Integer> customerIds;
+    private List<Integer> bookIds;
+    private List<String> keywords;
+    private long deadlineNanos;
+
+    public LoadGenerator(Config config) {
+        this.config = config;
+        for (Operation op : Operation.values()) {
+            stats.put(op, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) {
+        // Statement timing is opt-in for the application, but a load test wants it by default
+        if (System.getProperty("bookmart.db.instrument") == null) {
+            System.setProperty("bookmart.db.instrument", "true");
+        }
+        // All simulated users share this process, as they would share the API server
+        if (System.getProperty("bookmart.db.hotItems") == null) {
+            System.setProperty("bookmart.db.hotItems", "true");
+        }
+        Config config;
+        try {
+            config = Config.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: LoadGenerator [--users=N] [--duration=SECONDS] [--ramp=SECONDS] " +
+                "[--think=MILLIS] [--mix=search:50,add:30,checkout:10,history:10] [--threads=N] [--currency=CODE]");
+            System.exit(2);
+            return;
+        }
+        try {
+            new LoadGenerator(config).run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs the configured load and prints the report.
+     * @throws SQLException if the test data or the final stock check could not be read
+     * @throws InterruptedException if interrupted while waiting for the run to finish
+     */
+    public void run() throws SQLException, InterruptedException {
+        customerIds = fetchCustomerIds();
+        if (customerIds.isEmpty()) {
+            throw new IllegalStateException("No Customer accounts in the database to drive the load with.");
+        }
+        CatalogCache.getInstance().preload();
+        List<AdminService.BookInfo> books = CatalogCache.getInstance().getAllBooks();
+        if (books.isEmpty()) {
+            throw new IllegalStateException("No books in the catalog.");
+        }
+        bookIds = new ArrayList<>();
+        for (AdminService.BookInfo book : books) {
+            bookIds.add(book.bookId);
+        }
+        keywords = keywordsFrom(books);
+        if (config.users > customerIds.size()) {
+            System.out.println("Note: " + config.users + " virtual users share " + customerIds.size() +
+                " customer accounts, so some carts are driven by more than one user.");
+        }
+
+        Map<Integer, Integer> initialStock = fetchStock();
+        int lastOrderId = fetchLastOrderId();
+
+        System.out.printf("Starting %d virtual users for %ds (ramp %ds, think %dms, %d threads)%n",
+            config.users, config.durationSeconds, config.rampSeconds, config.thinkMillis, config.threads);
+        scheduler = new ScheduledThreadPoolExecutor(config.threads, r -> {
+            Thread t = new Thread(r, "load-user");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        long start = System.nanoTime();
+        deadlineNanos = start + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        long rampMillis = TimeUnit.SECONDS.toMillis(config.rampSeconds);
+        for (int i = 0; i < config.users; i++) {
+            VirtualUser user = new VirtualUser(customerIds.get(i % customerIds.size()));
+            long delay = config.users > 1 ? rampMillis * i / (config.users - 1) : 0;
+            activeUsers.incrementAndGet();
+            scheduler.schedule(user, delay, TimeUnit.MILLISECONDS);
+        }
+
+        // Users stop scheduling themselves after the deadline; wait for in-flight requests to drain
+        long drainDeadline = deadlineNanos + TimeUnit.SECONDS.toNanos(30);
+        while (activeUsers.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(100);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+
+        printReport(elapsedSeconds);
+        checkStock(initialStock, lastOrderId);
+    }
+
+    /**
+     * One simulated customer. Each run performs a single operation and schedules the next one
+     * after an exponentially distributed think time.
+     */
+    private class VirtualUser implements Runnable {
+        private final SessionContext session;
+
+        VirtualUser(int userId) {
+            this.session = new SessionContext(userId, "Customer");
+        }
+
+        @Override
+        public void run() {
+            if (System.nanoTime() >= deadlineNanos) {
+                activeUsers.decrementAndGet();
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Operation op = config.pick(random.nextInt(config.totalWeight()));
+            perform(op, session, random);
+
+            long think = config.thinkMillis <= 0 ? 0
+                : (long) (-config.thinkMillis * Math.log(1.0 - random.nextDouble()));
+            try {
+                scheduler.schedule(this, think, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // Pool shut down while draining
+                activeUsers.decrementAndGet();
+            }
+        }
+    }
+
+    private void perform(Operation op, SessionContext session, Random random) {
+        OperationStats opStats = stats.get(op);
+        long start = System.nanoTime();
+        try {
+            switch (op) {
+                case SEARCH -> search(random);
+                case ADD -> {
+                    int bookId = bookIds.get(random.nextInt(bookIds.size()));
+                    CartService.AddResult result = cartService.addToCart(session, bookId, 1 + random.nextInt(2));
+                    if (!result.added) opStats.rejected.increment();
+                }
+                case CHECKOUT -> orderService.placeOrder(session, config.currency);
+                case HISTORY -> orderService.getOrderHistory(session);
+            }
+        } catch (SQLException e) {
+            if (OrderService.isInsufficientStock(e)) {
+                opStats.insufficientStock.increment();
+            } else if (OrderService.isCartEmpty(e)) {
+                opStats.cartEmpty.increment();
+            } else {
+                opStats.failed.increment();
+                opStats.lastError = e.getMessage();
+            }
+        } catch (RuntimeException e) {
+            opStats.failed.increment();
+            opStats.lastError = e.toString();
+        } finally {
+            opStats.latency.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void search(Random random) {
+        // Same split as CustomerCatalog.loadBooks: browsing pages the table, a keyword pages index hits
+        CatalogCache cache = CatalogCache.getInstance();
+        String keyword = random.nextInt(4) == 0 ? "" : keywords.get(random.nextInt(keywords.size()));
+        BookPageSource source = keyword.isEmpty()
+            ? BookPageSource.database()
+            : BookPageSource.of(cache.search(keyword));
+        List<AdminService.BookInfo> page = source.fetchPage(null, SEARCH_PAGE_SIZE);
+        for (AdminService.BookInfo book : page) {
+            cache.getPrice(book, config.currency);
+        }
+    }
+
+    private void printReport(double elapsedSeconds) {
+        System.out.printf("%nCompleted in %.1fs%n", elapsedSeconds);
+        System.out.printf("%-9s %9s %9s %9s %9s %9s %9s %9s %8s %8s %8s%n",
+            "op", "count", "ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "nostock", "empty", "errors");
+        long total = 0;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats s = entry.getValue();
+            LatencyHistogram h = s.latency;
+            total += h.getCount();
+            System.out.printf("%-9s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d %8d %8d%n",
+                entry.getKey().name().toLowerCase(), h.getCount(), h.getCount() / elapsedSeconds,
+                h.getMeanMicros() / 1000.0, h.getPercentileMicros(50) / 1000.0,
+                h.getPercentileMicros(90) / 1000.0, h.getPercentileMicros(99) / 1000.0,
+                h.getMaxMicros() / 1000.0,
+                s.insufficientStock.sum() + s.rejected.sum(), s.cartEmpty.sum(), s.failed.sum());
+        }
+        System.out.printf("Total %d operations, %.1f ops/s%n", total, total / elapsedSeconds);
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            if (entry.getValue().lastError != null) {
+                System.out.println("Last " + entry.getKey().name().toLowerCase() + " error: " + entry.getValue().lastError);
+            }
+        }
+        System.out.printf("Transaction retries: %d deadlocks, %d lock wait timeouts, %d rolled back after exhausting retries%n",
+            TransactionRetry.getDeadlockRetries(), TransactionRetry.getLockWaitRetries(),
+            TransactionRetry.getExhaustedRetries());
+        Map<Integer, Integer> hot = StockReservations.getInstance().getHotItemStock();
+        if (!hot.isEmpty()) {
+            System.out.println("Hot items reserved in-process: " + hot.keySet());
+        }
+        if (QueryStats.getInstance().isEnabled()) {
+            System.out.println();
+            System.out.print(QueryStats.getInstance().report(15));
+        }
+    }
+
+    /**
+     * Verifies that no book was oversold: every book's stock must equal its starting stock minus
+     * the units in orders placed during the run, and no stock may go negative.
+     */
+    private void checkStock(Map<Integer, Integer> initialStock, int lastOrderId) throws SQLException {
+        StockReservations.getInstance().flushAll();
+        Map<Integer, Integer> finalStock = fetchStock();
+        Map<Integer, Integer> orderedUnits = new HashMap<>();
+        int orders = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT oi.book_id, SUM(oi.quantity) FROM order_items oi WHERE oi.order_id > ? GROUP BY oi.book_id")) {
+                stmt.setInt(1, lastOrderId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        orderedUnits.put(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM orders WHERE order_id > ?")) {
+                stmt.setInt(1, lastOrderId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    orders = rs.getInt(1);
+                }
+            }
+        }
+
+        int negative = 0;
+        int mismatched = 0;
+        for (Map.Entry<Integer, Integer> entry : initialStock.entrySet()) {
+            Integer now = finalStock.get(entry.getKey());
+            if (now == null) continue;
+            if (now < 0) negative++;
+            int expected = entry.getValue() - orderedUnits.getOrDefault(entry.getKey(), 0);
+            if (now != expected) {
+                mismatched++;
+                if (mismatched <= 10) {
+                    System.out.printf("  book %d: started %d, ordered %d, expected %d, found %d%n",
+                        entry.getKey(), entry.getValue(), orderedUnits.getOrDefault(entry.getKey(), 0), expected, now);
+                }
+            }
+        }
+        int unitsSold = orderedUnits.values().stream().mapToInt(Integer::intValue).sum();
+        System.out.printf("Stock check: %d orders, %d units sold, %d books with negative stock, %d books not matching orders -> %s%n",
+            orders, unitsSold, negative, mismatched, negative == 0 && mismatched == 0 ? "OK" : "FAILED");
+    }
+
+    private static List<Integer> fetchCustomerIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT user_id FROM users WHERE role = 'Customer' ORDER BY user_id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    private static Map<Integer, Integer> fetchStock() throws SQLException {
+        Map<Integer, Integer> stock = new HashMap<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT book_id, stock_quantity FROM books");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                stock.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+        return stock;
+    }
+
+    private static int fetchLastOrderId() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(order_id), 0) FROM orders");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static List<String> keywordsFrom(List<AdminService.BookInfo> books) {
+        Map<String, Boolean> words = new LinkedHashMap<>();
+        for (AdminService.BookInfo book : books) {
+            for (String word : book.title.toLowerCase().split("\\W+")) {
+                if (word.length() >= 3) words.put(word, Boolean.TRUE);
+            }
+            if (words.size() >= 500) break;
+        }
+        return words.isEmpty() ? List.of("") : new ArrayList<>(words.keySet());
+    }
+
+    private static class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder insufficientStock = new LongAdder();
+        final LongAdder cartEmpty = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        volatile String lastError;
+    }
+
+    /**
+     * Command-line settings, each given as --name=value.
+     */
+    public static class Config {
+        public int users = 100;
+        public int durationSeconds = 60;
+        public int rampSeconds = 10;
+        public int thinkMillis = 500;
+        public int threads = 32;
+        public String currency = "PHP";
+        private final int[] weights = {50, 30, 10, 10};
+
+        public static Config parse(String[] args) {
+            Config config = new Config();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Unrecognised argument: " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                try {
+                    switch (name) {
+                        case "users" -> config.users = Integer.parseInt(value);
+                        case "duration" -> config.durationSeconds = Integer.parseInt(value);
+                        case "ramp" -> config.rampSeconds = Integer.parseInt(value);
+                        case "think" -> config.thinkMillis = Integer.parseInt(value);
+                        case "threads" -> config.threads = Integer.parseInt(value);
+                        case "currency" -> config.currency = value;
+                        case "mix" -> config.parseMix(value);
+                        default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not a number: " + arg);
+                }
+            }
+            if (config.users < 1 || config.threads < 1 || config.durationSeconds < 1) {
+                throw new IllegalArgumentException("--users, --threads and --duration must be positive.");
+            }
+            return config;
+        }
+
+        private void parseMix(String mix) {
+            java.util.Arrays.fill(weights, 0);
+            for (String part : mix.split(",")) {
+                String[] kv = part.split(":");
+                if (kv.length != 2) throw new IllegalArgumentException("Bad mix entry: " + part);
+                Operation op;
+                try {
+                    op = Operation.valueOf(kv[0].trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown operation in mix: " + kv[0]);
+                }
+                weights[op.ordinal()] = Integer.parseInt(kv[1].trim());
+            }
+            if (totalWeight() <= 0) throw new IllegalArgumentException("Mix weights must add up to more than zero.");
+        }
+
+        int totalWeight() {
+            int total = 0;
+            for (int w : weights) total += w;
+            return total;
+        }
+
+        Operation pick(int roll) {
+            for (Operation op : Operation.values()) {
+                roll -= weights[op.ordinal()];
+                if (roll < 0) return op;
+            }
+            return Operation.SEARCH;
+        }
+    }
+}
@@ -2,10 +2,10 @@ package main;
 
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
+import java.sql.SQLException;
 
 public class LoginScreen extends JFrame {
-    public static int loggedInUserId = -1;
+    private final AuthService authService = new AuthService();
 
     private JTextField emailField;
     private JPasswordField passwordField;
@@ -107,17 +107,11 @@ public class LoginScreen extends JFrame {
     }
 
     private void login() {
-        try (Connection conn = DBConnection.getConnection()) {
-            String sql = "SELECT user_id, role FROM users WHERE email=? AND password=?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, emailField.getText());
-            stmt.setString(2, String.valueOf(passwordField.getPassword()));
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                loggedInUserId = rs.getInt("user_id");
-                String role = rs.getString("role");
-                openDashboard(role);
+        try {
+            SessionContext session = authService.login(emailField.getText(), String.valueOf(passwordField.getPassword()));
+
+            if (session != null) {
+                openDashboard(session);
                 dispose();
             } else {
                 statusLabel.setText("❌ Invalid credentials.");
@@ -128,20 +122,25 @@ public class LoginScreen extends JFrame {
         }
     }
 
-    private void openDashboard(String role) {
-        switch (role.toLowerCase()) {
+    private void openDashboard(SessionContext session) {
+        switch (session.getRole().toLowerCase()) {
             case "admin":
-                new AdminPanel().setVisible(true);
+                new AdminPanel(session).setVisible(true);
                 break;
             case "staff":
-                new StaffPanel().setVisible(true);
+                new StaffPanel(session).setVisible(true);
                 break;
             default:
-                new CustomerCatalog().setVisible(true);
+                new CustomerCatalog(session).setVisible(true);
         }
     }
 
     public static void main(String[] args) {
+        if (!SchemaMigrator.migrateAtStartup()) {
+            JOptionPane.showMessageDialog(null, "❌ The database schema could not be updated. See the console for details.");
+            System.exit(1);
+        }
+        CatalogCache.getInstance().preload();
         SwingUtilities.invokeLater(() -> new LoginScreen().setVisible(true));
     }
 }
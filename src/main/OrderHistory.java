@@ -4,13 +4,18 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
-import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
 
 public class OrderHistory extends JFrame {
     private JTable orderTable;
     private DefaultTableModel orderModel;
+    private final SessionContext session;
+    // Orders shown in the table, by order ID; touched only on the EDT
+    private final Map<Integer, OrderService.OrderSummary> orders = new HashMap<>();
 
-    public OrderHistory() {
+    public OrderHistory(SessionContext session) {
+        this.session = session;
         setTitle("📜 Order History - BookMart");
         setSize(800, 450);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
@@ -70,65 +75,36 @@ public class OrderHistory extends JFrame {
     }
 
     private void loadOrders() {
-        try (Connection conn = DBConnection.getConnection()) {
-            String sql = """
-                SELECT o.order_id, o.order_date, o.total_amount, c.currency_code,
-                       GROUP_CONCAT(DISTINCT b.title ORDER BY b.title SEPARATOR ', ') AS book_titles
-                FROM orders o
-                JOIN currencies c ON o.currency_id = c.currency_id
-                LEFT JOIN order_items oi ON o.order_id = oi.order_id
-                LEFT JOIN books b ON oi.book_id = b.book_id
-                WHERE o.user_id = ?
-                GROUP BY o.order_id, o.order_date, o.total_amount, c.currency_code
-                ORDER BY o.order_date DESC
-            """;
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, LoginScreen.loggedInUserId);
-            ResultSet rs = stmt.executeQuery();
-
+        SwingAsync.onEdt(AsyncDB.supply(() -> new OrderService().getOrderHistory(session)), history -> {
+            orders.clear();
             orderModel.setRowCount(0);
-            while (rs.next()) {
+            for (OrderService.OrderSummary order : history) {
+                orders.put(order.orderId, order);
                 orderModel.addRow(new Object[]{
-                    rs.getInt("order_id"),
-                    rs.getTimestamp("order_date"),
-                    rs.getDouble("total_amount"),
-                    
-                    rs.getString("currency_code"),
-                    rs.getString("book_titles")
+                    order.orderId,
+                    order.orderDate,
+                    order.totalAmount,
+                    order.currencyCode,
+                    order.bookTitles
                 });
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        });
     }
 
+    /**
+     * Shows the items of an order. They were loaded with the history, so no query runs here.
+     */
     private void showOrderItems(int orderId) {
+        OrderService.OrderSummary order = orders.get(orderId);
+        if (order == null) return;
         StringBuilder itemsText = new StringBuilder("<html><b>Order ID:</b> " + orderId + "<br><br>");
-        try (Connection conn = DBConnection.getConnection()) {
-            String sql = """
-                SELECT b.title, oi.quantity, oi.price_each
-                FROM order_items oi
-                JOIN books b ON oi.book_id = b.book_id
-                WHERE oi.order_id = ?
-            """;
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, orderId);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                String title = rs.getString("title");
-                int qty = rs.getInt("quantity");
-                double price = rs.getDouble("price_each");
-                itemsText.append("- ").append(title)
-                         .append(" × ").append(qty)
-                         .append(" @ ").append(price)
-                         .append("<br>");
-            }
-
-            itemsText.append("</html>");
-            JOptionPane.showMessageDialog(this, new JLabel(itemsText.toString()), "Order Details", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (OrderService.OrderLine item : order.items) {
+            itemsText.append("- ").append(item.title)
+                     .append(" × ").append(item.quantity)
+                     .append(" @ ").append(item.priceEach)
+                     .append("<br>");
         }
+        itemsText.append("</html>");
+        JOptionPane.showMessageDialog(this, new JLabel(itemsText.toString()), "Order Details", JOptionPane.INFORMATION_MESSAGE);
     }
 }
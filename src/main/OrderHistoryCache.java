@@ -0,0 +1,94 @@
+package main;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user copy of each customer's order history, orders with their items, so the history
+ * window and the items of any order come from one query per user instead of one per click.
+ * Checkout in this process invalidates the user's entry; entries also expire after
+ * TTL_MS so orders placed or removed by other processes show up. The least recently used
+ * users are dropped beyond MAX_USERS.
+ */
+public class OrderHistoryCache {
+    private static final OrderHistoryCache INSTANCE = new OrderHistoryCache();
+
+    private static final long TTL_MS = 60 * 1000;
+    private static final int MAX_USERS = 1000;
+
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() <= MAX_USERS) return false;
+            evictedInvalidation = Math.max(evictedInvalidation, eldest.getValue().invalidatedAt);
+            return true;
+        }
+    };
+    // Advanced by every invalidation; stamps taken before a user's last invalidation are stale
+    private long clock = 0;
+    // Latest invalidation of a user whose entry was dropped, stands in for users not in entries
+    private long evictedInvalidation = 0;
+
+    private OrderHistoryCache() {
+    }
+
+    public static OrderHistoryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param userId Customer's user ID
+     * @return The user's cached orders, newest first, or null if not cached or expired
+     */
+    public synchronized List<OrderService.OrderSummary> get(int userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null || entry.orders == null) return null;
+        if (System.currentTimeMillis() - entry.loadedAt > TTL_MS) return null;
+        return entry.orders;
+    }
+
+    /**
+     * @return Stamp to pass to put(); take it before starting the query
+     */
+    public synchronized long stamp() {
+        return clock;
+    }
+
+    /**
+     * Stores a freshly loaded history, unless the user's history was invalidated since the
+     * stamp was taken. Invalidations of other users do not matter.
+     * @param userId Customer's user ID
+     * @param orders Orders, newest first; must not be modified afterwards
+     * @param stamp Value of stamp() from before the query
+     */
+    public synchronized void put(int userId, List<OrderService.OrderSummary> orders, long stamp) {
+        Entry entry = entries.get(userId);
+        long invalidatedAt = entry != null ? entry.invalidatedAt : evictedInvalidation;
+        if (stamp >= invalidatedAt) {
+            entries.put(userId, new Entry(orders, System.currentTimeMillis(), invalidatedAt));
+        }
+    }
+
+    /**
+     * Drops a user's history, e.g. after they place an order. The entry keeps the invalidation
+     * time, so a load of this user that started earlier is not stored.
+     * @param userId Customer's user ID
+     */
+    public synchronized void invalidate(int userId) {
+        entries.put(userId, new Entry(null, 0, ++clock));
+    }
+
+    private static class Entry {
+        // Null once invalidated
+        final List<OrderService.OrderSummary> orders;
+        final long loadedAt;
+        final long invalidatedAt;
+
+        Entry(List<OrderService.OrderSummary> orders, long loadedAt, long invalidatedAt) {
+            this.orders = orders;
+            this.loadedAt = loadedAt;
+            this.invalidatedAt = invalidatedAt;
+        }
+    }
+}
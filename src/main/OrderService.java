@@ -0,0 +1,261 @@
+package main;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Service class for customer checkout using the placeOrder stored procedure.
+ * Holds no per-user state, so one instance can serve any number of sessions concurrently.
+ */
+public class OrderService {
+    private static final String INSUFFICIENT_STOCK = "Insufficient stock.";
+    private static final String CART_EMPTY = "Cart is empty.";
+    // A user's orders with their items, one row per item; also explained by IndexAdvisor
+    static final String ORDER_HISTORY_SQL = """
+        SELECT o.order_id, o.order_date, o.total_amount, c.currency_code,
+               oi.book_id, b.title, oi.quantity, oi.price_each
+        FROM orders o
+        JOIN currencies c ON o.currency_id = c.currency_id
+        LEFT JOIN order_items oi ON o.order_id = oi.order_id
+        LEFT JOIN books b ON oi.book_id = b.book_id
+        WHERE o.user_id = ?
+        ORDER BY o.order_date DESC, o.order_id DESC, oi.order_item_id
+        """;
+
+    /**
+     * Places an order for everything in the user's cart in a single database round trip.
+     * The procedure prices the cart from the current catalog, decrements stock, writes
+     * orders/order_items and clears the cart in one transaction. Deadlocks and lock wait
+     * timeouts are retried; with -Dbookmart.db.hotItems=true, books that keep contending
+     * switch to hot-item mode, where their stock is reserved in-process and written back
+     * in batches.
+     * @param session Customer's session
+     * @param currencyCode Currency to price the order in (e.g., PHP)
+     * @return The new order ID
+     * @throws SQLException if the order could not be placed; see isInsufficientStock and isCartEmpty
+     */
+    public int placeOrder(SessionContext session, String currencyCode) throws SQLException {
+        int userId = session.getUserId();
+        StockReservations reservations = StockReservations.getInstance();
+        Map<Integer, Integer> reserved = Collections.emptyMap();
+        if (reservations.hasHotItems()) {
+            reserved = reservations.reserve(fetchCartLines(userId));
+            if (reserved == null) {
+                throw new SQLException(INSUFFICIENT_STOCK, "45000");
+            }
+        }
+        String reservedJson = toJson(reserved);
+
+        Map<Integer, Integer> orderedLines = new TreeMap<>();
+        int orderId;
+        try {
+            orderId = TransactionRetry.run(() -> {
+                orderedLines.clear();
+                int newOrderId = -1;
+                // Plain CALL statement rather than prepareCall: no OUT parameters and no procedure metadata lookup
+                try (Connection conn = DBConnection.getConnection()) {
+                    if (conn == null) throw new SQLException("No database connection.");
+                    try (PreparedStatement stmt = conn.prepareStatement("CALL placeReservedOrder(?, ?, ?)")) {
+                        stmt.setInt(1, userId);
+                        stmt.setString(2, currencyCode);
+                        stmt.setString(3, reservedJson);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                newOrderId = rs.getInt("order_id");
+                                orderedLines.put(rs.getInt("book_id"), rs.getInt("quantity"));
+                            }
+                        }
+                    }
+                }
+                return newOrderId;
+            }, (cause, attempt) -> recordContention(userId));
+        } catch (SQLException | RuntimeException e) {
+            reservations.release(reserved);
+            throw e;
+        }
+        reservations.commit(reserved, orderedLines);
+        CatalogCache.getInstance().booksChanged(orderedLines.keySet());
+        OrderHistoryCache.getInstance().invalidate(userId);
+        SalesAnalytics.getInstance().orderPlaced();
+        return orderId;
+    }
+
+    /**
+     * Reads a customer's orders with their items, newest first.
+     * Served from the OrderHistoryCache; a miss loads every order and item in one query.
+     * @param session Customer's session
+     * @return Unmodifiable list of order summaries
+     * @throws SQLException if the orders could not be read
+     */
+    public List<OrderSummary> getOrderHistory(SessionContext session) throws SQLException {
+        OrderHistoryCache cache = OrderHistoryCache.getInstance();
+        List<OrderSummary> orders = cache.get(session.getUserId());
+        if (orders == null) {
+            long stamp = cache.stamp();
+            orders = loadOrderHistory(session.getUserId());
+            cache.put(session.getUserId(), orders, stamp);
+        }
+        return orders;
+    }
+
+    /**
+     * Reads the items of one of the session user's orders from their order history.
+     * An order missing from the cached history (e.g. placed by another client) triggers one reload.
+     * @param session Customer's session
+     * @param orderId Order ID
+     * @return Ordered books with quantity and unit price; empty if the order belongs to another user
+     * @throws SQLException if the items could not be read
+     */
+    public List<OrderLine> getOrderItems(SessionContext session, int orderId) throws SQLException {
+        OrderSummary order = findOrder(getOrderHistory(session), orderId);
+        if (order == null) {
+            OrderHistoryCache.getInstance().invalidate(session.getUserId());
+            order = findOrder(getOrderHistory(session), orderId);
+        }
+        return order != null ? order.items : Collections.emptyList();
+    }
+
+    private static OrderSummary findOrder(List<OrderSummary> orders, int orderId) {
+        for (OrderSummary order : orders) {
+            if (order.orderId == orderId) return order;
+        }
+        return null;
+    }
+
+    /**
+     * Reads a user's orders and their items in one query, one row per item, grouped by order.
+     * @param userId Customer's user ID
+     * @return Unmodifiable list of orders, newest first
+     */
+    private List<OrderSummary> loadOrderHistory(int userId) throws SQLException {
+        List<OrderSummary> orders = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("No database connection.");
+            PreparedStatement stmt = conn.prepareStatement(ORDER_HISTORY_SQL);
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                int orderId = -1;
+                Timestamp orderDate = null;
+                double totalAmount = 0;
+                String currencyCode = null;
+                List<OrderLine> items = new ArrayList<>();
+                while (rs.next()) {
+                    if (rs.getInt("order_id") != orderId) {
+                        if (orderId != -1) {
+                            orders.add(new OrderSummary(orderId, orderDate, totalAmount, currencyCode, items));
+                            items = new ArrayList<>();
+                        }
+                        orderId = rs.getInt("order_id");
+                        orderDate = rs.getTimestamp("order_date");
+                        totalAmount = rs.getDouble("total_amount");
+                        currencyCode = rs.getString("currency_code");
+                    }
+                    int bookId = rs.getInt("book_id");
+                    if (!rs.wasNull()) {
+                        items.add(new OrderLine(bookId, rs.getString("title"), rs.getInt("quantity"), rs.getDouble("price_each")));
+                    }
+                }
+                if (orderId != -1) {
+                    orders.add(new OrderSummary(orderId, orderDate, totalAmount, currencyCode, items));
+                }
+            }
+        }
+        return Collections.unmodifiableList(orders);
+    }
+
+    /**
+     * @param userId Customer's user ID
+     * @return Book ID to total quantity for each line of the cart, in book_id order
+     */
+    private Map<Integer, Integer> fetchCartLines(int userId) throws SQLException {
+        Map<Integer, Integer> lines = new TreeMap<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("No database connection.");
+            PreparedStatement stmt = conn.prepareStatement(
+                "SELECT book_id, SUM(quantity) FROM cart_items WHERE user_id = ? GROUP BY book_id");
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lines.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private void recordContention(int userId) {
+        try {
+            StockReservations.getInstance().recordContention(fetchCartLines(userId).keySet());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String toJson(Map<Integer, Integer> reserved) {
+        if (reserved.isEmpty()) return null;
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<Integer, Integer> line : reserved.entrySet()) {
+            if (json.length() > 1) json.append(',');
+            json.append('"').append(line.getKey()).append("\":").append(line.getValue());
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * @param e Exception thrown by placeOrder
+     * @return true if the order was rejected because a book did not have enough stock
+     */
+    public static boolean isInsufficientStock(SQLException e) {
+        return "45000".equals(e.getSQLState()) && e.getMessage() != null && e.getMessage().startsWith(INSUFFICIENT_STOCK);
+    }
+
+    /**
+     * @param e Exception thrown by placeOrder
+     * @return true if the order was rejected because the cart was empty
+     */
+    public static boolean isCartEmpty(SQLException e) {
+        return "45000".equals(e.getSQLState()) && e.getMessage() != null && e.getMessage().startsWith(CART_EMPTY);
+    }
+
+    // Data classes for return values
+    public static class OrderSummary {
+        public final int orderId;
+        public final Timestamp orderDate;
+        public final double totalAmount;
+        public final String currencyCode;
+        /** Items in the order they were written; unmodifiable */
+        public final List<OrderLine> items;
+        /** Distinct titles of the items, sorted, comma separated */
+        public final String bookTitles;
+        public OrderSummary(int orderId, Timestamp orderDate, double totalAmount, String currencyCode, List<OrderLine> items) {
+            this.orderId = orderId;
+            this.orderDate = orderDate;
+            this.totalAmount = totalAmount;
+            this.currencyCode = currencyCode;
+            this.items = Collections.unmodifiableList(items);
+            TreeSet<String> titles = new TreeSet<>();
+            for (OrderLine item : items) {
+                titles.add(item.title);
+            }
+            this.bookTitles = String.join(", ", titles);
+        }
+    }
+
+    public static class OrderLine {
+        public final int bookId;
+        public final String title;
+        public final int quantity;
+        public final double priceEach;
+        public OrderLine(int bookId, String title, int quantity, double priceEach) {
+            this.bookId = bookId;
+            this.title = title;
+            this.quantity = quantity;
+            this.priceEach = priceEach;
+        }
+    }
+}
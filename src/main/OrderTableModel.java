@@ -0,0 +1,152 @@
+package main;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table model for the admin Orders tab that only holds the rows being looked at.
+ * The row count comes from a COUNT query; rows are fetched a page at a time when the
+ * table first asks for them, and recently viewed pages are kept in a small LRU.
+ * Filtering and sorting are done by the database. Must be used from the EDT.
+ */
+public class OrderTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Order ID", "User", "Date", "Amount", "Currency", "Status", "Books"};
+    // Sort key per column; null where the column cannot be sorted
+    private static final String[] SORT_KEYS = {"order_id", "user_id", "order_date", "total_amount", "currency_code", "status", null};
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 20;
+
+    private final AdminService adminService;
+    private final int adminUserId;
+
+    private AdminService.OrderFilter filter = AdminService.OrderFilter.ALL;
+    private int sortColumn = 0;
+    private boolean ascending = false;
+    private int rowCount = 0;
+    // Bumped whenever the query changes so pages from the previous query are dropped
+    private long generation = 0;
+
+    private final Map<Integer, List<Object[]>> pages = new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loadingPages = new HashSet<>();
+
+    public OrderTableModel(AdminService adminService, int adminUserId) {
+        this.adminService = adminService;
+        this.adminUserId = adminUserId;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / PAGE_SIZE;
+        List<Object[]> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return column == 6 ? "Loading…" : null;
+        }
+        int offset = row % PAGE_SIZE;
+        return offset < page.size() ? page.get(offset)[column] : null;
+    }
+
+    /**
+     * Applies a new filter and reloads from the first row.
+     * @param filter Status, user and date range to match
+     */
+    public void setFilter(AdminService.OrderFilter filter) {
+        this.filter = filter;
+        refresh();
+    }
+
+    /**
+     * @return The filter currently applied
+     */
+    public AdminService.OrderFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sorts by the column, toggling the direction if it is already the sort column.
+     * @param column Model column index
+     * @return false if the column cannot be sorted
+     */
+    public boolean sortBy(int column) {
+        if (column < 0 || SORT_KEYS[column] == null) return false;
+        ascending = column == sortColumn ? !ascending : true;
+        sortColumn = column;
+        refresh();
+        return true;
+    }
+
+    /**
+     * Drops cached pages and re-reads the row count.
+     */
+    public void refresh() {
+        long mine = ++generation;
+        pages.clear();
+        loadingPages.clear();
+        AdminService.OrderFilter query = filter;
+        SwingAsync.onEdt(AsyncDB.supply(() -> adminService.countOrders(adminUserId, query)), count -> {
+            if (mine != generation) return;
+            rowCount = count;
+            fireTableDataChanged();
+        });
+    }
+
+    private void requestPage(int pageIndex) {
+        if (!loadingPages.add(pageIndex)) return;
+        long mine = generation;
+        AdminService.OrderFilter query = filter;
+        String sortKey = SORT_KEYS[sortColumn];
+        boolean asc = ascending;
+        SwingAsync.onEdt(AsyncDB.supply(() -> toRows(adminService.getOrderPage(
+                adminUserId, query, sortKey, asc, pageIndex * PAGE_SIZE, PAGE_SIZE))),
+            rows -> {
+                if (mine != generation) return;
+                loadingPages.remove(pageIndex);
+                pages.put(pageIndex, rows);
+                int first = pageIndex * PAGE_SIZE;
+                int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+                if (last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+            },
+            // The page stays marked as loading so a failing query is not retried on every repaint
+            Throwable::printStackTrace);
+    }
+
+    private static List<Object[]> toRows(List<AdminService.OrderInfo> orders) {
+        List<Object[]> rows = new ArrayList<>(orders.size());
+        for (AdminService.OrderInfo o : orders) {
+            // One book per line in the Books column
+            String booksFormatted = String.join("\n", o.books);
+            rows.add(new Object[]{
+                o.orderId, o.userId, o.orderDate, o.totalAmount,
+                o.currencyCode, o.status, booksFormatted
+            });
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,131 @@
+package main;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable table of every cached book's price in every currency, held as one primitive
+ * array per currency. Conversions are done once, when rates or prices change, so switching
+ * the display currency is an array read per book. CatalogCache replaces the table
+ * copy-on-write, which lets readers use it without locking.
+ */
+public final class PriceTable {
+    static final PriceTable EMPTY = new PriceTable(new String[0], new double[0], new int[0], new double[0], new double[0][]);
+
+    private final String[] currencies;
+    private final double[] rates;
+    private final Map<String, Integer> currencyIndex = new HashMap<>();
+    // Ascending book IDs; slot i of every price array belongs to bookIds[i]
+    private final int[] bookIds;
+    private final double[] pricesPhp;
+    private final double[][] prices;
+
+    private PriceTable(String[] currencies, double[] rates, int[] bookIds, double[] pricesPhp, double[][] prices) {
+        this.currencies = currencies;
+        this.rates = rates;
+        this.bookIds = bookIds;
+        this.pricesPhp = pricesPhp;
+        this.prices = prices;
+        for (int c = 0; c < currencies.length; c++) {
+            currencyIndex.put(currencies[c], c);
+        }
+    }
+
+    /**
+     * @param books Books in ascending book_id order
+     * @param exchangeRates Currency code to exchange rate to PHP
+     * @return A table with every book converted into every currency
+     */
+    static PriceTable build(Collection<AdminService.BookInfo> books, Map<String, Double> exchangeRates) {
+        String[] currencies = exchangeRates.keySet().toArray(new String[0]);
+        Arrays.sort(currencies);
+        double[] rates = new double[currencies.length];
+        for (int c = 0; c < currencies.length; c++) {
+            rates[c] = exchangeRates.get(currencies[c]);
+        }
+        int[] bookIds = new int[books.size()];
+        double[] pricesPhp = new double[books.size()];
+        int slot = 0;
+        for (AdminService.BookInfo book : books) {
+            bookIds[slot] = book.bookId;
+            pricesPhp[slot] = book.price;
+            slot++;
+        }
+        double[][] prices = new double[currencies.length][];
+        for (int c = 0; c < currencies.length; c++) {
+            double[] converted = new double[bookIds.length];
+            for (int i = 0; i < converted.length; i++) {
+                converted[i] = convert(pricesPhp[i], rates[c]);
+            }
+            prices[c] = converted;
+        }
+        return new PriceTable(currencies, rates, bookIds, pricesPhp, prices);
+    }
+
+    /**
+     * @param changed Book ID to new PHP price, for books already in the table
+     * @return A copy with those books re-converted, or null if a book is not in the table
+     */
+    PriceTable withPrices(Map<Integer, Double> changed) {
+        double[] phpCopy = pricesPhp.clone();
+        int[] slots = new int[changed.size()];
+        int n = 0;
+        for (Map.Entry<Integer, Double> entry : changed.entrySet()) {
+            int slot = Arrays.binarySearch(bookIds, entry.getKey());
+            if (slot < 0) return null;
+            slots[n++] = slot;
+            phpCopy[slot] = entry.getValue();
+        }
+        double[][] copy = new double[prices.length][];
+        for (int c = 0; c < prices.length; c++) {
+            copy[c] = prices[c].clone();
+            for (int i = 0; i < n; i++) {
+                copy[c][slots[i]] = convert(phpCopy[slots[i]], rates[c]);
+            }
+        }
+        return new PriceTable(currencies, rates, bookIds, phpCopy, copy);
+    }
+
+    /**
+     * @param bookId Book ID
+     * @param pricePhp The PHP price the caller is showing, so a row read after the table was
+     *                 built is not shown with an older converted price
+     * @param currencyCode Currency code (e.g., USD)
+     * @return The converted price, or NaN if the book, its PHP price or the currency is not in the table
+     */
+    public double price(int bookId, double pricePhp, String currencyCode) {
+        Integer c = currencyIndex.get(currencyCode);
+        if (c == null) return Double.NaN;
+        int slot = Arrays.binarySearch(bookIds, bookId);
+        if (slot < 0 || pricesPhp[slot] != pricePhp) return Double.NaN;
+        return prices[c][slot];
+    }
+
+    /**
+     * @return Currency codes in the table, sorted
+     */
+    public String[] getCurrencies() {
+        return currencies.clone();
+    }
+
+    public int size() {
+        return bookIds.length;
+    }
+
+    /**
+     * Same conversion as the SQL it replaces: ROUND(price / rate, 2).
+     * @param pricePhp Price in PHP
+     * @param rate Exchange rate to PHP
+     * @return Converted price, or the PHP price if the rate is not positive
+     */
+    static double convert(double pricePhp, double rate) {
+        if (rate <= 0) return pricePhp;
+        return BigDecimal.valueOf(pricePhp)
+            .divide(BigDecimal.valueOf(rate), 2, RoundingMode.HALF_UP)
+            .doubleValue();
+    }
+}
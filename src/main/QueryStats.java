@@ -0,0 +1,566 @@
+package main;
+
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-statement timing for all SQL run through DBConnection. Borrowed connections are wrapped
+ * in proxies that time prepare, execute and fetch (ResultSet.next) calls and charge them to
+ * the statement's normalized SQL, where literals and repeated value lists are folded so each
+ * statement shape is one entry. Statements slower than the threshold, execute plus fetch, are
+ * appended to a slow-query log by a background thread.
+ *
+ * Off by default: the proxies put a reflective call in front of every JDBC method, down to
+ * each ResultSet getter, which production clients should not pay for.
+ *
+ * System properties: bookmart.db.instrument=true turns the wrapping on;
+ * bookmart.db.slowQueryMillis sets the threshold (default 200); bookmart.db.slowQueryLog
+ * names the log file (default slow_query.log); bookmart.db.queryReport names a file the
+ * report is written to at shutdown.
+ */
+public class QueryStats implements QueryStatsMXBean {
+    private static final boolean ENABLED = Boolean.getBoolean("bookmart.db.instrument");
+    private static final QueryStats instance = new QueryStats();
+
+    private static final int MAX_STATEMENTS = 5_000;
+    private static final int MAX_NORMALIZED_CACHE = 10_000;
+    private static final int MAX_SLOW_LOG_BACKLOG = 10_000;
+    private static final int TOP_STATEMENTS = 20;
+    private static final String OVERFLOW_KEY = "(other statements)";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]++|\\\\.|'')*+'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.?])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+
+    private final ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> normalizedCache = new ConcurrentHashMap<>();
+    private final LongAdder slowQueries = new LongAdder();
+    private volatile long slowQueryThresholdNanos =
+        TimeUnit.MILLISECONDS.toNanos(Long.getLong("bookmart.db.slowQueryMillis", 200));
+    private volatile LocalDateTime since = LocalDateTime.now();
+    private final String slowLogPath = System.getProperty("bookmart.db.slowQueryLog", "slow_query.log");
+    private final ThreadPoolExecutor slowLogWriter;
+    private BufferedWriter slowLog;
+
+    private QueryStats() {
+        // One writer thread; when the log falls too far behind, new entries are dropped
+        slowLogWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_SLOW_LOG_BACKLOG), r -> {
+                Thread t = new Thread(r, "slow-query-log");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+        if (!ENABLED) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("bookmart:type=QueryStats"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        String reportPath = System.getProperty("bookmart.db.queryReport");
+        if (reportPath != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> dumpReport(reportPath), "query-report"));
+        }
+    }
+
+    public static QueryStats getInstance() {
+        return instance;
+    }
+
+    /**
+     * Wraps a connection so every statement created from it is timed.
+     * @param conn Connection to wrap, may be null
+     * @return The instrumented connection, or conn itself when instrumentation is off
+     */
+    public Connection instrument(Connection conn) {
+        if (!ENABLED || conn == null) return conn;
+        return proxy(Connection.class, new ConnectionHandler(conn));
+    }
+
+    /**
+     * @return true if connections are being instrumented (-Dbookmart.db.instrument=true)
+     */
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // ---- Recording ----
+
+    private StatementStats statsFor(String sql) {
+        String normalized = normalizedCache.get(sql);
+        if (normalized == null) {
+            normalized = normalize(sql);
+            if (normalizedCache.size() < MAX_NORMALIZED_CACHE) {
+                normalizedCache.put(sql, normalized);
+            }
+        }
+        StatementStats stats = statements.get(normalized);
+        if (stats != null) return stats;
+        String key = statements.size() < MAX_STATEMENTS ? normalized : OVERFLOW_KEY;
+        return statements.computeIfAbsent(key, StatementStats::new);
+    }
+
+    /**
+     * Folds whitespace, literals, IN lists and multi-row VALUES lists so that executions
+     * differing only in values share an entry.
+     * @param sql SQL text as prepared or executed
+     * @return Normalized SQL
+     */
+    static String normalize(String sql) {
+        String s = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        s = STRING_LITERAL.matcher(s).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        return foldPlaceholderLists(s);
+    }
+
+    /**
+     * Folds "IN (?, ?, ?)" to "IN (...)" and "VALUES (?, ?), (?, ?), ..." to "VALUES (?, ?), ...".
+     * Scanned by hand because a regex with a repeated group recurses once per element and
+     * overflows the stack on multi-row INSERTs of a few thousand rows.
+     */
+    private static String foldPlaceholderLists(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        int i = 0;
+        while (i < s.length()) {
+            int end = placeholderTuple(s, i);
+            if (end < 0) {
+                out.append(s.charAt(i++));
+                continue;
+            }
+            if (endsWithIn(out) && s.lastIndexOf(',', end) > i) {
+                out.append("(...)");
+                i = end;
+                continue;
+            }
+            out.append(s, i, end);
+            boolean folded = false;
+            while (true) {
+                int comma = skipSpaces(s, end);
+                if (comma >= s.length() || s.charAt(comma) != ',') break;
+                int next = placeholderTuple(s, skipSpaces(s, comma + 1));
+                if (next < 0) break;
+                end = next;
+                folded = true;
+            }
+            if (folded) out.append(", ...");
+            i = end;
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return Index just past the ")" if s has a "(?, ?, ...)" tuple at start, else -1
+     */
+    private static int placeholderTuple(String s, int start) {
+        if (start >= s.length() || s.charAt(start) != '(') return -1;
+        int i = start + 1;
+        while (true) {
+            i = skipSpaces(s, i);
+            if (i >= s.length() || s.charAt(i) != '?') return -1;
+            i = skipSpaces(s, i + 1);
+            if (i >= s.length()) return -1;
+            if (s.charAt(i) == ')') return i + 1;
+            if (s.charAt(i) != ',') return -1;
+            i++;
+        }
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length() && s.charAt(i) == ' ') i++;
+        return i;
+    }
+
+    private static boolean endsWithIn(CharSequence out) {
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == ' ') end--;
+        if (end < 2) return false;
+        if (Character.toUpperCase(out.charAt(end - 2)) != 'I' || Character.toUpperCase(out.charAt(end - 1)) != 'N') return false;
+        return end == 2 || !Character.isLetterOrDigit(out.charAt(end - 3)) && out.charAt(end - 3) != '_';
+    }
+
+    private boolean isSlow(long nanos) {
+        return nanos >= slowQueryThresholdNanos;
+    }
+
+    /**
+     * @param rows Rows returned or affected, or -1 if the rows have not been read yet
+     */
+    private void logSlow(StatementStats stats, long nanos, long rows) {
+        slowQueries.increment();
+        stats.slow.increment();
+        String line = String.format("%s\t%.1fms\t%s rows\t%s\t%s",
+            LocalDateTime.now(), nanos / 1e6, rows < 0 ? "?" : String.valueOf(rows),
+            Thread.currentThread().getName(), stats.sql);
+        slowLogWriter.execute(() -> writeSlowLog(line));
+    }
+
+    private void writeSlowLog(String line) {
+        try {
+            if (slowLog == null) {
+                slowLog = new BufferedWriter(new FileWriter(slowLogPath, true));
+            }
+            slowLog.write(line);
+            slowLog.newLine();
+            slowLog.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            slowLog = null;
+        }
+    }
+
+    // ---- Reporting ----
+
+    /**
+     * @param limit Maximum number of statements, most total time first
+     * @return Text report
+     */
+    public String report(int limit) {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf("Query statistics since %s: %d statements, %d executions, %d errors, %d slower than %dms%n",
+            since, statements.size(), getTotalExecutions(), getTotalErrors(), getSlowQueryCount(),
+            getSlowQueryThresholdMillis());
+        out.printf("%8s %6s %10s %8s %8s %8s %8s %10s %8s %8s %9s  %s%n",
+            "count", "errors", "total ms", "mean ms", "p50 ms", "p99 ms", "max ms",
+            "rows", "rows/ex", "max rows", "fetch p99", "sql");
+        for (StatementStats s : sorted(limit)) {
+            out.println(s.line());
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    private List<StatementStats> sorted(int limit) {
+        List<StatementStats> list = new ArrayList<>(statements.values());
+        list.sort(Comparator.comparingLong((StatementStats s) -> s.totalNanos.sum()).reversed());
+        return list.size() > limit ? list.subList(0, limit) : list;
+    }
+
+    @Override
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    @Override
+    public long getTotalExecutions() {
+        long total = 0;
+        for (StatementStats s : statements.values()) total += s.execute.getCount();
+        return total;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long total = 0;
+        for (StatementStats s : statements.values()) total += s.errors.sum();
+        return total;
+    }
+
+    @Override
+    public long getSlowQueryCount() {
+        return slowQueries.sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    @Override
+    public String[] getTopStatements() {
+        List<StatementStats> top = sorted(TOP_STATEMENTS);
+        String[] lines = new String[top.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = top.get(i).line();
+        }
+        return lines;
+    }
+
+    @Override
+    public String getReport() {
+        return report(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean dumpReport(String path) {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(path))) {
+            out.write(getReport());
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public void reset() {
+        statements.clear();
+        slowQueries.reset();
+        since = LocalDateTime.now();
+    }
+
+    /**
+     * Counters for one normalized statement.
+     */
+    private static class StatementStats {
+        final String sql;
+        final LatencyHistogram prepare = new LatencyHistogram();
+        final LatencyHistogram execute = new LatencyHistogram();
+        final LatencyHistogram fetch = new LatencyHistogram();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final AtomicLong maxRows = new AtomicLong();
+        final LongAdder errors = new LongAdder();
+        final LongAdder slow = new LongAdder();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        void addRows(long n) {
+            rows.add(n);
+            maxRows.accumulateAndGet(n, Math::max);
+        }
+
+        void addTime(long nanos) {
+            totalNanos.add(nanos);
+        }
+
+        String line() {
+            long count = execute.getCount();
+            return String.format("%8d %6d %10.1f %8.2f %8.2f %8.2f %8.2f %10d %8.1f %8d %9.2f  %s",
+                count, errors.sum(), totalNanos.sum() / 1e6,
+                count == 0 ? 0.0 : totalNanos.sum() / 1e6 / count,
+                execute.getPercentileMicros(50) / 1000.0, execute.getPercentileMicros(99) / 1000.0,
+                execute.getMaxMicros() / 1000.0, rows.sum(),
+                count == 0 ? 0.0 : (double) rows.sum() / count, maxRows.get(),
+                fetch.getPercentileMicros(99) / 1000.0, sql);
+        }
+    }
+
+    // ---- JDBC proxies ----
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement", "prepareCall" -> {
+                    StatementStats stats = statsFor((String) args[0]);
+                    long start = System.nanoTime();
+                    Object stmt = call(target, method, args);
+                    stats.prepare.recordNanos(System.nanoTime() - start);
+                    return proxy(method.getReturnType(), new StatementHandler((Statement) stmt, stats));
+                }
+                case "createStatement" -> {
+                    return proxy(Statement.class, new StatementHandler((Statement) call(target, method, args), null));
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return call(target, method, args);
+                }
+            }
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        // Fixed for prepared statements; set per call for plain statements
+        private final StatementStats preparedStats;
+        private StatementStats lastStats;
+        private long lastExecuteNanos;
+
+        StatementHandler(Statement target, StatementStats preparedStats) {
+            this.target = target;
+            this.preparedStats = preparedStats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            switch (name) {
+                case "getResultSet" -> {
+                    ResultSet rs = (ResultSet) call(target, method, args);
+                    return rs == null || lastStats == null ? rs : wrap(rs, lastStats, lastExecuteNanos);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return call(target, method, args);
+                }
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            StatementStats stats = args != null && args.length > 0 && args[0] instanceof String
+                ? statsFor((String) args[0])
+                : preparedStats;
+            if (stats == null) {
+                return call(target, method, args);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(target, method, args);
+            } catch (Throwable e) {
+                stats.errors.increment();
+                throw e;
+            } finally {
+                lastExecuteNanos = System.nanoTime() - start;
+                stats.execute.recordNanos(lastExecuteNanos);
+                stats.addTime(lastExecuteNanos);
+            }
+            lastStats = stats;
+
+            // A query is checked against the slow threshold once its rows are read, since the
+            // driver may stream them; an update is complete now
+            if (result instanceof ResultSet) {
+                return wrap((ResultSet) result, stats, lastExecuteNanos);
+            }
+            long rows = 0;
+            if (result instanceof Integer || result instanceof Long) {
+                rows = Math.max(0, ((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                for (int n : (int[]) result) rows += Math.max(0, n);
+            } else if (result instanceof long[]) {
+                for (long n : (long[]) result) rows += Math.max(0, n);
+            } else if (Boolean.TRUE.equals(result)) {
+                // execute() produced a result set; it is charged when read through getResultSet()
+                return result;
+            }
+            stats.addRows(rows);
+            if (isSlow(lastExecuteNanos)) {
+                logSlow(stats, lastExecuteNanos, rows);
+            }
+            return result;
+        }
+
+        private ResultSet wrap(ResultSet rs, StatementStats stats, long executeNanos) {
+            ResultSetHandler handler = new ResultSetHandler(rs, stats, executeNanos);
+            // Callers often read one row and never close the result set, so a slow execute
+            // is logged straight away rather than waiting for the end of the rows
+            if (isSlow(executeNanos)) {
+                handler.logged = true;
+                logSlow(stats, executeNanos, -1);
+            }
+            return proxy(ResultSet.class, handler);
+        }
+    }
+
+    private class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final StatementStats stats;
+        private final long executeNanos;
+        private long fetchNanos;
+        private long rows;
+        private boolean done;
+        boolean logged;
+
+        ResultSetHandler(ResultSet target, StatementStats stats, long executeNanos) {
+            this.target = target;
+            this.stats = stats;
+            this.executeNanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next" -> {
+                    long start = System.nanoTime();
+                    boolean more = (Boolean) call(target, method, args);
+                    long elapsed = System.nanoTime() - start;
+                    fetchNanos += elapsed;
+                    stats.addTime(elapsed);
+                    if (more) {
+                        rows++;
+                        stats.rows.increment();
+                        if (rows > stats.maxRows.get()) {
+                            stats.maxRows.accumulateAndGet(rows, Math::max);
+                        }
+                    } else {
+                        done();
+                    }
+                    return more;
+                }
+                case "close" -> {
+                    done();
+                    return call(target, method, args);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return call(target, method, args);
+                }
+            }
+        }
+
+        private void done() {
+            if (done) return;
+            done = true;
+            stats.fetch.recordNanos(fetchNanos);
+            if (!logged && isSlow(executeNanos + fetchNanos)) {
+                logSlow(stats, executeNanos + fetchNanos, rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package main;
+
+/**
+ * JMX view of QueryStats, registered as bookmart:type=QueryStats.
+ */
+public interface QueryStatsMXBean {
+    /**
+     * @return Number of distinct normalized statements seen
+     */
+    int getStatementCount();
+
+    long getTotalExecutions();
+
+    long getTotalErrors();
+
+    long getSlowQueryCount();
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+
+    /**
+     * @return One line per statement for the statements with the most total time
+     */
+    String[] getTopStatements();
+
+    /**
+     * @return The full text report
+     */
+    String getReport();
+
+    /**
+     * Writes the full text report to a file.
+     * @param path File to write
+     * @return true if the file was written
+     */
+    boolean dumpReport(String path);
+
+    void reset();
+}
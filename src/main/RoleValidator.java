@@ -4,11 +4,22 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility class for role validation.
+ * Roles are cached for ROLE_TTL_MS and invalidated explicitly when a user's role
+ * changes or the user is removed.
  */
 public class RoleValidator {
+    private static final long ROLE_TTL_MS = 60_000;
+
+    private static final Map<Integer, CachedRole> roles = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so outstanding AuthTokens can tell they are stale
+    private static final AtomicLong generation = new AtomicLong();
+
     /**
      * Checks if the given user ID is an admin. Throws SecurityException if not.
      * @param userId User ID to check
@@ -26,16 +37,114 @@ public class RoleValidator {
      * @return true if admin, false otherwise
      */
     public static boolean isAdmin(int userId) {
+        return "Admin".equalsIgnoreCase(getRole(userId));
+    }
+
+    /**
+     * Returns the user's role, from the cache if it has not expired.
+     * @param userId User ID to look up
+     * @return Role name, or null if the user does not exist or the lookup failed
+     */
+    public static String getRole(int userId) {
+        long now = System.currentTimeMillis();
+        CachedRole cached = roles.get(userId);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.role;
+        }
+        long gen = generation.get();
         try (Connection conn = DBConnection.getConnection()) {
             PreparedStatement stmt = conn.prepareStatement("SELECT role FROM users WHERE user_id = ?");
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return "Admin".equalsIgnoreCase(rs.getString("role"));
+            String role = rs.next() ? rs.getString("role") : null;
+            // Don't cache a result that raced with an invalidation
+            if (gen == generation.get()) {
+                roles.put(userId, new CachedRole(role, now + ROLE_TTL_MS));
             }
+            return role;
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Seeds the cache with a role that was just read, e.g. at login.
+     * @param userId User ID
+     * @param role Role name
+     */
+    public static void cacheRole(int userId, String role) {
+        roles.put(userId, new CachedRole(role, System.currentTimeMillis() + ROLE_TTL_MS));
+    }
+
+    /**
+     * Checks the user's role once and returns a token that can be re-checked for the rest
+     * of the session without another role query.
+     * @param userId User ID to authorize
+     * @return Token for the user's current role
+     */
+    public static AuthToken authorize(int userId) {
+        long gen = generation.get();
+        return new AuthToken(userId, getRole(userId), gen, System.currentTimeMillis() + ROLE_TTL_MS);
+    }
+
+    /**
+     * Drops the cached role of a user whose role changed or who was removed, and clears
+     * admin authorizations cached in pooled database sessions.
+     * @param userId User ID
+     */
+    public static void invalidate(int userId) {
+        generation.incrementAndGet();
+        roles.remove(userId);
+        DBConnection.getPool().invalidateSessions();
+    }
+
+    public static void invalidateAll() {
+        generation.incrementAndGet();
+        roles.clear();
+        DBConnection.getPool().invalidateSessions();
+    }
+
+    /**
+     * Session-scoped authorization for one user. Stays valid until it expires or any role
+     * is invalidated; after that, refresh() re-checks the role.
+     */
+    public static class AuthToken {
+        public final int userId;
+        public final String role;
+        private final long generationAtIssue;
+        private final long expiresAt;
+
+        private AuthToken(int userId, String role, long generationAtIssue, long expiresAt) {
+            this.userId = userId;
+            this.role = role;
+            this.generationAtIssue = generationAtIssue;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isValid() {
+            return generationAtIssue == generation.get() && System.currentTimeMillis() < expiresAt;
+        }
+
+        /**
+         * @return This token if still valid, otherwise a freshly checked one
+         */
+        public AuthToken refresh() {
+            return isValid() ? this : authorize(userId);
+        }
+
+        public boolean isAdmin() {
+            return "Admin".equalsIgnoreCase(role);
+        }
+    }
+
+    private static class CachedRole {
+        final String role;
+        final long expiresAt;
+
+        CachedRole(String role, long expiresAt) {
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,521 @@
+package main;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sales analytics over incrementally maintained rollup tables (sales_daily,
+ * sales_daily_genre, sales_daily_book).
+ * Checkout adds its order to sales_rollup_queue in the same transaction that creates it. A
+ * background tailer reads queued orders with their items, adds the deltas to the rollups and
+ * deletes exactly the queue rows it read, all in one transaction, so every order is counted
+ * exactly once whatever order the checkouts commit in. Checkout does not touch the rollups
+ * itself: a per-day row updated by every order would serialize all checkouts on one lock.
+ *
+ * The tailer runs only in processes that call startTailer() (the admin client and the API
+ * server); a committed checkout in such a process nudges it to fold the order in within a
+ * second. The dashboard queries read only the rollups.
+ */
+public class SalesAnalytics {
+    private static final SalesAnalytics INSTANCE = new SalesAnalytics();
+
+    private static final int BATCH_ORDERS = 1000;
+    private static final long NUDGE_DELAY_MS = 1000;
+    private static final long POLL_INTERVAL_MS = 30_000;
+    private static final String UNKNOWN = "Unknown";
+
+    // Queued orders with their items, oldest first; an order deleted since it was queued comes
+    // back as a single row of NULLs so its queue row is still removed
+    static final String QUEUED_ITEMS_SQL = """
+        SELECT q.order_id, oi.book_id, oi.quantity, oi.price_each, o.order_date,
+               c.currency_code, c.exchange_rate_to_php, b.genre
+        FROM (SELECT order_id FROM sales_rollup_queue ORDER BY order_id LIMIT ?) q
+        LEFT JOIN orders o ON o.order_id = q.order_id
+        LEFT JOIN order_items oi ON oi.order_id = q.order_id
+        LEFT JOIN currencies c ON c.currency_id = o.currency_id
+        LEFT JOIN books b ON b.book_id = oi.book_id
+        ORDER BY q.order_id
+        """;
+
+    private volatile ScheduledExecutorService tailer;
+    private final AtomicBoolean nudgePending = new AtomicBoolean();
+
+    private SalesAnalytics() {
+    }
+
+    public static SalesAnalytics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts the background tailer in this process, catching up right away and then
+     * every POLL_INTERVAL_MS. Further calls do nothing.
+     */
+    public synchronized void startTailer() {
+        if (tailer != null) return;
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "sales-rollup-tailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::catchUpQuietly, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        tailer = executor;
+    }
+
+    /**
+     * Schedules a catch-up shortly after a committed checkout, if the tailer runs in this
+     * process. Several orders within NUDGE_DELAY_MS share one run.
+     */
+    public void orderPlaced() {
+        ScheduledExecutorService executor = tailer;
+        if (executor != null && nudgePending.compareAndSet(false, true)) {
+            executor.schedule(() -> {
+                nudgePending.set(false);
+                catchUpQuietly();
+            }, NUDGE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void catchUpQuietly() {
+        try {
+            catchUp();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Rolls up every queued order.
+     * Safe to run from several processes at once: the state row lock serializes them.
+     * @return Number of order items added to the rollups
+     * @throws SQLException if a batch fails; batches committed before it are kept
+     */
+    public int catchUp() throws SQLException {
+        int total = 0;
+        while (true) {
+            Batch batch = TransactionRetry.run(this::rollUpBatch);
+            total += batch.items;
+            if (!batch.more) return total;
+        }
+    }
+
+    private Batch rollUpBatch() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Batch batch = rollUpBatchIn(conn);
+                conn.commit();
+                return batch;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private Batch rollUpBatchIn(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM sales_rollup_state WHERE id = 1 FOR UPDATE");
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) throw new SQLException("sales_rollup_state has no row");
+        }
+
+        Map<Key, Totals> byCurrency = new HashMap<>();
+        Map<Key, Totals> byGenre = new HashMap<>();
+        Map<Key, Totals> byBook = new HashMap<>();
+        // Rows come grouped by order, so an order is counted at its first item
+        List<Integer> queued = new ArrayList<>();
+        int items = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(QUEUED_ITEMS_SQL)) {
+            stmt.setInt(1, BATCH_ORDERS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int orderId = rs.getInt("order_id");
+                    boolean firstItem = queued.isEmpty() || queued.get(queued.size() - 1) != orderId;
+                    if (firstItem) queued.add(orderId);
+                    int bookId = rs.getInt("book_id");
+                    if (rs.wasNull()) continue;
+
+                    Timestamp orderDate = rs.getTimestamp("order_date");
+                    Date day = orderDate != null ? Date.valueOf(orderDate.toLocalDateTime().toLocalDate())
+                                                 : Date.valueOf(LocalDate.now());
+                    int quantity = rs.getInt("quantity");
+                    BigDecimal priceEach = rs.getBigDecimal("price_each");
+                    BigDecimal revenue = priceEach == null ? BigDecimal.ZERO : priceEach.multiply(BigDecimal.valueOf(quantity));
+                    BigDecimal rate = rs.getBigDecimal("exchange_rate_to_php");
+                    BigDecimal revenuePhp = rate == null ? revenue : revenue.multiply(rate);
+                    String currency = Objects.requireNonNullElse(rs.getString("currency_code"), UNKNOWN);
+                    String genre = Objects.requireNonNullElse(rs.getString("genre"), UNKNOWN);
+                    int orders = firstItem ? 1 : 0;
+
+                    byCurrency.computeIfAbsent(new Key(day, currency), k -> new Totals()).add(orders, quantity, revenue, revenuePhp);
+                    byGenre.computeIfAbsent(new Key(day, genre), k -> new Totals()).add(orders, quantity, revenue, revenuePhp);
+                    byBook.computeIfAbsent(new Key(day, bookId), k -> new Totals()).add(orders, quantity, revenue, revenuePhp);
+                    items++;
+                }
+            }
+        }
+        if (queued.isEmpty()) {
+            return new Batch(0, false);
+        }
+        upsert(conn, """
+            INSERT INTO sales_daily (sales_date, currency_code, order_count, units, revenue, revenue_php)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), units = units + VALUES(units),
+                revenue = revenue + VALUES(revenue), revenue_php = revenue_php + VALUES(revenue_php)
+            """, byCurrency, true);
+        upsert(conn, """
+            INSERT INTO sales_daily_genre (sales_date, genre, units, revenue_php) VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE units = units + VALUES(units), revenue_php = revenue_php + VALUES(revenue_php)
+            """, byGenre, false);
+        upsert(conn, """
+            INSERT INTO sales_daily_book (sales_date, book_id, units, revenue_php) VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE units = units + VALUES(units), revenue_php = revenue_php + VALUES(revenue_php)
+            """, byBook, false);
+        // Exactly the rows read: an order queued by a checkout that committed meanwhile stays
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM sales_rollup_queue WHERE order_id = ?")) {
+            for (int orderId : queued) {
+                stmt.setInt(1, orderId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE sales_rollup_state SET updated_at = CURRENT_TIMESTAMP WHERE id = 1")) {
+            stmt.executeUpdate();
+        }
+        return new Batch(items, queued.size() == BATCH_ORDERS);
+    }
+
+    private static void upsert(Connection conn, String sql, Map<Key, Totals> deltas, boolean withCurrency) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Key, Totals> entry : deltas.entrySet()) {
+                Key key = entry.getKey();
+                Totals totals = entry.getValue();
+                int p = 1;
+                stmt.setDate(p++, key.day);
+                stmt.setObject(p++, key.group);
+                if (withCurrency) {
+                    stmt.setInt(p++, totals.orders);
+                    stmt.setInt(p++, totals.units);
+                    stmt.setBigDecimal(p++, totals.revenue.setScale(2, RoundingMode.HALF_UP));
+                } else {
+                    stmt.setInt(p++, totals.units);
+                }
+                stmt.setBigDecimal(p, totals.revenuePhp.setScale(2, RoundingMode.HALF_UP));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Empties the rollups and rebuilds them from all order items (admin only).
+     * Use after orders were deleted or edited outside checkout.
+     * @param adminUserId Admin's user ID
+     * @return Number of order items rolled up
+     * @throws SQLException if the rebuild fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public int rebuild(int adminUserId) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        TransactionRetry.run(() -> {
+            try (Connection conn = DBConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeQuery("SELECT id FROM sales_rollup_state WHERE id = 1 FOR UPDATE").close();
+                    stmt.executeUpdate("DELETE FROM sales_daily");
+                    stmt.executeUpdate("DELETE FROM sales_daily_genre");
+                    stmt.executeUpdate("DELETE FROM sales_daily_book");
+                    stmt.executeUpdate("UPDATE sales_rollup_state SET updated_at = NULL WHERE id = 1");
+                    // Orders already queued stay queued; a checkout still in flight queues its own
+                    stmt.executeUpdate("INSERT INTO sales_rollup_queue (order_id) " +
+                                       "SELECT o.order_id FROM orders o WHERE NOT EXISTS " +
+                                       "(SELECT 1 FROM sales_rollup_queue q WHERE q.order_id = o.order_id)");
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+            return null;
+        });
+        int items = catchUp();
+        AuditLog.getInstance().record(adminUserId, "REBUILD_SALES_ROLLUPS", "Rolled up " + items + " order items");
+        return items;
+    }
+
+    /**
+     * @return When the rollups last took in new items, or null if never
+     * @throws SQLException if the query fails
+     */
+    public Timestamp getLastRollupTime() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT updated_at FROM sales_rollup_state WHERE id = 1");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getTimestamp(1) : null;
+        }
+    }
+
+    /**
+     * Sales per day across all currencies (admin only).
+     * @param adminUserId Admin's user ID
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @return One entry per day with sales, oldest first
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public List<DailySales> getDailySales(int adminUserId, LocalDate from, LocalDate to) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        String sql = "SELECT sales_date, SUM(order_count), SUM(units), SUM(revenue_php) FROM sales_daily " +
+                     "WHERE sales_date BETWEEN ? AND ? GROUP BY sales_date ORDER BY sales_date";
+        List<DailySales> days = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = prepareRange(conn, sql, from, to);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                days.add(new DailySales(rs.getDate(1).toLocalDate(), rs.getInt(2), rs.getInt(3), rs.getDouble(4)));
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Sales per currency (admin only).
+     * @param adminUserId Admin's user ID
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @return One entry per currency, highest PHP revenue first
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public List<CurrencySales> getCurrencySales(int adminUserId, LocalDate from, LocalDate to) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        String sql = "SELECT currency_code, SUM(order_count), SUM(units), SUM(revenue), SUM(revenue_php) FROM sales_daily " +
+                     "WHERE sales_date BETWEEN ? AND ? GROUP BY currency_code ORDER BY SUM(revenue_php) DESC";
+        List<CurrencySales> currencies = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = prepareRange(conn, sql, from, to);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                currencies.add(new CurrencySales(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getDouble(4), rs.getDouble(5)));
+            }
+        }
+        return currencies;
+    }
+
+    /**
+     * Sales per genre (admin only).
+     * @param adminUserId Admin's user ID
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @return One entry per genre, highest PHP revenue first
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public List<GenreSales> getGenreSales(int adminUserId, LocalDate from, LocalDate to) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        String sql = "SELECT genre, SUM(units), SUM(revenue_php) FROM sales_daily_genre " +
+                     "WHERE sales_date BETWEEN ? AND ? GROUP BY genre ORDER BY SUM(revenue_php) DESC";
+        List<GenreSales> genres = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = prepareRange(conn, sql, from, to);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                genres.add(new GenreSales(rs.getString(1), rs.getInt(2), rs.getDouble(3)));
+            }
+        }
+        return genres;
+    }
+
+    /**
+     * Best-selling books by PHP revenue (admin only). Titles are looked up for just the
+     * returned books.
+     * @param adminUserId Admin's user ID
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @param limit Maximum number of books
+     * @return Top books, highest PHP revenue first
+     * @throws SQLException if the query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public List<BookSales> getTopBooks(int adminUserId, LocalDate from, LocalDate to, int limit) throws SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        String sql = """
+            SELECT t.book_id, b.title, t.units, t.revenue_php
+            FROM (SELECT book_id, SUM(units) AS units, SUM(revenue_php) AS revenue_php
+                  FROM sales_daily_book WHERE sales_date BETWEEN ? AND ?
+                  GROUP BY book_id ORDER BY revenue_php DESC LIMIT ?) t
+            LEFT JOIN books b ON b.book_id = t.book_id
+            ORDER BY t.revenue_php DESC
+            """;
+        List<BookSales> books = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = prepareRange(conn, sql, from, to)) {
+            stmt.setInt(3, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String title = rs.getString(2);
+                    books.add(new BookSales(rs.getInt(1), title != null ? title : "(deleted book)", rs.getInt(3), rs.getDouble(4)));
+                }
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Everything the admin dashboard shows for a date range (admin only).
+     * @param adminUserId Admin's user ID
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @param topBooks Number of best-selling books to include
+     * @return Per-day, per-currency, per-genre and top-book sales
+     * @throws SQLException if a query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public Dashboard getDashboard(int adminUserId, LocalDate from, LocalDate to, int topBooks) throws SQLException {
+        return new Dashboard(
+            getDailySales(adminUserId, from, to),
+            getCurrencySales(adminUserId, from, to),
+            getGenreSales(adminUserId, from, to),
+            getTopBooks(adminUserId, from, to, topBooks),
+            getLastRollupTime());
+    }
+
+    private static PreparedStatement prepareRange(Connection conn, String sql, LocalDate from, LocalDate to) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        stmt.setDate(1, Date.valueOf(from));
+        stmt.setDate(2, Date.valueOf(to));
+        return stmt;
+    }
+
+    // One rollup row: a day plus a currency code, genre or book ID
+    private static class Key {
+        final Date day;
+        final Object group;
+
+        Key(Date day, Object group) {
+            this.day = day;
+            this.group = group;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && day.equals(k.day) && group.equals(k.group);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * day.hashCode() + group.hashCode();
+        }
+    }
+
+    private static class Totals {
+        int orders;
+        int units;
+        BigDecimal revenue = BigDecimal.ZERO;
+        BigDecimal revenuePhp = BigDecimal.ZERO;
+
+        void add(int orders, int units, BigDecimal revenue, BigDecimal revenuePhp) {
+            this.orders += orders;
+            this.units += units;
+            this.revenue = this.revenue.add(revenue);
+            this.revenuePhp = this.revenuePhp.add(revenuePhp);
+        }
+    }
+
+    private static class Batch {
+        final int items;
+        // True if the batch was full, so more orders may be queued
+        final boolean more;
+
+        Batch(int items, boolean more) {
+            this.items = items;
+            this.more = more;
+        }
+    }
+
+    // Data classes for return values
+    public static class Dashboard {
+        public final List<DailySales> days;
+        public final List<CurrencySales> currencies;
+        public final List<GenreSales> genres;
+        public final List<BookSales> topBooks;
+        public final Timestamp rolledUpAt;
+        public Dashboard(List<DailySales> days, List<CurrencySales> currencies, List<GenreSales> genres,
+                         List<BookSales> topBooks, Timestamp rolledUpAt) {
+            this.days = days;
+            this.currencies = currencies;
+            this.genres = genres;
+            this.topBooks = topBooks;
+            this.rolledUpAt = rolledUpAt;
+        }
+    }
+
+    public static class DailySales {
+        public final LocalDate date;
+        public final int orders;
+        public final int units;
+        public final double revenuePhp;
+        public DailySales(LocalDate date, int orders, int units, double revenuePhp) {
+            this.date = date;
+            this.orders = orders;
+            this.units = units;
+            this.revenuePhp = revenuePhp;
+        }
+    }
+
+    public static class CurrencySales {
+        public final String currencyCode;
+        public final int orders;
+        public final int units;
+        public final double revenue;
+        public final double revenuePhp;
+        public CurrencySales(String currencyCode, int orders, int units, double revenue, double revenuePhp) {
+            this.currencyCode = currencyCode;
+            this.orders = orders;
+            this.units = units;
+            this.revenue = revenue;
+            this.revenuePhp = revenuePhp;
+        }
+    }
+
+    public static class GenreSales {
+        public final String genre;
+        public final int units;
+        public final double revenuePhp;
+        public GenreSales(String genre, int units, double revenuePhp) {
+            this.genre = genre;
+            this.units = units;
+            this.revenuePhp = revenuePhp;
+        }
+    }
+
+    public static class BookSales {
+        public final int bookId;
+        public final String title;
+        public final int units;
+        public final double revenuePhp;
+        public BookSales(int bookId, String title, int units, double revenuePhp) {
+            this.bookId = bookId;
+            this.title = title;
+            this.units = units;
+            this.revenuePhp = revenuePhp;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports orders, order_items and transaction_logs for the orders matching an OrderFilter.
+ * Each table is read through a server-side cursor and written row by row, so memory use does
+ * not grow with the export. All three tables are read in one read-only transaction and so
+ * come from the same snapshot. Files are written under a temporary name and renamed when
+ * complete, so a failed export never leaves a truncated file behind.
+ */
+public class SalesExporter {
+    private static final int EXPORT_FETCH_SIZE = 2000;
+    private static final int PROGRESS_EVERY_ROWS = 10_000;
+
+    /**
+     * Output file formats.
+     */
+    public enum Format {
+        /** Comma-separated values with a header row, gzip-compressed (.csv.gz) */
+        CSV_GZIP(".csv.gz"),
+        /** ColumnarFile row groups (.bmcol) */
+        COLUMNAR(".bmcol");
+
+        public final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Receives progress on the exporting thread.
+     */
+    public interface ProgressListener {
+        /**
+         * @param table Table being written
+         * @param rows Rows of that table written so far
+         */
+        void onProgress(String table, long rows);
+    }
+
+    private enum Table {
+        ORDERS("orders",
+            new String[]{"order_id", "user_id", "order_date", "total_amount", "currency_code", "status"},
+            new ColumnarFile.Type[]{ColumnarFile.Type.LONG, ColumnarFile.Type.LONG, ColumnarFile.Type.TIMESTAMP,
+                ColumnarFile.Type.DECIMAL, ColumnarFile.Type.STRING, ColumnarFile.Type.STRING},
+            "SELECT o.order_id, o.user_id, o.order_date, o.total_amount, c.currency_code, o.status " +
+            "FROM orders o LEFT JOIN currencies c ON o.currency_id = c.currency_id%s ORDER BY o.order_id"),
+        ORDER_ITEMS("order_items",
+            new String[]{"order_item_id", "order_id", "book_id", "quantity", "price_each"},
+            new ColumnarFile.Type[]{ColumnarFile.Type.LONG, ColumnarFile.Type.LONG, ColumnarFile.Type.LONG,
+                ColumnarFile.Type.LONG, ColumnarFile.Type.DECIMAL},
+            "SELECT oi.order_item_id, oi.order_id, oi.book_id, oi.quantity, oi.price_each " +
+            "FROM order_items oi JOIN orders o ON oi.order_id = o.order_id%s ORDER BY oi.order_item_id"),
+        TRANSACTION_LOGS("transaction_logs",
+            new String[]{"transaction_id", "order_id", "payment_method", "payment_status", "amount", "logged_at"},
+            new ColumnarFile.Type[]{ColumnarFile.Type.LONG, ColumnarFile.Type.LONG, ColumnarFile.Type.STRING,
+                ColumnarFile.Type.STRING, ColumnarFile.Type.DECIMAL, ColumnarFile.Type.TIMESTAMP},
+            "SELECT t.transaction_id, t.order_id, t.payment_method, t.payment_status, t.amount, t.timestambooksusersp " +
+            "FROM transaction_logs t JOIN orders o ON t.order_id = o.order_id%s ORDER BY t.transaction_id");
+
+        final String name;
+        final String[] columns;
+        final ColumnarFile.Type[] types;
+        final String sql;
+
+        Table(String name, String[] columns, ColumnarFile.Type[] types, String sql) {
+            this.name = name;
+            this.columns = columns;
+            this.types = types;
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Writes one file per table into the directory, named after the table, e.g. orders.csv.gz.
+     * Existing files with those names are replaced, all together once every table has been written.
+     * @param adminUserId Admin's user ID
+     * @param filter Orders to export; items and transaction logs follow their orders
+     * @param format Output format
+     * @param directory Directory to write into
+     * @param listener Progress callback, or null
+     * @return Rows and file per table
+     * @throws IOException if a file cannot be written
+     * @throws SQLException if a query fails
+     * @throws SecurityException if the user is not an admin
+     */
+    public ExportResult export(int adminUserId, AdminService.OrderFilter filter, Format format, Path directory,
+                               ProgressListener listener) throws IOException, SQLException {
+        RoleValidator.validateAdmin(adminUserId);
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        List<Path> files = new ArrayList<>();
+        List<Path> partials = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            // One snapshot for all tables, so every exported item has its order
+            int isolation = conn.getTransactionIsolation();
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                // Every table goes to a .part file first; the previous export is only replaced
+                // once all of them succeeded, so the files never mix two snapshots
+                for (Table table : Table.values()) {
+                    Path partial = directory.resolve(table.name + format.extension + ".part");
+                    partials.add(partial);
+                    rowCounts.put(table.name, exportTable(conn, table, filter, format, partial, listener));
+                    files.add(directory.resolve(table.name + format.extension));
+                }
+                conn.commit();
+            } catch (IOException | SQLException | RuntimeException e) {
+                for (Path partial : partials) {
+                    Files.deleteIfExists(partial);
+                }
+                throw e;
+            } finally {
+                conn.rollback();
+                conn.setReadOnly(false);
+                conn.setTransactionIsolation(isolation);
+                conn.setAutoCommit(true);
+            }
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Files.move(partials.get(i), files.get(i), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        AuditLog.getInstance().record(adminUserId, "EXPORT_SALES", "Exported " + rowCounts + " as " + format
+            + " to " + directory);
+        return new ExportResult(rowCounts, files, elapsedMillis);
+    }
+
+    private static long exportTable(Connection conn, Table table, AdminService.OrderFilter filter, Format format,
+                                    Path file, ProgressListener listener) throws IOException, SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = String.format(table.sql, filter.toWhereClause(params));
+        try (PreparedStatement stmt = AdminService.openStream(conn, sql, EXPORT_FETCH_SIZE)) {
+            AdminService.bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery();
+                 RowSink sink = format == Format.CSV_GZIP ? new CsvSink(file, table) : new ColumnarSink(file, table)) {
+                Object[] row = new Object[table.types.length];
+                long rows = 0;
+                while (rs.next()) {
+                    for (int c = 0; c < row.length; c++) {
+                        row[c] = read(rs, c + 1, table.types[c]);
+                    }
+                    sink.write(row);
+                    rows++;
+                    if (listener != null && rows % PROGRESS_EVERY_ROWS == 0) {
+                        listener.onProgress(table.name, rows);
+                    }
+                }
+                if (listener != null) {
+                    listener.onProgress(table.name, rows);
+                }
+                return rows;
+            }
+        }
+    }
+
+    private static Object read(ResultSet rs, int column, ColumnarFile.Type type) throws SQLException {
+        Object value = switch (type) {
+            case LONG -> rs.getLong(column);
+            case DECIMAL -> rs.getBigDecimal(column);
+            case TIMESTAMP -> rs.getTimestamp(column);
+            case STRING -> rs.getString(column);
+        };
+        return rs.wasNull() ? null : value;
+    }
+
+    private interface RowSink extends AutoCloseable {
+        void write(Object[] row) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static class CsvSink implements RowSink {
+        private final Writer out;
+
+        CsvSink(Path file, Table table) throws IOException {
+            out = new OutputStreamWriter(new GZIPOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024), 64 * 1024), StandardCharsets.UTF_8);
+            write(table.columns);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            for (int c = 0; c < row.length; c++) {
+                if (c > 0) out.write(',');
+                Object value = row[c];
+                if (value == null) continue;
+                if (value instanceof BigDecimal d) {
+                    out.write(d.toPlainString());
+                } else if (value instanceof Timestamp t) {
+                    out.write(t.toLocalDateTime().toString());
+                } else if (value instanceof String s) {
+                    writeQuoted(s);
+                } else {
+                    out.write(value.toString());
+                }
+            }
+            out.write('\n');
+        }
+
+        private void writeQuoted(String s) throws IOException {
+            boolean needsQuotes = false;
+            for (int i = 0; i < s.length() && !needsQuotes; i++) {
+                char ch = s.charAt(i);
+                needsQuotes = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!needsQuotes) {
+                out.write(s);
+                return;
+            }
+            out.write('"');
+            out.write(s.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static class ColumnarSink implements RowSink {
+        private final ColumnarFile.Writer out;
+
+        ColumnarSink(Path file, Table table) throws IOException {
+            out = new ColumnarFile.Writer(file, table.columns, table.types);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            out.writeRow(row);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // Data classes for return values
+    public static class ExportResult {
+        /** Rows written per table name, in export order */
+        public final Map<String, Long> rowCounts;
+        public final List<Path> files;
+        public final long elapsedMillis;
+        public ExportResult(Map<String, Long> rowCounts, List<Path> files, long elapsedMillis) {
+            this.rowCounts = rowCounts;
+            this.files = files;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Applies versioned schema scripts and records which ones ran.
+ * Scripts live in database/migrations (or -Dbookmart.migrations.dir) and are named
+ * NNN_description.sql; they run in version order, each at most once, and each applied
+ * version is recorded in schema_migrations with a checksum of the script. A fresh database
+ * created from database/schema.sql records the versions it already contains, so only
+ * later scripts run. On MySQL a named lock keeps two clients starting at once from
+ * applying the same script twice. Script BASELINE_VERSION brings a database created from the
+ * original schema up to the one this code needs; the application refuses to start until it
+ * is recorded, for instance when the scripts could not be found.
+ *
+ * Scripts use the mysql client's syntax: statements end with ';', and DELIMITER lines
+ * change the terminator for procedure bodies. DDL commits implicitly in MySQL, so a script
+ * that fails part way is not rolled back; it stays unrecorded and has to be fixed by hand.
+ */
+public class SchemaMigrator {
+    private static final Pattern SCRIPT_NAME = Pattern.compile("(\\d+)_([\\w-]+)\\.sql");
+    private static final String LOCK_NAME = "bookmart.schema_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    // Oldest schema the application runs against: database/migrations/003_baseline.sql
+    static final int BASELINE_VERSION = 3;
+
+    private final Path directory;
+
+    public SchemaMigrator() {
+        this(Paths.get(System.getProperty("bookmart.migrations.dir", "database/migrations")));
+    }
+
+    /**
+     * @param directory Directory holding the NNN_description.sql scripts
+     */
+    public SchemaMigrator(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Applies pending migrations at application startup, unless -Dbookmart.db.migrate=false,
+     * then checks that the baseline migration has been applied.
+     * @return false if a migration failed or the baseline is missing; the error has been printed
+     */
+    public static boolean migrateAtStartup() {
+        SchemaMigrator migrator = new SchemaMigrator();
+        try {
+            if (Boolean.parseBoolean(System.getProperty("bookmart.db.migrate", "true"))) {
+                for (Migration m : migrator.migrate()) {
+                    System.out.println("Applied schema migration " + m.version + " (" + m.description + ")");
+                }
+            }
+            if (!migrator.getAppliedVersions().contains(BASELINE_VERSION)) {
+                System.err.println("Database schema lacks migration " + BASELINE_VERSION + " (baseline); apply the scripts in "
+                    + migrator.directory.toAbsolutePath() + " or set -Dbookmart.migrations.dir");
+                return false;
+            }
+            return true;
+        } catch (IOException | SQLException e) {
+            System.err.println("Schema migration failed: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Applies every script newer than the database, in version order.
+     * @return Migrations applied by this call, in order; empty if the schema was current
+     * @throws IOException if a script cannot be read
+     * @throws SQLException if a script fails; later scripts are not run
+     */
+    public List<Migration> migrate() throws IOException, SQLException {
+        List<Migration> applied = new ArrayList<>();
+        TreeMap<Integer, Migration> available = findScripts();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("No database connection.");
+            createTable(conn);
+            boolean locked = lock(conn);
+            try {
+                Map<Integer, String> done = readApplied(conn);
+                for (Migration m : available.values()) {
+                    if (done.containsKey(m.version)) {
+                        String checksum = done.get(m.version);
+                        if (checksum != null && !checksum.equals(m.checksum)) {
+                            System.err.println("Warning: schema migration " + m.version + " was changed after it was applied");
+                        }
+                        continue;
+                    }
+                    apply(conn, m);
+                    applied.add(m);
+                }
+            } finally {
+                if (locked) unlock(conn);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @return Versions recorded in schema_migrations, in order
+     * @throws SQLException if the table cannot be read
+     */
+    public List<Integer> getAppliedVersions() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("No database connection.");
+            createTable(conn);
+            return new ArrayList<>(readApplied(conn).keySet());
+        }
+    }
+
+    private TreeMap<Integer, Migration> findScripts() throws IOException {
+        TreeMap<Integer, Migration> scripts = new TreeMap<>();
+        if (!Files.isDirectory(directory)) return scripts;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.sql")) {
+            for (Path file : files) {
+                Matcher m = SCRIPT_NAME.matcher(file.getFileName().toString());
+                if (!m.matches()) {
+                    System.err.println("Warning: ignoring " + file + ", expected NNN_description.sql");
+                    continue;
+                }
+                int version = Integer.parseInt(m.group(1));
+                byte[] bytes = Files.readAllBytes(file);
+                Migration migration = new Migration(version, m.group(2), checksum(bytes),
+                    new String(bytes, StandardCharsets.UTF_8));
+                Migration clash = scripts.put(version, migration);
+                if (clash != null) {
+                    throw new IOException("Two migration scripts have version " + version);
+                }
+            }
+        }
+        return scripts;
+    }
+
+    private static void createTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                "version INT PRIMARY KEY, " +
+                "description VARCHAR(200) NOT NULL, " +
+                "checksum VARCHAR(16), " +
+                "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "execution_millis BIGINT NOT NULL DEFAULT 0)");
+        }
+    }
+
+    private static Map<Integer, String> readApplied(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new TreeMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations ORDER BY version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection conn, Migration m) throws SQLException {
+        long start = System.nanoTime();
+        List<String> statements = splitStatements(m.script);
+        try (Statement stmt = conn.createStatement()) {
+            for (int i = 0; i < statements.size(); i++) {
+                try {
+                    stmt.execute(statements.get(i));
+                } catch (SQLException e) {
+                    throw new SQLException("Migration " + m.version + " (" + m.description + ") failed at statement "
+                        + (i + 1) + ": " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO schema_migrations (version, description, checksum, execution_millis) VALUES (?, ?, ?, ?)")) {
+            stmt.setInt(1, m.version);
+            stmt.setString(2, m.description);
+            stmt.setString(3, m.checksum);
+            stmt.setLong(4, (System.nanoTime() - start) / 1_000_000);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Named locks are MySQL-only; the embedded H2 database has one client
+    private static boolean lock(Connection conn) throws SQLException {
+        if (!conn.getMetaData().getDatabaseProductName().equals("MySQL")) return false;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another client's schema migration.");
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void unlock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        }
+    }
+
+    private static String checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Splits a script into statements. Terminators inside quotes, backticks and comments
+     * are ignored; comments are dropped; "DELIMITER x" lines change the terminator.
+     * @param script Script text
+     * @return Statements without their terminators, blank ones skipped
+     */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        String delimiter = ";";
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        int n = script.length();
+        while (i < n) {
+            // DELIMITER is a client command and only counts at the start of a line
+            if ((i == 0 || script.charAt(i - 1) == '\n') && current.toString().isBlank()) {
+                int lineEnd = script.indexOf('\n', i);
+                if (lineEnd < 0) lineEnd = n;
+                String line = script.substring(i, lineEnd).trim();
+                if (line.regionMatches(true, 0, "DELIMITER ", 0, 10)) {
+                    delimiter = line.substring(10).trim();
+                    current.setLength(0);
+                    i = lineEnd + 1;
+                    continue;
+                }
+            }
+            char ch = script.charAt(i);
+            if (ch == '\'' || ch == '"' || ch == '`') {
+                int end = i + 1;
+                while (end < n && script.charAt(end) != ch) {
+                    if (script.charAt(end) == '\\' && ch != '`') end++;
+                    end++;
+                }
+                end = Math.min(end + 1, n);
+                current.append(script, i, end);
+                i = end;
+            } else if (script.startsWith("--", i) || ch == '#') {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? n : end;
+            } else if (script.startsWith("/*", i)) {
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+                current.append(' ');
+            } else if (script.startsWith(delimiter, i)) {
+                addStatement(statements, current);
+                i += delimiter.length();
+            } else {
+                current.append(ch);
+                i++;
+            }
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty()) statements.add(statement);
+        current.setLength(0);
+    }
+
+    /**
+     * Applies pending migrations and prints what was done.
+     * Usage: java main.SchemaMigrator
+     */
+    public static void main(String[] args) throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator();
+        List<Migration> applied = migrator.migrate();
+        for (Migration m : applied) {
+            System.out.println("Applied " + m.version + " " + m.description);
+        }
+        System.out.println("Schema is at version " + migrator.getAppliedVersions().stream().mapToInt(v -> v).max().orElse(0)
+            + (applied.isEmpty() ? "; nothing to apply" : ""));
+        System.exit(0);
+    }
+
+    // Data classes for return values
+    public static class Migration {
+        public final int version;
+        public final String description;
+        public final String checksum;
+        final String script;
+        public Migration(int version, String description, String checksum, String script) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.script = script;
+        }
+    }
+}
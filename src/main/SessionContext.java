@@ -0,0 +1,53 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The signed-in user of one session. Passed explicitly to the service layer instead of a
+ * process-wide login, so one JVM can serve many sessions at once. Immutable and safe to
+ * share between the threads working for the session.
+ */
+public final class SessionContext {
+    private static final AtomicLong nextSessionId = new AtomicLong(1);
+
+    private final long sessionId;
+    private final int userId;
+    private final String role;
+    private final long createdAt;
+
+    /**
+     * @param userId Signed-in user's ID
+     * @param role User's role at sign-in (Admin, Staff or Customer)
+     */
+    public SessionContext(int userId, String role) {
+        this.sessionId = nextSessionId.getAndIncrement();
+        this.userId = userId;
+        this.role = role;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return Role at sign-in. Authorization checks still go through RoleValidator,
+     *         which sees role changes made after sign-in.
+     */
+    public String getRole() {
+        return role;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Session " + sessionId + " (user " + userId + ", " + role + ")";
+    }
+}
@@ -4,7 +4,8 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.*;
+import java.util.Comparator;
+import java.util.List;
 
 public class StaffPanel extends JFrame {
     private JComboBox<String> currencySelector;
@@ -13,10 +14,12 @@ public class StaffPanel extends JFrame {
     private JPanel bookPanel;
     private JButton addBookBtn;
     private JButton removeBookBtn;
-    private final int staffUserId = LoginScreen.loggedInUserId;
+    private final int staffUserId;
     private final StaffService staffService = new StaffService();
+    private final SwingAsync.Latest<BookListing> bookRequest = new SwingAsync.Latest<>();
 
-    public StaffPanel() {
+    public StaffPanel(SessionContext session) {
+        this.staffUserId = session.getUserId();
         setTitle("👨‍💼 Staff Dashboard - BookMart");
         setSize(950, 700);
         setMinimumSize(new Dimension(800, 600));
@@ -101,47 +104,44 @@ public class StaffPanel extends JFrame {
     }
 
     private void loadBooks(String keyword, String currency) {
-        bookPanel.removeAll();
         currentCurrency = currency;
 
-        try (Connection conn = DBConnection.getConnection()) {
-            String sql = """
-                SELECT b.book_id, b.title, b.genre, b.price, b.stock_quantity, c.exchange_rate_to_php
-                FROM books b
-                CROSS JOIN currencies c
-                WHERE c.currency_code = ?
-                AND (b.title LIKE ? OR b.genre LIKE ? OR ? = '')
-                ORDER BY b.title
-                """;
-            
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, currency);
-            stmt.setString(2, "%" + keyword + "%");
-            stmt.setString(3, "%" + keyword + "%");
-            stmt.setString(4, keyword);
-            
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                int bookId = rs.getInt("book_id");
-                String title = rs.getString("title");
-                String genre = rs.getString("genre");
-                double pricePHP = rs.getDouble("price");
-                int stock = rs.getInt("stock_quantity");
-                double exchangeRate = rs.getDouble("exchange_rate_to_php");
-                
-                double convertedPrice = pricePHP * exchangeRate;
-                
-                JPanel card = createBookCard(bookId, title, genre, convertedPrice, stock, currency);
+        // Served from the shared catalog cache, read off the EDT; a newer load supersedes this one
+        bookRequest.submit(() -> {
+            CatalogCache cache = CatalogCache.getInstance();
+            List<AdminService.BookInfo> books = cache.search(keyword);
+            books.sort(Comparator.comparing((AdminService.BookInfo b) -> b.title));
+            return new BookListing(cache.getExchangeRate(currency), books);
+        }, listing -> {
+            if (listing.exchangeRate == null) {
+                JOptionPane.showMessageDialog(this, "Error loading books: unknown currency " + currency);
+                return;
+            }
+            bookPanel.removeAll();
+            CatalogCache cache = CatalogCache.getInstance();
+            for (AdminService.BookInfo book : listing.books) {
+                double convertedPrice = cache.getPrice(book, currency);
+
+                JPanel card = createBookCard(book.bookId, book.title, book.genre, convertedPrice, book.stockQuantity, currency);
                 bookPanel.add(card);
             }
-        } catch (SQLException e) {
+
+            bookPanel.revalidate();
+            bookPanel.repaint();
+        }, e -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error loading books: " + e.getMessage());
+        });
+    }
+
+    private static class BookListing {
+        final Double exchangeRate;
+        final List<AdminService.BookInfo> books;
+
+        BookListing(Double exchangeRate, List<AdminService.BookInfo> books) {
+            this.exchangeRate = exchangeRate;
+            this.books = books;
         }
-        
-        bookPanel.revalidate();
-        bookPanel.repaint();
     }
 
     private JPanel createBookCard(int bookId, String title, String genre, double price, int stock, String currency) {
@@ -355,7 +355,6 @@ public class StaffPanel extends JFrame {
 
 
     private void logout() {
-        LoginScreen.loggedInUserId = -1;
         dispose();
         new LoginScreen().setVisible(true);
     }
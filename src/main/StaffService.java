@@ -25,6 +25,7 @@ public class StaffService {
             stmt.setDouble(3, price);
             stmt.setInt(4, stock);
             stmt.executeUpdate();
+            CatalogCache.getInstance().bookAdded();
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -38,11 +39,24 @@ public class StaffService {
      * @return true if successful, false otherwise
      */
     public boolean removeBook(int bookId) {
+        StockReservations.getInstance().evict(bookId);
         try (Connection conn = DBConnection.getConnection()) {
-            CallableStatement stmt = conn.prepareCall("{CALL removeBooks(?)}");
-            stmt.setInt(1, bookId);
-            stmt.executeUpdate();
-            return true;
+            conn.setAutoCommit(false);
+            try {
+                ChangeCapture changes = new ChangeCapture();
+                changes.bookDeleting(conn, bookId);
+                CallableStatement stmt = conn.prepareCall("{CALL removeBooks(?)}");
+                stmt.setInt(1, bookId);
+                stmt.executeUpdate();
+                changes.flush(conn);
+                conn.commit();
+                CatalogCache.getInstance().bookChanged(bookId);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                e.printStackTrace();
+                return false;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
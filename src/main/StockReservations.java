@@ -0,0 +1,456 @@
+package main;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hot-item mode for checkout stock.
+ * A book that keeps showing up in deadlocked or lock-timed-out checkouts is switched to
+ * an in-process striped counter seeded from its current stock. Checkouts then reserve
+ * units from the counter without touching the book's row lock, and committed
+ * reservations are written back to books.stock_quantity in batched updates.
+ *
+ * The counter is only authoritative inside this process, so hot-item mode assumes
+ * checkouts for a title are served by one backend. It is off unless
+ * -Dbookmart.db.hotItems=true, which ApiServer and LoadGenerator set by default; desktop
+ * clients, several of which may sell the same titles, stay on the lock-ordered and retried
+ * checkout path.
+ */
+public class StockReservations {
+    private static final boolean ENABLED = Boolean.getBoolean("bookmart.db.hotItems");
+    private static final StockReservations INSTANCE = new StockReservations();
+
+    private static final int STRIPES = 8;
+    private static final int HOT_THRESHOLD = 3;
+    private static final long CONTENTION_WINDOW_MS = 10_000;
+    private static final long IDLE_EVICT_MS = 60_000;
+    private static final long FLUSH_INTERVAL_MS = 100;
+
+    private final Map<Integer, HotItem> hotItems = new ConcurrentHashMap<>();
+    private final Map<Integer, ContentionWindow> contention = new ConcurrentHashMap<>();
+    // Decrements for books no longer in hot-item mode, or whose last flush failed
+    private final Map<Integer, AtomicInteger> directPending = new ConcurrentHashMap<>();
+    private final AtomicLong flushedUnits = new AtomicLong();
+    private final ScheduledExecutorService flusher;
+
+    private StockReservations() {
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "stock-reservation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        // Committed decrements must reach the database before the pool closes at shutdown
+        DBConnection.runBeforePoolClose(this::finalFlush);
+    }
+
+    public static StockReservations getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if any book is currently in hot-item mode
+     */
+    public boolean hasHotItems() {
+        return !hotItems.isEmpty();
+    }
+
+    public boolean isHot(int bookId) {
+        return hotItems.containsKey(bookId);
+    }
+
+    /**
+     * Records that checkouts containing these books hit lock contention.
+     * Books that reach the threshold within the window switch to hot-item mode, if enabled.
+     * @param bookIds Books in the contended checkout
+     */
+    public void recordContention(Iterable<Integer> bookIds) {
+        if (!ENABLED) return;
+        long now = System.currentTimeMillis();
+        for (int bookId : bookIds) {
+            ContentionWindow window = contention.computeIfAbsent(bookId, id -> new ContentionWindow());
+            if (window.hit(now) >= HOT_THRESHOLD && !hotItems.containsKey(bookId)) {
+                try {
+                    markHot(bookId);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Switches a book to hot-item mode, seeding its counter from the current stock.
+     * @param bookId Book ID
+     */
+    public void markHot(int bookId) throws SQLException {
+        synchronized (hotItems) {
+            if (hotItems.containsKey(bookId)) return;
+            try (Connection conn = DBConnection.getConnection()) {
+                if (conn == null) throw new SQLException("No database connection.");
+                PreparedStatement stmt = conn.prepareStatement("SELECT stock_quantity FROM books WHERE book_id = ?");
+                stmt.setInt(1, bookId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        hotItems.put(bookId, new HotItem(rs.getInt(1)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes a book's pending decrements and takes it out of hot-item mode,
+     * e.g. before an admin overwrites its stock.
+     * @param bookId Book ID
+     */
+    public void evict(int bookId) {
+        synchronized (hotItems) {
+            if (removeHot(bookId) == null) return;
+            try {
+                // The item's pending units are in directPending now
+                flush(Collections.emptyMap());
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reserves stock for the hot lines of a checkout, all or nothing.
+     * @param lines Book ID to quantity, for every line of the cart
+     * @return The reserved subset (book ID to quantity), or null if a hot book lacks stock
+     */
+    public Map<Integer, Integer> reserve(Map<Integer, Integer> lines) {
+        Map<Integer, Integer> reserved = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            HotItem item = hotItems.get(line.getKey());
+            if (item == null) continue;
+            if (!item.available.tryTake(line.getValue())) {
+                release(reserved);
+                return null;
+            }
+            item.lastUsed = System.currentTimeMillis();
+            reserved.put(line.getKey(), line.getValue());
+        }
+        return reserved;
+    }
+
+    /**
+     * Returns reserved units after a failed checkout.
+     * @param reserved Result of reserve()
+     */
+    public void release(Map<Integer, Integer> reserved) {
+        for (Map.Entry<Integer, Integer> line : reserved.entrySet()) {
+            HotItem item = hotItems.get(line.getKey());
+            if (item != null) {
+                item.available.add(line.getValue());
+            }
+        }
+    }
+
+    /**
+     * Settles the reservations of a committed order. Reserved units of books the order contains
+     * are queued for the next batched stock update; reservations for books that left the cart
+     * before checkout are released. Hot books the order decremented in the database itself,
+     * because they were not reserved (e.g. they turned hot after reserve()), are taken from
+     * their counter too, or evicted so they are reseeded if the counter is short.
+     * @param reserved Result of reserve()
+     * @param ordered Book ID to quantity for every line of the order
+     */
+    public void commit(Map<Integer, Integer> reserved, Map<Integer, Integer> ordered) {
+        for (Map.Entry<Integer, Integer> line : reserved.entrySet()) {
+            HotItem item = hotItems.get(line.getKey());
+            if (!ordered.containsKey(line.getKey())) {
+                if (item != null) item.available.add(line.getValue());
+            } else if (item == null || !item.addPending(line.getValue())) {
+                // Evicted meanwhile: write straight through
+                queueDirect(line.getKey(), line.getValue());
+            }
+        }
+        for (Map.Entry<Integer, Integer> line : ordered.entrySet()) {
+            if (reserved.containsKey(line.getKey())) continue;
+            HotItem item = hotItems.get(line.getKey());
+            if (item != null && !item.available.tryTake(line.getValue())) {
+                evict(line.getKey());
+            }
+        }
+    }
+
+    /**
+     * Takes a book out of hot-item mode. Decrements still pending on it move to directPending,
+     * and commits that race with the removal queue theirs there too.
+     * @return The removed item, or null if the book was not hot
+     */
+    private HotItem removeHot(int bookId) {
+        HotItem item = hotItems.remove(bookId);
+        if (item != null) {
+            int leftover = item.retire();
+            if (leftover > 0) queueDirect(bookId, leftover);
+        }
+        return item;
+    }
+
+    private void queueDirect(int bookId, int qty) {
+        directPending.computeIfAbsent(bookId, id -> new AtomicInteger()).addAndGet(qty);
+    }
+
+    private void finalFlush() {
+        flusher.shutdown();
+        try {
+            // Let a flush already running finish, so its batch is not re-queued behind a closed pool
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            Map<Integer, HotItem> snapshot = new TreeMap<>(hotItems);
+            flush(snapshot);
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Integer, HotItem> entry : snapshot.entrySet()) {
+                if (now - entry.getValue().lastUsed >= IDLE_EVICT_MS) {
+                    evict(entry.getKey());
+                }
+            }
+            contention.entrySet().removeIf(e -> now - e.getValue().windowStart >= CONTENTION_WINDOW_MS);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes pending decrements in one transaction, in book_id order.
+     * A decrement larger than the book's stock means units were sold that the database no
+     * longer had (e.g. the stock was changed outside this process); the stock is written down
+     * to zero, the shortfall reported, and the book taken out of hot-item mode so it is
+     * reseeded from the database.
+     */
+    private void flush(Map<Integer, HotItem> items) throws SQLException {
+        Map<Integer, Integer> batch = new TreeMap<>();
+        for (Map.Entry<Integer, HotItem> entry : items.entrySet()) {
+            int qty = entry.getValue().pending.getAndSet(0);
+            if (qty > 0) batch.merge(entry.getKey(), qty, Integer::sum);
+        }
+        for (Map.Entry<Integer, AtomicInteger> entry : directPending.entrySet()) {
+            int qty = entry.getValue().getAndSet(0);
+            if (qty > 0) batch.merge(entry.getKey(), qty, Integer::sum);
+        }
+        if (batch.isEmpty()) return;
+
+        List<Integer> shortBooks = new ArrayList<>();
+        try {
+            TransactionRetry.run(() -> {
+                shortBooks.clear();
+                try (Connection conn = DBConnection.getConnection()) {
+                    if (conn == null) throw new SQLException("No database connection.");
+                    conn.setAutoCommit(false);
+                    ChangeCapture changes = new ChangeCapture();
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "UPDATE books SET stock_quantity = stock_quantity - ? WHERE book_id = ? AND stock_quantity >= ?")) {
+                        for (Map.Entry<Integer, Integer> line : batch.entrySet()) {
+                            stmt.setInt(1, line.getValue());
+                            stmt.setInt(2, line.getKey());
+                            stmt.setInt(3, line.getValue());
+                            stmt.addBatch();
+                        }
+                        int[] counts = stmt.executeBatch();
+                        int i = 0;
+                        for (int bookId : batch.keySet()) {
+                            if (counts[i++] == 0) shortBooks.add(bookId);
+                        }
+                    }
+                    for (int bookId : shortBooks) {
+                        writeDownToZero(conn, bookId, batch.get(bookId), changes);
+                    }
+                    // Rows are locked by the updates; read the new stock back in one query for the log
+                    List<Integer> updated = new ArrayList<>(batch.keySet());
+                    updated.removeAll(shortBooks);
+                    if (!updated.isEmpty()) {
+                        try (PreparedStatement stmt = conn.prepareStatement(
+                                "SELECT book_id, stock_quantity FROM books WHERE book_id IN ("
+                                + "?, ".repeat(updated.size() - 1) + "?)")) {
+                            int p = 1;
+                            for (int bookId : updated) {
+                                stmt.setInt(p++, bookId);
+                            }
+                            try (ResultSet rs = stmt.executeQuery()) {
+                                while (rs.next()) {
+                                    int newStock = rs.getInt(2);
+                                    changes.stockChanged(rs.getInt(1), newStock + batch.get(rs.getInt(1)), newStock);
+                                }
+                            }
+                        }
+                    }
+                    changes.flush(conn);
+                    conn.commit();
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            // Put everything back for the next flush; these units are already sold
+            for (Map.Entry<Integer, Integer> line : batch.entrySet()) {
+                queueDirect(line.getKey(), line.getValue());
+            }
+            throw e;
+        }
+        flushedUnits.addAndGet(batch.values().stream().mapToInt(Integer::intValue).sum());
+        for (int bookId : shortBooks) {
+            removeHot(bookId);
+        }
+        CatalogCache.getInstance().booksChanged(new ArrayList<>(batch.keySet()));
+    }
+
+    private static void writeDownToZero(Connection conn, int bookId, int qty, ChangeCapture changes) throws SQLException {
+        int stock;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT stock_quantity FROM books WHERE book_id = ? FOR UPDATE")) {
+            stmt.setInt(1, bookId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return; // deleted
+                stock = rs.getInt(1);
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE books SET stock_quantity = 0 WHERE book_id = ?")) {
+            stmt.setInt(1, bookId);
+            stmt.executeUpdate();
+        }
+        changes.stockChanged(bookId, stock, 0);
+        System.err.println("Stock flush: book " + bookId + " was oversold by " + (qty - stock) + " units");
+    }
+
+    /**
+     * Writes every pending decrement now instead of waiting for the flusher.
+     * @throws SQLException if the batch could not be written; it stays queued
+     */
+    public void flushAll() throws SQLException {
+        flush(new TreeMap<>(hotItems));
+    }
+
+    /**
+     * @return Total units written back to the books table by batched flushes
+     */
+    public long getFlushedUnits() {
+        return flushedUnits.get();
+    }
+
+    /**
+     * @return Hot book IDs and their units still available in-process
+     */
+    public Map<Integer, Integer> getHotItemStock() {
+        Map<Integer, Integer> result = new TreeMap<>();
+        for (Map.Entry<Integer, HotItem> entry : hotItems.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().available.sum());
+        }
+        return result;
+    }
+
+    private static class HotItem {
+        final StripedCounter available;
+        final AtomicInteger pending = new AtomicInteger();
+        volatile long lastUsed = System.currentTimeMillis();
+        // Guarded by this; once set, pending is never added to again
+        private boolean removed;
+
+        HotItem(int stock) {
+            this.available = new StripedCounter(stock);
+        }
+
+        /**
+         * @return false if the item was removed from hot-item mode; the caller queues qty elsewhere
+         */
+        synchronized boolean addPending(int qty) {
+            if (removed) return false;
+            pending.addAndGet(qty);
+            return true;
+        }
+
+        /**
+         * Marks the item removed.
+         * @return Units still pending, which the caller must write
+         */
+        synchronized int retire() {
+            removed = true;
+            return pending.getAndSet(0);
+        }
+    }
+
+    private static class ContentionWindow {
+        volatile long windowStart = System.currentTimeMillis();
+        final AtomicInteger hits = new AtomicInteger();
+
+        int hit(long now) {
+            if (now - windowStart >= CONTENTION_WINDOW_MS) {
+                windowStart = now;
+                hits.set(0);
+            }
+            return hits.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stock counter split across stripes so concurrent reservations rarely CAS the same slot.
+     * A reservation starts at a random stripe and borrows from the others when it runs short.
+     */
+    private static class StripedCounter {
+        private final AtomicIntegerArray stripes = new AtomicIntegerArray(STRIPES);
+
+        StripedCounter(int initial) {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.set(i, initial / STRIPES + (i < initial % STRIPES ? 1 : 0));
+            }
+        }
+
+        boolean tryTake(int qty) {
+            int start = ThreadLocalRandom.current().nextInt(STRIPES);
+            int remaining = qty;
+            int[] taken = new int[STRIPES];
+            for (int n = 0; n < STRIPES && remaining > 0; n++) {
+                int i = (start + n) % STRIPES;
+                while (true) {
+                    int current = stripes.get(i);
+                    if (current <= 0) break;
+                    int take = Math.min(current, remaining);
+                    if (stripes.compareAndSet(i, current, current - take)) {
+                        taken[i] += take;
+                        remaining -= take;
+                        break;
+                    }
+                }
+            }
+            if (remaining > 0) {
+                for (int i = 0; i < STRIPES; i++) {
+                    if (taken[i] > 0) stripes.addAndGet(i, taken[i]);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        void add(int qty) {
+            stripes.addAndGet(ThreadLocalRandom.current().nextInt(STRIPES), qty);
+        }
+
+        int sum() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += stripes.get(i);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package main;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Binds results of AsyncDB work back onto the Swing Event Dispatch Thread.
+ */
+public class SwingAsync {
+
+    /**
+     * Applies the future's result on the EDT; failures are printed.
+     * @param future Pending result
+     * @param onSuccess Called on the EDT with the result
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        onEdt(future, onSuccess, Throwable::printStackTrace);
+    }
+
+    /**
+     * Applies the future's result or failure on the EDT. Cancelled futures are ignored.
+     * @param future Pending result
+     * @param onSuccess Called on the EDT with the result
+     * @param onError Called on the EDT with the underlying exception
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) return;
+            SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    onError.accept(unwrap(error));
+                } else {
+                    onSuccess.accept(result);
+                }
+            });
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Keeps only the newest of a series of requests, e.g. search-as-you-go.
+     * Submitting a new task cancels the previous one, and a result that arrives
+     * after being superseded is dropped instead of overwriting newer data.
+     * Must be used from the EDT.
+     */
+    public static class Latest<T> {
+        private CompletableFuture<T> current;
+        private long generation = 0;
+
+        /**
+         * @param task Database work to run off the EDT
+         * @param onSuccess Applied on the EDT if this is still the newest request
+         * @param onError Applied on the EDT if this is still the newest request
+         */
+        public void submit(Callable<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+            cancel();
+            long mine = ++generation;
+            current = AsyncDB.supply(task);
+            onEdt(current,
+                result -> { if (mine == generation) onSuccess.accept(result); },
+                error -> { if (mine == generation) onError.accept(error); });
+        }
+
+        public void submit(Callable<T> task, Consumer<T> onSuccess) {
+            submit(task, onSuccess, Throwable::printStackTrace);
+        }
+
+        /**
+         * Cancels the pending request, if any.
+         */
+        public void cancel() {
+            generation++;
+            if (current != null) {
+                current.cancel(true);
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Hands rows produced on a worker thread to the EDT in batches, so a table can
+     * show the first rows while the rest are still streaming in.
+     */
+    public static class Batcher<T> {
+        private final int batchSize;
+        private final Consumer<List<T>> onBatch;
+        private List<T> pending;
+
+        /**
+         * @param batchSize Rows per EDT update
+         * @param onBatch Called on the EDT with each batch, in order
+         */
+        public Batcher(int batchSize, Consumer<List<T>> onBatch) {
+            this.batchSize = batchSize;
+            this.onBatch = onBatch;
+            this.pending = new ArrayList<>(batchSize);
+        }
+
+        public void add(T row) {
+            pending.add(row);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        public void flush() {
+            if (pending.isEmpty()) return;
+            List<T> batch = pending;
+            pending = new ArrayList<>(batchSize);
+            SwingUtilities.invokeLater(() -> onBatch.accept(batch));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package main;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-runs a database transaction that failed on a deadlock or lock wait timeout,
+ * backing off with full jitter so colliding transactions do not retry in lockstep.
+ */
+public class TransactionRetry {
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 500;
+
+    // MySQL error codes
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    private static final AtomicLong deadlockRetries = new AtomicLong();
+    private static final AtomicLong lockWaitRetries = new AtomicLong();
+    private static final AtomicLong exhaustedRetries = new AtomicLong();
+
+    /**
+     * Work to run inside one transaction attempt.
+     */
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Called before each retry, e.g. to record which rows were contended.
+     */
+    public interface RetryListener {
+        void onRetry(SQLException cause, int attempt);
+    }
+
+    public static <T> T run(Work<T> work) throws SQLException {
+        return run(work, (cause, attempt) -> { });
+    }
+
+    /**
+     * Runs the work, retrying deadlocks and lock wait timeouts up to MAX_ATTEMPTS times.
+     * The work must roll back its own transaction on failure (closing a pooled connection does).
+     * @param work Transaction to run
+     * @param listener Notified before every retry
+     * @return The work's result
+     * @throws SQLException the last failure if it was not retryable or attempts ran out
+     */
+    public static <T> T run(Work<T> work, RetryListener listener) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                int code = retryableCode(e);
+                if (code == 0) {
+                    throw e;
+                }
+                if (attempt >= MAX_ATTEMPTS) {
+                    exhaustedRetries.incrementAndGet();
+                    throw e;
+                }
+                if (code == ER_LOCK_DEADLOCK) {
+                    deadlockRetries.incrementAndGet();
+                } else {
+                    lockWaitRetries.incrementAndGet();
+                }
+                listener.onRetry(e, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * @param e Exception to inspect, including its causes and chained exceptions
+     * @return true if the transaction failed on a deadlock or lock wait timeout
+     */
+    public static boolean isRetryable(SQLException e) {
+        return retryableCode(e) != 0;
+    }
+
+    private static int retryableCode(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                for (SQLException s = (SQLException) t; s != null; s = s.getNextException()) {
+                    if (s.getErrorCode() == ER_LOCK_DEADLOCK) return ER_LOCK_DEADLOCK;
+                    if (s.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) return ER_LOCK_WAIT_TIMEOUT;
+                    if ("40001".equals(s.getSQLState())) return ER_LOCK_DEADLOCK;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static void backoff(int attempt) throws SQLException {
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt, 20));
+        long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry transaction.", e);
+        }
+    }
+
+    public static long getDeadlockRetries() { return deadlockRetries.get(); }
+    public static long getLockWaitRetries() { return lockWaitRetries.get(); }
+    public static long getExhaustedRetries() { return exhaustedRetries.get(); }
+}